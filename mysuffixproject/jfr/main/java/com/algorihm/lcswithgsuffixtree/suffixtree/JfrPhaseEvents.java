@@ -0,0 +1,41 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+/**
+ * The phases of {@link TreeMetrics} as {@link PhaseEvent}s, loaded by {@link PhaseEvents#load()} when the runtime has JFR
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+class JfrPhaseEvents extends PhaseEvents {
+
+    @Override
+    Object begin() {
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void end(Object started, String phase, long size) {
+        PhaseEvent event = (PhaseEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.size = size;
+            event.commit();
+        }
+    }
+}
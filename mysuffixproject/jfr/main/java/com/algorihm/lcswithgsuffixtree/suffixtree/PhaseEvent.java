@@ -0,0 +1,42 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The JFR event of one phase of the work of the tree (a put, a rebuild of the document sets, a compaction, an lcs),
+ * so a recording shows where the time of a slow input went. it is only created when the metrics are on,
+ * by {@link JfrPhaseEvents}
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+@Name("lcswithgsuffixtree.Phase")
+@Label("Suffix Tree Phase")
+@Category("Suffix Tree")
+@Description("one phase of the construction or the analysis of a generalized suffix tree")
+class PhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Size")
+    @Description("the number of chars or nodes the phase went over")
+    long size;
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.benchmark;
+
+import main.java.com.algorihm.lcswithgsuffixtree.suffixarray.FMIndex;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixarray.GeneralizedSuffixArray;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.GeneralizedSuffixTreeImp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time and the allocations of {@link GeneralizedSuffixTreeImp#put(String, int)} for a whole corpus.
+ * the corpus is split in documents of about {@link #DOCUMENT_SIZE} chars.
+ * bigger sizes (up to 100MB) can be asked with -p size=..., as long as the heap given with -jvmArgs can hold the tree
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ConstructionBenchmark {
+
+    static final int DOCUMENT_SIZE = 4096;
+
+    @Param({"RANDOM", "DNA", "TEXT", "REPETITIVE"})
+    public Corpus corpus;
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    private String[] documents;
+
+    @Setup
+    public void generate() {
+        documents = corpus.generate(size, Math.max(2, size / DOCUMENT_SIZE), 42);
+    }
+
+    @Benchmark
+    public GeneralizedSuffixTreeImp put() {
+        GeneralizedSuffixTreeImp tree = new GeneralizedSuffixTreeImp();
+        for (int d = 0; d < documents.length; d++) {
+            tree.put(documents[d], d);
+        }
+        return tree;
+    }
+
+    /**
+     * the build of the suffix array with SA-IS and of the LCP array, to compare with put
+     */
+    @Benchmark
+    public GeneralizedSuffixArray suffixArray() {
+        GeneralizedSuffixArray index = new GeneralizedSuffixArray();
+        for (int d = 0; d < documents.length; d++) {
+            index.put(documents[d], d);
+        }
+        index.build();
+        return index;
+    }
+
+    /**
+     * the whole build of the compressed index, to compare with put: the suffix array and the transform
+     */
+    @Benchmark
+    public FMIndex fmIndex() {
+        FMIndex index = new FMIndex();
+        for (int d = 0; d < documents.length; d++) {
+            index.put(documents[d], d);
+        }
+        index.build();
+        return index;
+    }
+}
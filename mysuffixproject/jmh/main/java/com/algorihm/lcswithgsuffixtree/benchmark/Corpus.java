@@ -0,0 +1,98 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.benchmark;
+
+import java.util.Random;
+
+/**
+ * The synthetic inputs of the benchmarks, always the same for the same size and seed so two runs can be compared.
+ * the tree only takes ascii chars, so every corpus stays in that range
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public enum Corpus {
+
+    /**
+     * uniform letters and digits, few repeats so the tree is shallow and wide
+     */
+    RANDOM {
+        @Override
+        void fill(StringBuilder out, int length, Random random) {
+            String alphabet = "abcdefghijklmnopqrstuvwxyz0123456789";
+            for (int i = 0; i < length; i++) {
+                out.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+        }
+    },
+    /**
+     * four letters, like a genome: many short repeats
+     */
+    DNA {
+        @Override
+        void fill(StringBuilder out, int length, Random random) {
+            String alphabet = "acgt";
+            for (int i = 0; i < length; i++) {
+                out.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+        }
+    },
+    /**
+     * words of a small vocabulary with a skewed (zipf like) frequency, like log lines or prose
+     */
+    TEXT {
+        @Override
+        void fill(StringBuilder out, int length, Random random) {
+            String[] words = {"the", "of", "and", "to", "in", "is", "error", "user", "request", "failed", "suffix", "tree",
+                    "connection", "timeout", "server", "started", "document", "search", "index", "value"};
+            int start = out.length();
+            while (out.length() - start < length) {
+                // the smaller the random number the more frequent the word
+                double u = random.nextDouble();
+                out.append(words[(int) (words.length * u * u)]);
+                out.append(random.nextInt(10) == 0 ? ". " : " ");
+            }
+            out.setLength(start + length);
+        }
+    },
+    /**
+     * one short motif repeated with a rare mutation, the worst case for deep trees and long edges
+     */
+    REPETITIVE {
+        @Override
+        void fill(StringBuilder out, int length, Random random) {
+            String motif = "abracadabra";
+            for (int i = 0; i < length; i++) {
+                out.append(random.nextInt(1000) == 0 ? 'x' : motif.charAt(i % motif.length()));
+            }
+        }
+    };
+
+    abstract void fill(StringBuilder out, int length, Random random);
+
+    /**
+     * @return <tt>documents</tt> keys of about the same length, <tt>size</tt> chars in total
+     */
+    public String[] generate(int size, int documents, long seed) {
+        Random random = new Random(seed);
+        String[] ret = new String[documents];
+        for (int d = 0; d < documents; d++) {
+            int length = size / documents + (d < size % documents ? 1 : 0);
+            StringBuilder out = new StringBuilder(length);
+            fill(out, length, random);
+            ret[d] = out.toString();
+        }
+        return ret;
+    }
+}
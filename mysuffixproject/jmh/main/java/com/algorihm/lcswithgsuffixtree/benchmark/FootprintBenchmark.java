@@ -0,0 +1,143 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.benchmark;
+
+import main.java.com.algorihm.lcswithgsuffixtree.suffixarray.FMIndex;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixarray.GeneralizedSuffixArray;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.GeneralizedSuffixTreeImp;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.TreeMetrics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The heap an index keeps after its build, in bytes per char of the corpus: how much the used heap drops, after a full
+ * gc, when the built index is let go, next to the estimatedBytes of the index itself. the two counters are in the report
+ * as heapBytesPerChar and estimatedBytesPerChar. JMH sums such counters over the iterations, so only one build is
+ * measured (the time of the build is in the report too, but ConstructionBenchmark measures it better)
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FootprintBenchmark {
+
+    public enum Engine {
+        TREE, ARRAY, FM
+    }
+
+    @Param({"TREE", "ARRAY", "FM"})
+    public Engine engine;
+
+    @Param({"RANDOM", "DNA", "TEXT", "REPETITIVE"})
+    public Corpus corpus;
+
+    @Param({"1048576"})
+    public int size;
+
+    private String[] documents;
+    private long chars;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+
+        public double heapBytesPerChar;
+        public double estimatedBytesPerChar;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            heapBytesPerChar = 0;
+            estimatedBytesPerChar = 0;
+        }
+    }
+
+    @Setup
+    public void generate() {
+        documents = corpus.generate(size, Math.max(2, size / ConstructionBenchmark.DOCUMENT_SIZE), 42);
+        chars = 0;
+        for (String document : documents) {
+            chars += document.length();
+        }
+    }
+
+    @Benchmark
+    public void build(Footprint footprint, Blackhole blackhole) {
+        Object index;
+        long estimated;
+        if (engine == Engine.TREE) {
+            GeneralizedSuffixTreeImp tree = new GeneralizedSuffixTreeImp();
+            for (int d = 0; d < documents.length; d++) {
+                tree.put(documents[d], d);
+            }
+            tree.computeCount();
+            tree.setMetrics(new TreeMetrics());
+            estimated = tree.getMetrics().estimatedBytes;
+            index = tree;
+        } else if (engine == Engine.ARRAY) {
+            GeneralizedSuffixArray array = new GeneralizedSuffixArray();
+            for (int d = 0; d < documents.length; d++) {
+                array.put(documents[d], d);
+            }
+            array.build();
+            estimated = array.estimatedBytes();
+            index = array;
+        } else {
+            FMIndex fm = new FMIndex();
+            for (int d = 0; d < documents.length; d++) {
+                fm.put(documents[d], d);
+            }
+            fm.build();
+            estimated = fm.estimatedBytes();
+            index = fm;
+        }
+        long with = usedHeap();
+        // consumed after the first measure, so the index is still reachable while it is taken
+        blackhole.consume(index);
+        index = null;
+        footprint.heapBytesPerChar = (double) (with - usedHeap()) / chars;
+        footprint.estimatedBytesPerChar = (double) estimated / chars;
+    }
+
+    /**
+     * the heap in use after the garbage of the build is collected, a few gcs in a row so the result settles
+     */
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.benchmark;
+
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.GeneralizedSuffixTreeImp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time of one put followed by one search on a tree that already holds <tt>size</tt> chars, the pattern of a tree
+ * that is searched while it is fed (the publisher of ConcurrentSuffixTree, a sliding window, the result cache).
+ * every search has to bring the document sets up to date with the key that was just put, so this is about the cost of
+ * that update. with <tt>window</tt> the oldest index is also removed at every put, like {@link GeneralizedSuffixTreeImp#setWindow(int)}
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class InterleavedBenchmark {
+
+    /**
+     * the length of the keys put between two searches
+     */
+    static final int KEY_SIZE = 100;
+    /**
+     * the keys put during one iteration come from this many pieces of the corpus, used again in a loop
+     */
+    static final int KEYS = 1 << 14;
+
+    @Param({"RANDOM", "TEXT"})
+    public Corpus corpus;
+
+    @Param({"65536", "1048576"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean window;
+
+    private String[] documents;
+    private String[] keys;
+    private GeneralizedSuffixTreeImp tree;
+    private int next;
+
+    @Setup
+    public void generate() {
+        documents = corpus.generate(size, Math.max(2, size / KEY_SIZE), 42);
+        keys = corpus.generate(KEYS * KEY_SIZE, KEYS, 43);
+    }
+
+    /**
+     * a new tree for every iteration, so they all start from the same size
+     */
+    @Setup(Level.Iteration)
+    public void build() {
+        tree = new GeneralizedSuffixTreeImp();
+        for (int d = 0; d < documents.length; d++) {
+            tree.put(documents[d], d);
+        }
+        if (window) {
+            tree.setWindow(documents.length);
+        }
+        tree.computeCount();
+        next = documents.length;
+    }
+
+    @Benchmark
+    public Collection<Integer> putThenSearch() {
+        String key = keys[next % KEYS];
+        tree.put(key, next++);
+        return tree.search(key.substring(KEY_SIZE / 2, KEY_SIZE / 2 + 8));
+    }
+}
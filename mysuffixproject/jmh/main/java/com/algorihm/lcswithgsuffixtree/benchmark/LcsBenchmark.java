@@ -0,0 +1,77 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.benchmark;
+
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.GeneralizedSuffixTreeImp;
+import main.java.com.algorihm.lcswithgsuffixtree.toolsAndLCS.tools;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link GeneralizedSuffixTreeImp#computeCount()} and {@link tools#myLCS} on a tree of two documents of size / 2 chars,
+ * the tree is built once per trial so only the analysis is measured
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class LcsBenchmark {
+
+    @Param({"RANDOM", "DNA", "TEXT", "REPETITIVE"})
+    public Corpus corpus;
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    private GeneralizedSuffixTreeImp tree;
+    private final tools tools = new tools();
+
+    @Setup
+    public void build() {
+        String[] documents = corpus.generate(size, 2, 42);
+        tree = new GeneralizedSuffixTreeImp();
+        tree.put(documents[0], 0);
+        tree.put(documents[1], 1);
+        tree.computeCount();
+    }
+
+    @Benchmark
+    public int computeCount() {
+        return tree.computeCount();
+    }
+
+    /**
+     * the counts from the setup are still valid, myLCS only reads them
+     */
+    @Benchmark
+    public String myLCS() {
+        return tools.myLCS(tree.getRoot());
+    }
+}
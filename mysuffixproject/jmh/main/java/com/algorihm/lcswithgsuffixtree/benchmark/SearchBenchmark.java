@@ -0,0 +1,121 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.benchmark;
+
+import main.java.com.algorihm.lcswithgsuffixtree.suffixarray.FMIndex;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixarray.GeneralizedSuffixArray;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.CompactSuffixTree;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.GeneralizedSuffixTreeImp;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.SuffixIndex;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.WritableSuffixIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency of one search, for a word that is in the corpus (hit) and one that is not (miss),
+ * on every engine that implements {@link SuffixIndex}
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SearchBenchmark {
+
+    public enum Engine {
+        TREE, COMPACT, ARRAY, FM
+    }
+
+    @Param({"TREE", "COMPACT", "ARRAY", "FM"})
+    public Engine engine;
+
+    @Param({"RANDOM", "DNA", "TEXT", "REPETITIVE"})
+    public Corpus corpus;
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    @Param({"8"})
+    public int wordLength;
+
+    private SuffixIndex index;
+    private String hit;
+    private String miss;
+
+    @Setup
+    public void build() {
+        String[] documents = corpus.generate(size, Math.max(2, size / ConstructionBenchmark.DOCUMENT_SIZE), 42);
+        if (engine == Engine.TREE || engine == Engine.COMPACT) {
+            GeneralizedSuffixTreeImp tree = new GeneralizedSuffixTreeImp();
+            for (int d = 0; d < documents.length; d++) {
+                tree.put(documents[d], d);
+            }
+            tree.computeCount();
+            index = engine == Engine.TREE ? tree : CompactSuffixTree.from(tree, false);
+        } else {
+            WritableSuffixIndex writable = engine == Engine.ARRAY ? new GeneralizedSuffixArray() : new FMIndex();
+            for (int d = 0; d < documents.length; d++) {
+                writable.put(documents[d], d);
+            }
+            index = writable;
+            // the first search builds it
+            index.search(documents[0]);
+        }
+
+        // the hit is a piece of a document, the miss is the same piece with a char that is never in the corpus at the end
+        Random random = new Random(7);
+        String document = documents[random.nextInt(documents.length)];
+        int length = Math.min(wordLength, document.length());
+        int start = random.nextInt(document.length() - length + 1);
+        hit = document.substring(start, start + length);
+        miss = hit.substring(0, length - 1) + '#';
+    }
+
+    @Benchmark
+    public Collection<Integer> searchHit() {
+        return index.search(hit);
+    }
+
+    @Benchmark
+    public Collection<Integer> searchMiss() {
+        return index.search(miss);
+    }
+
+    @Benchmark
+    public GeneralizedSuffixTreeImp.ResultInfo searchWithCountHit() {
+        return index.searchWithCount(hit, 10);
+    }
+
+    @Benchmark
+    public GeneralizedSuffixTreeImp.ResultInfo searchWithCountMiss() {
+        return index.searchWithCount(miss, 10);
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.benchmark;
+
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.CompactSuffixTree;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.GeneralizedSuffixTreeImp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The startup of a searchable index: putting the corpus again and copying it to a {@link CompactSuffixTree},
+ * against mapping a snapshot saved before. every benchmark ends with one search, so the loaded tree has touched
+ * the pages it needs (the other pages of the file are only read when a search goes there)
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SnapshotBenchmark {
+
+    @Param({"RANDOM", "TEXT"})
+    public Corpus corpus;
+
+    @Param({"65536", "1048576"})
+    public int size;
+
+    private String[] documents;
+    private String word;
+    private Path file;
+
+    @Setup
+    public void save() throws IOException {
+        documents = corpus.generate(size, Math.max(2, size / ConstructionBenchmark.DOCUMENT_SIZE), 42);
+        word = documents[documents.length / 2].substring(0, 8);
+        file = Files.createTempFile("snapshot", ".gst");
+        rebuild().save(file);
+    }
+
+    @TearDown
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * what a process without a snapshot does before its first search
+     */
+    @Benchmark
+    public CompactSuffixTree rebuild() {
+        GeneralizedSuffixTreeImp tree = new GeneralizedSuffixTreeImp();
+        for (int d = 0; d < documents.length; d++) {
+            tree.put(documents[d], d);
+        }
+        return CompactSuffixTree.from(tree, true);
+    }
+
+    @Benchmark
+    public Collection<Integer> load() throws IOException {
+        return CompactSuffixTree.load(file).search(word);
+    }
+}
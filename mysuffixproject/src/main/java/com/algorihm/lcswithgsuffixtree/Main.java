@@ -2,12 +2,28 @@ package main.java.com.algorihm.lcswithgsuffixtree;
 
 
 import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.GeneralizedSuffixTreeImp;
+import main.java.com.algorihm.lcswithgsuffixtree.toolsAndLCS.BulkLoader;
 import main.java.com.algorihm.lcswithgsuffixtree.toolsAndLCS.tools;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+
+        // two file names: the files are decoded through small windows instead of being read as strings,
+        // and the chars the tree can not take (accents, ...) are dropped
+        if (args.length == 2) {
+            GeneralizedSuffixTreeImp files = new GeneralizedSuffixTreeImp();
+            new BulkLoader(StandardCharsets.UTF_8, BulkLoader.ASCII, 2)
+                    .load(files, Arrays.asList(Paths.get(args[0]), Paths.get(args[1])), 0, ForkJoinPool.commonPool());
+            System.out.println("**=> the longest common substring of the two files is : " + new tools().myLCS(files));
+            return;
+        }
 
         System.out.println("...... Hi , this is the test of suffix tree and LCS Algorithm ......\n" +
                 "   first of all we show you our test case and the answer\n" +
@@ -19,7 +35,7 @@ public class Main {
         tree.put("MichellAngello", 0);
         tree.put("AngelinHeaven", 1);
 
-        System.out.println("**=> so the answer of our test case is : " + new tools().myLCS(tree.getRoot()));
+        System.out.println("**=> so the answer of our test case is : " + new tools().myLCS(tree));
 
         System.out.println("    now it's your turn please input two strings to see answers\n" +
                 "please input first one");
@@ -31,7 +47,7 @@ public class Main {
         System.out.println("good now please input next one");
         tree1.put(scanner.nextLine(), 1);
 
-        System.out.println("**=> so the answer of our test case is : " + new tools().myLCS(tree1.getRoot()));
+        System.out.println("**=> so the answer of our test case is : " + new tools().myLCS(tree1));
 
     }
 }
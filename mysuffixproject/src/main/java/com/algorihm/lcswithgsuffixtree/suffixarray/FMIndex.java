@@ -0,0 +1,322 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixarray;
+
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.GeneralizedSuffixTreeImp;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.WritableSuffixIndex;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.TextBuffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A compressed index of the keys (an FM-index, Ferragina and Manzini, "Opportunistic data structures with applications"),
+ * for the corpora that do not fit in memory as a {@link GeneralizedSuffixTreeImp} or a {@link GeneralizedSuffixArray}.
+ *
+ * the keys are concatenated as in the suffix array, key0 $ key1 $ ... keyN $ #, the suffix array is built with SA-IS
+ * and only its Burrows-Wheeler transform is kept, in a {@link WaveletMatrix} over the chars that are really used,
+ * with the position of one suffix out of {@link #SAMPLE_RATE} (and of the first suffix of every key). the text,
+ * the suffix array and everything else built on the way are dropped, so the index takes about
+ * log2(distinct chars + 2) * 17/16 + 2 bits per char, often less than the input itself, where the suffix array takes
+ * 10 bytes per char and the tree with its document sets a few hundred.
+ *
+ * the price is the time: counting the occurrences of a word is a backward search of O(m log sigma), but every index has
+ * to be found by walking back to a sampled suffix, up to SAMPLE_RATE steps of O(log sigma) per occurrence. so the
+ * frequent words cost much more than in the tree, where the indexes of a node are ready (see the README for numbers).
+ * the index is built again on the first query after a put, from the keys read back out of the transform.
+ * the build itself needs the int suffix array, about 12 bytes per char for a moment.
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class FMIndex implements WritableSuffixIndex {
+
+    /**
+     * one suffix out of this many has its position kept
+     */
+    public static final int SAMPLE_RATE = 32;
+    /**
+     * the codes of the transform: 0 is the end of the text, 1 is the end of a key and the chars come after them
+     */
+    private static final int END = 0;
+    private static final int SEPARATOR = 1;
+
+    /**
+     * The index of the last item that was added
+     */
+    private int last = 0;
+    /**
+     * the keys put after the last build
+     */
+    private TextBuffer text = new TextBuffer();
+    private boolean built = false;
+
+    /**
+     * the chars of the keys in increasing order, char c has the code 2 + its position here
+     */
+    private char[] alphabet = new char[0];
+    /**
+     * counts[c] is the number of codes smaller than c in the transform, where the suffixes that start with c begin
+     */
+    private int[] counts;
+    private WaveletMatrix bwt;
+    /**
+     * the rows of the suffix array whose position is kept, and the kept positions in the order of the rows
+     */
+    private RankBitVector sampled;
+    private int[] samples;
+    /**
+     * start of every key in the concatenated text and the index value of every key
+     */
+    private int[] starts = new int[1];
+    private int[] indexes = new int[0];
+
+    @Override
+    public void put(String key, int index) throws IllegalStateException {
+        if (index < last) {
+            throw new IllegalStateException("You should give the correct indexing to program .\n" + index + "should be more than " + last);
+        } else {
+            last = index;
+        }
+        text.append(key, index);
+        built = false;
+    }
+
+    /**
+     * builds the transform of all the keys put so far
+     */
+    public void build() {
+        if (bwt != null && text.documentCount() == 0) {
+            built = true;
+            return;
+        }
+        if (bwt != null) {
+            // the keys of the last build are only in the transform now, they are read back and put before the new ones
+            TextBuffer all = recover();
+            for (int d = 0; d < text.documentCount(); d++) {
+                all.append(text.substring(text.documentStart(d), text.documentEnd(d)), text.documentIndex(d));
+            }
+            text = all;
+        }
+        int docs = text.documentCount();
+        int n = text.length() + docs + 1;
+
+        boolean[] used = new boolean[Character.MAX_VALUE + 1];
+        for (int i = 0; i < text.length(); i++) {
+            used[text.charAt(i)] = true;
+        }
+        int[] codeOf = new int[Character.MAX_VALUE + 1];
+        char[] chars = new char[Character.MAX_VALUE + 1];
+        int sigma = 0;
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (used[c]) {
+                codeOf[c] = sigma;
+                chars[sigma++] = (char) c;
+            }
+        }
+        alphabet = Arrays.copyOf(chars, sigma);
+
+        // as in the suffix array: 0 is the sentinel, 1..docs are the separators (each one only once) and the chars come after
+        int base = docs + 1;
+        int[] s = new int[n];
+        starts = new int[docs + 1];
+        indexes = new int[docs];
+        BitSet firstSuffix = new BitSet(n);
+        int p = 0;
+        for (int d = 0; d < docs; d++) {
+            starts[d] = p;
+            firstSuffix.set(p);
+            indexes[d] = text.documentIndex(d);
+            for (int i = text.documentStart(d); i < text.documentEnd(d); i++) {
+                s[p++] = base + codeOf[text.charAt(i)];
+            }
+            s[p++] = d + 1;
+        }
+        starts[docs] = p;
+        s[p] = 0;
+        text = new TextBuffer();
+
+        int[] sa = new int[n];
+        GeneralizedSuffixArray.sais(s, sa, n, base + sigma);
+
+        // the transform with all the separators as one code, and the sampled positions
+        counts = new int[sigma + 3];
+        long[] marks = new long[(n + 63) >>> 6];
+        int sampleCount = 0;
+        for (int row = 0; row < n; row++) {
+            if (sa[row] % SAMPLE_RATE == 0 || firstSuffix.get(sa[row])) {
+                marks[row >>> 6] |= 1L << row;
+                sampleCount++;
+            }
+        }
+        samples = new int[sampleCount];
+        int sample = 0;
+        for (int row = 0; row < n; row++) {
+            int position = sa[row];
+            if ((marks[row >>> 6] & (1L << row)) != 0) {
+                samples[sample++] = position;
+            }
+            int previous = position == 0 ? END : s[position - 1];
+            // s is not needed any more, its slot keeps the code of the row
+            sa[row] = previous == END ? END : previous < base ? SEPARATOR : previous - base + 2;
+            counts[sa[row] + 1]++;
+        }
+        for (int c = 1; c < counts.length; c++) {
+            counts[c] += counts[c - 1];
+        }
+        sampled = new RankBitVector(marks);
+        bwt = new WaveletMatrix(sa, sigma + 2);
+        built = true;
+    }
+
+    private void ensureBuilt() {
+        if (!built) {
+            build();
+        }
+    }
+
+    /**
+     * @return how many times the word is in the keys, with the backward search only (no occurrence is located)
+     */
+    public int occurrences(String word) {
+        ensureBuilt();
+        int[] range = range(word);
+        return range == null ? 0 : range[1] - range[0];
+    }
+
+    @Override
+    public Collection<Integer> search(String word) {
+        return search(word, -1);
+    }
+
+    @Override
+    public Collection<Integer> search(String word, int results) {
+        ensureBuilt();
+        int[] range = range(word);
+        if (range == null) {
+            return Collections.<Integer>emptyList();
+        }
+        Set<Integer> ret = new HashSet<Integer>();
+        for (int row = range[0]; row < range[1] && ret.size() != results; row++) {
+            ret.add(indexes[documentOf(locate(row))]);
+        }
+        return ret;
+    }
+
+    @Override
+    public GeneralizedSuffixTreeImp.ResultInfo searchWithCount(String word, int count) {
+        ensureBuilt();
+        int[] range = range(word);
+        if (range == null) {
+            return new GeneralizedSuffixTreeImp.ResultInfo(Collections.<Integer>emptyList(), 0);
+        }
+        Set<Integer> all = new HashSet<Integer>();
+        List<Integer> results = new ArrayList<Integer>();
+        for (int row = range[0]; row < range[1]; row++) {
+            int index = indexes[documentOf(locate(row))];
+            if (all.add(index) && results.size() != count) {
+                results.add(index);
+            }
+        }
+        return new GeneralizedSuffixTreeImp.ResultInfo(results, all.size());
+    }
+
+    /**
+     * @return about how many bytes the built index keeps on the heap
+     */
+    public long estimatedBytes() {
+        ensureBuilt();
+        return bwt.estimatedBytes() + sampled.estimatedBytes() + 16 + 4L * samples.length
+                + 16 + 4L * starts.length + 16 + 4L * indexes.length + 16 + 2L * alphabet.length + 16 + 4L * counts.length;
+    }
+
+    /**
+     * the backward search: the rows of the suffixes that start with the word, from the last char of the word to the first
+     * @return {first row, end row} or null when the word is not in the keys
+     */
+    private int[] range(String word) {
+        if (word.isEmpty()) {
+            return null;
+        }
+        int from = 0;
+        int to = counts[counts.length - 1];
+        for (int i = word.length() - 1; i >= 0 && from < to; i--) {
+            int c = Arrays.binarySearch(alphabet, word.charAt(i));
+            if (c < 0) {
+                return null;
+            }
+            c += 2;
+            from = counts[c] + bwt.rank(c, from);
+            to = counts[c] + bwt.rank(c, to);
+        }
+        return from < to ? new int[]{from, to} : null;
+    }
+
+    /**
+     * @return the position in the concatenated text of the suffix of the row, walking back to a sampled suffix.
+     * the first suffix of every key is sampled, so the walk never goes over a separator
+     */
+    private int locate(int row) {
+        int steps = 0;
+        while (!sampled.get(row)) {
+            int c = bwt.access(row);
+            row = counts[c] + bwt.rank(c, row);
+            steps++;
+        }
+        return samples[sampled.rank1(row)] + steps;
+    }
+
+    /**
+     * @return the key that contains the given position of the concatenated text
+     */
+    private int documentOf(int position) {
+        int low = 0;
+        int high = starts.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * reads every key back out of the transform. the suffixes that start with the separators are sorted by key,
+     * right after the end of the text, so the row 1 + d ends key d and the key is read backward from there
+     */
+    private TextBuffer recover() {
+        TextBuffer ret = new TextBuffer();
+        StringBuilder key = new StringBuilder();
+        for (int d = 0; d < indexes.length; d++) {
+            key.setLength(0);
+            int row = 1 + d;
+            int c;
+            while ((c = bwt.access(row)) > SEPARATOR) {
+                key.append(alphabet[c - 2]);
+                row = counts[c] + bwt.rank(c, row);
+            }
+            ret.append(key.reverse(), indexes[d]);
+        }
+        return ret;
+    }
+}
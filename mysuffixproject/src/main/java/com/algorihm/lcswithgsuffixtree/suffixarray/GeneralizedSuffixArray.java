@@ -0,0 +1,494 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixarray;
+
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.GeneralizedSuffixTreeImp;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.WritableSuffixIndex;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.TextBuffer;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A generalized suffix array with its LCP array, the read mostly alternative to {@link GeneralizedSuffixTreeImp}.
+ *
+ * the keys are concatenated as key0 $0 key1 $1 ... keyN $N # where every $d is a separator that appears only once,
+ * so no suffix can match across two keys. the suffix array is built in linear time with SA-IS
+ * (Nong, Zhang and Chan, "Two Efficient Algorithms for Linear Time Suffix Array Construction")
+ * and the LCP array with the algorithm of Kasai et al.
+ * after the build only the text, the suffix array and the LCP array are kept, about 10 bytes per char.
+ *
+ * search is a binary search over the array, O(m log n), and the longest common substring comes from one scan of the LCP array.
+ * the array is built again on the first query after a put.
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class GeneralizedSuffixArray implements WritableSuffixIndex {
+
+    /**
+     * The index of the last item that was added
+     */
+    private int last = 0;
+
+    private final TextBuffer text = new TextBuffer();
+
+    /**
+     * start of every key in the concatenated text, where key d is shifted by the d separators before it
+     */
+    private int[] starts;
+    /**
+     * for every key, the dense number of its index value, keys with the same index share it
+     */
+    private int[] colors;
+    private int colorCount;
+
+    private int[] suffixArray;
+    /**
+     * lcp[i] is the longest common prefix of the suffixes suffixArray[i - 1] and suffixArray[i], lcp[0] is 0
+     */
+    private int[] lcp;
+
+    private boolean built = false;
+
+    @Override
+    public void put(String key, int index) throws IllegalStateException {
+        if (index < last) {
+            throw new IllegalStateException("You should give the correct indexing to program .\n" + index + "should be more than " + last);
+        } else {
+            last = index;
+        }
+        text.append(key, index);
+        built = false;
+    }
+
+    /**
+     * builds the suffix array and the LCP array of all the keys put so far
+     */
+    public void build() {
+        int docs = text.documentCount();
+        int n = text.length() + docs + 1;
+        // 0 is the final sentinel, 1..docs are the separators and the chars come after them
+        int base = docs + 1;
+        int[] s = new int[n];
+        starts = new int[docs + 1];
+        colors = new int[docs];
+        Map<Integer, Integer> colorOf = new HashMap<Integer, Integer>();
+        int p = 0;
+        for (int d = 0; d < docs; d++) {
+            starts[d] = p;
+            for (int i = text.documentStart(d); i < text.documentEnd(d); i++) {
+                s[p++] = text.charAt(i) + base;
+            }
+            s[p++] = d + 1;
+            Integer color = colorOf.get(text.documentIndex(d));
+            if (color == null) {
+                color = colorOf.size();
+                colorOf.put(text.documentIndex(d), color);
+            }
+            colors[d] = color;
+        }
+        starts[docs] = p;
+        s[p] = 0;
+        colorCount = colorOf.size();
+
+        suffixArray = new int[n];
+        sais(s, suffixArray, n, base + Character.MAX_VALUE + 1);
+        lcp = kasai(s, suffixArray, n);
+        built = true;
+    }
+
+    /**
+     * @return about how many bytes the built index keeps on the heap: the text, the two arrays and the documents
+     */
+    public long estimatedBytes() {
+        ensureBuilt();
+        return text.estimatedBytes() + 16 + 4L * suffixArray.length + 16 + 4L * lcp.length
+                + 16 + 4L * starts.length + 16 + 4L * colors.length;
+    }
+
+    private void ensureBuilt() {
+        if (!built) {
+            build();
+        }
+    }
+
+    @Override
+    public Collection<Integer> search(String word) {
+        return search(word, -1);
+    }
+
+    @Override
+    public Collection<Integer> search(String word, int results) {
+        ensureBuilt();
+        if (word.isEmpty()) {
+            return Collections.<Integer>emptyList();
+        }
+        int from = lowerBound(word);
+        int to = upperBound(word, from);
+        if (from >= to) {
+            return Collections.<Integer>emptyList();
+        }
+        Set<Integer> ret = new HashSet<Integer>();
+        for (int i = from; i < to && ret.size() != results; i++) {
+            ret.add(text.documentIndex(documentOf(suffixArray[i])));
+        }
+        return ret;
+    }
+
+    @Override
+    public GeneralizedSuffixTreeImp.ResultInfo searchWithCount(String word, int count) {
+        ensureBuilt();
+        if (word.isEmpty()) {
+            return new GeneralizedSuffixTreeImp.ResultInfo(Collections.<Integer>emptyList(), 0);
+        }
+        int from = lowerBound(word);
+        int to = upperBound(word, from);
+        if (from >= to) {
+            return new GeneralizedSuffixTreeImp.ResultInfo(Collections.<Integer>emptyList(), 0);
+        }
+        BitSet seen = new BitSet(colorCount);
+        for (int i = from; i < to; i++) {
+            seen.set(colors[documentOf(suffixArray[i])]);
+        }
+        return new GeneralizedSuffixTreeImp.ResultInfo(search(word, count), seen.cardinality());
+    }
+
+    /**
+     * @return the longest substring that is common to all the indexes
+     */
+    public String longestCommonSubstring() {
+        ensureBuilt();
+        return longestCommonSubstring(colorCount);
+    }
+
+    /**
+     * @return the longest substring that is common to at least <tt>k</tt> different indexes
+     */
+    public String longestCommonSubstring(int k) {
+        ensureBuilt();
+        if (k < 1 || k > colorCount) {
+            return "";
+        }
+        int best = 0;
+        int bestAt = -1;
+        if (k == 1) {
+            // a single index, its longest key is the answer
+            for (int d = 0; d < colors.length; d++) {
+                if (starts[d + 1] - 1 - starts[d] > best) {
+                    best = starts[d + 1] - 1 - starts[d];
+                    bestAt = starts[d];
+                }
+            }
+        } else {
+            // sliding window over the suffix array that covers k colors with as few suffixes as possible,
+            // the minimum of lcp over the window is kept in a monotonic deque of ranks
+            int[] inWindow = new int[colorCount];
+            int[] deque = new int[suffixArray.length];
+            int head = 0;
+            int tail = 0;
+            int distinct = 0;
+            int left = 0;
+            for (int right = 0; right < suffixArray.length; right++) {
+                int color = colorAt(right);
+                if (color < 0) {
+                    // sentinel or separator suffix, no window can go over it
+                    for (; left < right; left++) {
+                        if (--inWindow[colorAt(left)] == 0) {
+                            distinct--;
+                        }
+                    }
+                    left = right + 1;
+                    head = tail = 0;
+                    continue;
+                }
+                if (inWindow[color]++ == 0) {
+                    distinct++;
+                }
+                if (right > left) {
+                    while (tail > head && lcp[deque[tail - 1]] >= lcp[right]) {
+                        tail--;
+                    }
+                    deque[tail++] = right;
+                }
+                if (distinct >= k) {
+                    // drop the suffixes on the left as long as the window keeps k colors
+                    while (distinct - (inWindow[colorAt(left)] == 1 ? 1 : 0) >= k) {
+                        if (--inWindow[colorAt(left)] == 0) {
+                            distinct--;
+                        }
+                        left++;
+                        while (tail > head && deque[head] <= left) {
+                            head++;
+                        }
+                    }
+                    if (lcp[deque[head]] > best) {
+                        best = lcp[deque[head]];
+                        bestAt = suffixArray[right];
+                    }
+                }
+            }
+        }
+        if (bestAt < 0) {
+            return "";
+        }
+        int d = documentOf(bestAt);
+        int offset = text.documentStart(d) + bestAt - starts[d];
+        return text.substring(offset, offset + best);
+    }
+
+    private int colorAt(int rank) {
+        int position = suffixArray[rank];
+        int d = documentOf(position);
+        if (d >= colors.length || position == starts[d + 1] - 1) {
+            return -1;
+        }
+        return colors[d];
+    }
+
+    /**
+     * @return the key that contains the given position of the concatenated text (the final sentinel is key count)
+     */
+    private int documentOf(int position) {
+        int low = 0;
+        int high = starts.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * compares the suffix at <tt>position</tt> with <tt>word</tt>, looking at no more than the length of the word
+     * @return negative if the suffix is smaller, 0 if the word is a prefix of the suffix, positive otherwise
+     */
+    private int compare(int position, String word) {
+        int d = documentOf(position);
+        if (d == colors.length) {
+            return -1;
+        }
+        int end = starts[d + 1] - 1;
+        int offset = text.documentStart(d) - starts[d];
+        for (int i = 0; i < word.length(); i++) {
+            if (position + i >= end) {
+                // the separator is smaller than any char
+                return -1;
+            }
+            char c = text.charAt(position + i + offset);
+            if (c != word.charAt(i)) {
+                return c < word.charAt(i) ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the first rank whose suffix is not smaller than the word
+     */
+    private int lowerBound(String word) {
+        int low = 0;
+        int high = suffixArray.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(suffixArray[mid], word) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the first rank after <tt>from</tt> whose suffix does not start with the word
+     */
+    private int upperBound(String word, int from) {
+        int low = from;
+        int high = suffixArray.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(suffixArray[mid], word) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * SA-IS, <tt>s</tt> must end with a unique 0 and every value must be smaller than <tt>k</tt>
+     */
+    static void sais(int[] s, int[] sa, int n, int k) {
+        if (n == 1) {
+            // only the sentinel, which is not an LMS position and would never be placed
+            sa[0] = 0;
+            return;
+        }
+        // true for S-type positions
+        boolean[] t = new boolean[n];
+        t[n - 1] = true;
+        for (int i = n - 2; i >= 0; i--) {
+            t[i] = s[i] < s[i + 1] || (s[i] == s[i + 1] && t[i + 1]);
+        }
+
+        // step 1: sort the LMS substrings
+        int[] bucket = new int[k];
+        buckets(s, n, bucket, k, true);
+        Arrays.fill(sa, 0, n, -1);
+        for (int i = 1; i < n; i++) {
+            if (isLms(t, i)) {
+                sa[--bucket[s[i]]] = i;
+            }
+        }
+        induceL(t, sa, s, bucket, n, k);
+        induceS(t, sa, s, bucket, n, k);
+
+        // move the sorted LMS substrings at the beginning and name them
+        int n1 = 0;
+        for (int i = 0; i < n; i++) {
+            if (isLms(t, sa[i])) {
+                sa[n1++] = sa[i];
+            }
+        }
+        Arrays.fill(sa, n1, n, -1);
+        int name = 0;
+        int previous = -1;
+        for (int i = 0; i < n1; i++) {
+            int position = sa[i];
+            boolean different = false;
+            for (int d = 0; d < n; d++) {
+                if (previous == -1 || s[position + d] != s[previous + d] || t[position + d] != t[previous + d]) {
+                    different = true;
+                    break;
+                } else if (d > 0 && (isLms(t, position + d) || isLms(t, previous + d))) {
+                    break;
+                }
+            }
+            if (different) {
+                name++;
+                previous = position;
+            }
+            sa[n1 + position / 2] = name - 1;
+        }
+        for (int i = n - 1, j = n - 1; i >= n1; i--) {
+            if (sa[i] >= 0) {
+                sa[j--] = sa[i];
+            }
+        }
+
+        // step 2: sort the reduced string, recursively if the names are not unique yet
+        int[] s1 = Arrays.copyOfRange(sa, n - n1, n);
+        int[] sa1 = new int[n1];
+        if (name < n1) {
+            sais(s1, sa1, n1, name);
+        } else {
+            for (int i = 0; i < n1; i++) {
+                sa1[s1[i]] = i;
+            }
+        }
+
+        // step 3: induce the whole suffix array from the sorted LMS suffixes
+        buckets(s, n, bucket, k, true);
+        for (int i = 1, j = 0; i < n; i++) {
+            if (isLms(t, i)) {
+                s1[j++] = i;
+            }
+        }
+        for (int i = 0; i < n1; i++) {
+            sa1[i] = s1[sa1[i]];
+        }
+        Arrays.fill(sa, 0, n, -1);
+        for (int i = n1 - 1; i >= 0; i--) {
+            int j = sa1[i];
+            sa[--bucket[s[j]]] = j;
+        }
+        induceL(t, sa, s, bucket, n, k);
+        induceS(t, sa, s, bucket, n, k);
+    }
+
+    private static boolean isLms(boolean[] t, int i) {
+        return i > 0 && t[i] && !t[i - 1];
+    }
+
+    private static void buckets(int[] s, int n, int[] bucket, int k, boolean end) {
+        Arrays.fill(bucket, 0, k, 0);
+        for (int i = 0; i < n; i++) {
+            bucket[s[i]]++;
+        }
+        int sum = 0;
+        for (int i = 0; i < k; i++) {
+            sum += bucket[i];
+            bucket[i] = end ? sum : sum - bucket[i];
+        }
+    }
+
+    private static void induceL(boolean[] t, int[] sa, int[] s, int[] bucket, int n, int k) {
+        buckets(s, n, bucket, k, false);
+        for (int i = 0; i < n; i++) {
+            int j = sa[i] - 1;
+            if (j >= 0 && !t[j]) {
+                sa[bucket[s[j]]++] = j;
+            }
+        }
+    }
+
+    private static void induceS(boolean[] t, int[] sa, int[] s, int[] bucket, int n, int k) {
+        buckets(s, n, bucket, k, true);
+        for (int i = n - 1; i >= 0; i--) {
+            int j = sa[i] - 1;
+            if (j >= 0 && t[j]) {
+                sa[--bucket[s[j]]] = j;
+            }
+        }
+    }
+
+    /**
+     * Kasai's linear LCP construction
+     */
+    static int[] kasai(int[] s, int[] sa, int n) {
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            rank[sa[i]] = i;
+        }
+        int[] lcp = new int[n];
+        int h = 0;
+        for (int i = 0; i < n; i++) {
+            if (rank[i] > 0) {
+                int j = sa[rank[i] - 1];
+                while (i + h < n && j + h < n && s[i + h] == s[j + h]) {
+                    h++;
+                }
+                lcp[rank[i]] = h;
+                if (h > 0) {
+                    h--;
+                }
+            } else {
+                h = 0;
+            }
+        }
+        return lcp;
+    }
+}
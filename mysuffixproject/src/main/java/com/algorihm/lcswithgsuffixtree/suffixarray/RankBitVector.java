@@ -0,0 +1,75 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixarray;
+
+/**
+ * A fixed bit vector that counts the ones before any position in constant time:
+ * the count before every block of 8 words is kept, the rest is at most 8 popcounts. the counts cost 1/16 of the bits
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+final class RankBitVector {
+
+    private final long[] words;
+    /**
+     * blocks[b] is the number of ones before word 8 * b
+     */
+    private final int[] blocks;
+
+    RankBitVector(long[] words) {
+        this.words = words;
+        blocks = new int[(words.length >>> 3) + 1];
+        int ones = 0;
+        for (int w = 0; w < words.length; w++) {
+            if ((w & 7) == 0) {
+                blocks[w >>> 3] = ones;
+            }
+            ones += Long.bitCount(words[w]);
+        }
+        if ((words.length & 7) == 0) {
+            blocks[words.length >>> 3] = ones;
+        }
+    }
+
+    boolean get(int i) {
+        return (words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * @return the number of ones in [0, i)
+     */
+    int rank1(int i) {
+        int word = i >>> 6;
+        int ret = blocks[word >>> 3];
+        for (int w = word & ~7; w < word; w++) {
+            ret += Long.bitCount(words[w]);
+        }
+        if ((i & 63) != 0) {
+            ret += Long.bitCount(words[word] & ((1L << i) - 1));
+        }
+        return ret;
+    }
+
+    /**
+     * @return the number of zeros in [0, i)
+     */
+    int rank0(int i) {
+        return i - rank1(i);
+    }
+
+    long estimatedBytes() {
+        return 16 + 16 + 8L * words.length + 16 + 4L * blocks.length;
+    }
+}
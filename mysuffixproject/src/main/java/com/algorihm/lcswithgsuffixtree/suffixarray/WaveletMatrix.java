@@ -0,0 +1,113 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixarray;
+
+/**
+ * A wavelet matrix over a sequence of small ints (Claude, Navarro and Ordonez, "The wavelet matrix"):
+ * one bit vector per bit of the values, from the highest bit, where every level keeps the values with a 0 bit
+ * before the ones with a 1 bit. it takes about (bits per value) * 17/16 bits per value, and reading a value or counting
+ * a value before a position walks the levels once, with two ranks per level
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+final class WaveletMatrix {
+
+    private final RankBitVector[] levels;
+    /**
+     * the number of zeros of every level, where the ones start on the next level
+     */
+    private final int[] zeros;
+
+    /**
+     * @param values every value must be in [0, sigma), the array is reordered while the levels are built
+     */
+    WaveletMatrix(int[] values, int sigma) {
+        int n = values.length;
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(sigma - 1));
+        levels = new RankBitVector[bits];
+        zeros = new int[bits];
+        int[] current = values;
+        int[] next = new int[n];
+        for (int l = 0; l < bits; l++) {
+            int shift = bits - 1 - l;
+            long[] words = new long[(n + 63) >>> 6];
+            int z = 0;
+            for (int i = 0; i < n; i++) {
+                if ((current[i] >>> shift & 1) == 0) {
+                    z++;
+                } else {
+                    words[i >>> 6] |= 1L << i;
+                }
+            }
+            levels[l] = new RankBitVector(words);
+            zeros[l] = z;
+            // stable partition, the zeros first
+            int zi = 0;
+            int oi = z;
+            for (int i = 0; i < n; i++) {
+                if ((current[i] >>> shift & 1) == 0) {
+                    next[zi++] = current[i];
+                } else {
+                    next[oi++] = current[i];
+                }
+            }
+            int[] swap = current;
+            current = next;
+            next = swap;
+        }
+    }
+
+    /**
+     * @return the value at position i
+     */
+    int access(int i) {
+        int ret = 0;
+        for (int l = 0; l < levels.length; l++) {
+            if (levels[l].get(i)) {
+                ret = ret << 1 | 1;
+                i = zeros[l] + levels[l].rank1(i);
+            } else {
+                ret <<= 1;
+                i = levels[l].rank0(i);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return how many times <tt>c</tt> is in [0, i)
+     */
+    int rank(int c, int i) {
+        int start = 0;
+        for (int l = 0; l < levels.length; l++) {
+            if ((c >>> (levels.length - 1 - l) & 1) == 0) {
+                start = levels[l].rank0(start);
+                i = levels[l].rank0(i);
+            } else {
+                start = zeros[l] + levels[l].rank1(start);
+                i = zeros[l] + levels[l].rank1(i);
+            }
+        }
+        return i - start;
+    }
+
+    long estimatedBytes() {
+        long ret = 16 + 16 + 4L * zeros.length + 16 + 4L * levels.length;
+        for (RankBitVector level : levels) {
+            ret += level.estimatedBytes();
+        }
+        return ret;
+    }
+}
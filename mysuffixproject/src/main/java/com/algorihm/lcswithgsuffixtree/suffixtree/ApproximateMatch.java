@@ -0,0 +1,67 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+/**
+ * A place where a word is found with at most k differences, see {@link GeneralizedSuffixTreeImp#searchApproximate}.
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class ApproximateMatch {
+
+    /**
+     * how two strings are compared
+     */
+    public enum Distance {
+        /**
+         * the number of different chars, the matched string has the length of the word
+         */
+        HAMMING,
+        /**
+         * the number of chars to insert, delete or replace (levenshtein), the matched string can be up to k chars
+         * longer or shorter than the word
+         */
+        EDIT
+    }
+
+    /**
+     * the index the key was put with
+     */
+    public final int index;
+    /**
+     * the position of the matched string in the key
+     */
+    public final int offset;
+    /**
+     * the length of the matched string
+     */
+    public final int length;
+    /**
+     * the differences between the word and the matched string
+     */
+    public final int distance;
+
+    public ApproximateMatch(int index, int offset, int length, int distance) {
+        this.index = index;
+        this.offset = offset;
+        this.length = length;
+        this.distance = distance;
+    }
+
+    @Override
+    public String toString() {
+        return index + ":" + offset + "+" + length + "~" + distance;
+    }
+}
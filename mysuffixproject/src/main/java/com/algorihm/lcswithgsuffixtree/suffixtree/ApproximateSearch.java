@@ -0,0 +1,173 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The walk of {@link GeneralizedSuffixTreeImp#searchApproximate}: every path of the tree is read from the root
+ * one char at a time with the differences to the word so far, and a path is left as soon as it can not match anymore.
+ * all the keys that share a prefix share its walk, so the word is compared once with every distinct string of the tree
+ * that is still close enough, instead of searching every variant of the word.
+ *
+ * HAMMING : the number of mismatches so far, a path stops when it is over k
+ * EDIT    : a column of the dynamic programming table between the word and the path (the start of the path is the
+ *           start of the match). only the cells at most k from the diagonal can be <= k, so only those are computed,
+ *           and a path stops when all of them are over k.
+ * when the path is close enough to the whole word, every occurrence of the path (the subtree below it) is a match.
+ * with EDIT the same start can match with several lengths, only the smallest distance (then the shortest length) is kept.
+ * a walker is used by one thread, the pool gives every first level edge of the root its own walker.
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+class ApproximateSearch {
+
+    private final TextBuffer text;
+    private final String word;
+    private final int k;
+    private final ApproximateMatch.Distance distance;
+    /**
+     * column[d] is the edit distance between word[0, i) and the path of length d, for the i near d.
+     * k + 1 stands for anything bigger than k
+     */
+    private final int[][] column;
+    /**
+     * the best match of every (index, offset), the key is the two of them in a long
+     */
+    private final Map<Long, ApproximateMatch> matches = new HashMap<Long, ApproximateMatch>();
+
+    ApproximateSearch(TextBuffer text, String word, int k, ApproximateMatch.Distance distance) {
+        this.text = text;
+        this.word = word;
+        this.k = k;
+        this.distance = distance;
+        if (distance == ApproximateMatch.Distance.EDIT) {
+            column = new int[word.length() + k + 1][word.length() + 1];
+            for (int i = 0; i <= word.length(); i++) {
+                column[0][i] = Math.min(i, k + 1);
+            }
+        } else {
+            column = null;
+        }
+    }
+
+    /**
+     * walks the subtree of an edge of the root
+     */
+    void walk(Edge edge) {
+        if (distance == ApproximateMatch.Distance.HAMMING) {
+            hamming(edge, 0, 0);
+        } else {
+            edit(edge, 0);
+        }
+    }
+
+    Map<Long, ApproximateMatch> getMatches() {
+        return matches;
+    }
+
+    private void hamming(Edge edge, int depth, int mismatches) {
+        int m = word.length();
+        int start = edge.getStart();
+        int len = Math.min(edge.length(), m - depth);
+        for (int j = 0; j < len; j++) {
+            if (text.charAt(start + j) != word.charAt(depth + j) && ++mismatches > k) {
+                return;
+            }
+        }
+        depth += len;
+        if (depth == m) {
+            report(edge, m, mismatches);
+            return;
+        }
+        for (Edge child : edge.getDest().getEdges().values()) {
+            hamming(child, depth, mismatches);
+        }
+    }
+
+    private void edit(Edge edge, int depth) {
+        int m = word.length();
+        int start = edge.getStart();
+        int len = Math.min(edge.length(), m + k - depth);
+        for (int j = 0; j < len; j++) {
+            int d = depth + j + 1;
+            if (!step(d, text.charAt(start + j))) {
+                return;
+            }
+            // the last cell is in the band only when the path is at least m - k long
+            if (d >= m - k && column[d][m] <= k) {
+                report(edge, d, column[d][m]);
+            }
+        }
+        depth += len;
+        if (depth == m + k) {
+            return;
+        }
+        for (Edge child : edge.getDest().getEdges().values()) {
+            edit(child, depth);
+        }
+    }
+
+    /**
+     * computes column[d] from column[d - 1] with the char c at position d - 1 of the path
+     * @return false when every cell is over k, so no longer path can match
+     */
+    private boolean step(int d, char c) {
+        int m = word.length();
+        int inf = k + 1;
+        int[] previous = column[d - 1];
+        int[] current = column[d];
+        int lo = Math.max(0, d - k);
+        int hi = Math.min(m, d + k);
+        // the cells just outside the band are read by the next column
+        if (lo > 0) {
+            current[lo - 1] = inf;
+        }
+        if (hi < m) {
+            current[hi + 1] = inf;
+        }
+        boolean alive = false;
+        for (int i = lo; i <= hi; i++) {
+            int best;
+            if (i == 0) {
+                best = d;
+            } else {
+                best = previous[i - 1] + (word.charAt(i - 1) == c ? 0 : 1);
+                best = Math.min(best, previous[i] + 1);
+                best = Math.min(best, current[i - 1] + 1);
+            }
+            current[i] = Math.min(best, inf);
+            alive |= current[i] <= k;
+        }
+        return alive;
+    }
+
+    /**
+     * every occurrence of the first <tt>length</tt> chars of the path to the end of the edge
+     */
+    private void report(Edge edge, int length, int dist) {
+        Iterator<SearchCursor.Occurrence> it = new SearchCursor(text, edge.getDest(), edge.getEnd()).occurrences();
+        while (it.hasNext()) {
+            SearchCursor.Occurrence o = it.next();
+            Long key = ((long) o.index << 32) | (o.offset & 0xffffffffL);
+            ApproximateMatch best = matches.get(key);
+            if (best == null || dist < best.distance || (dist == best.distance && length < best.length)) {
+                matches.put(key, new ApproximateMatch(o.index, o.offset, length, dist));
+            }
+        }
+    }
+}
@@ -0,0 +1,455 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A read only copy of a {@link GeneralizedSuffixTreeImp} where the nodes and edges are not objects anymore
+ * but rows of some parallel int columns, so the garbage collector only sees a few big buffers.
+ *
+ * nodes are numbered in depth first order (the root is 0), so the subtree of node n is the range [n, subtreeEnd(n))
+ * and every node keeps the label of the edge that enters it. the columns are:
+ * labelStart, labelEnd : offsets of the incoming edge label in the text
+ * subtreeEnd           : the first node after the subtree, the first child of n is n + 1 and the next sibling of c is subtreeEnd(c)
+ * dataStart            : the indexes of node n are data[dataStart(n), dataStart(n + 1)), so a whole subtree is one range too
+ * suffix               : the suffix link or -1
+ * count                : the number of distinct indexes in the subtree, as computed by computeCount
+ * childStart, children : the children of node n are children[childStart(n), childStart(n + 1)), sorted by their first
+ *                        char, so the child of a char is found with a binary search
+ *
+ * the columns can live on the java heap or in direct (off heap) memory, or be memory mapped from a snapshot file
+ * (see {@link #save(Path)} and {@link #load(Path)}).
+ *
+ * the snapshot file is little endian: a header of {@link #HEADER_INTS} ints (magic, version, node count, data length,
+ * text length, 0, 0, 0) and then the columns one after the other in the order labelStart, labelEnd, subtreeEnd,
+ * dataStart, suffix, count, childStart, children, data, and the text as 2 byte chars.
+ *
+ * a column is one buffer, so it holds at most Integer.MAX_VALUE bytes off the heap (a quarter as many ints):
+ * a bigger tree can not be copied off the heap and is rejected.
+ *
+ * the snapshot only keeps what the searches need: the document boundaries of the {@link TextBuffer} (where each key
+ * starts, its index, the removed ones) are not saved, so a loaded tree can tell which indexes contain a word but not
+ * at which offset of which key. it is read only like every compact tree (it is not a {@link WritableSuffixIndex}), to add keys
+ * they have to be put again in a {@link GeneralizedSuffixTreeImp} and a new snapshot saved.
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class CompactSuffixTree implements SuffixIndex {
+
+    private static final int ROOT = 0;
+
+    /**
+     * "GSTS" at the start of every snapshot file
+     */
+    private static final int MAGIC = 0x47535453;
+    /**
+     * the version of the snapshot format, to change whenever the layout of the file changes
+     */
+    private static final int VERSION = 2;
+    private static final int HEADER_INTS = 8;
+    /**
+     * the size of the window the columns are written through
+     */
+    private static final int WINDOW_BYTES = 1 << 16;
+
+    private final int nodeCount;
+    private final IntBuffer labelStart;
+    private final IntBuffer labelEnd;
+    private final IntBuffer subtreeEnd;
+    private final IntBuffer dataStart;
+    private final IntBuffer suffix;
+    private final IntBuffer count;
+    private final IntBuffer childStart;
+    private final IntBuffer children;
+    private final IntBuffer data;
+    private final CharBuffer text;
+
+    CompactSuffixTree(int nodeCount, IntBuffer labelStart, IntBuffer labelEnd, IntBuffer subtreeEnd, IntBuffer dataStart,
+                      IntBuffer suffix, IntBuffer count, IntBuffer childStart, IntBuffer children, IntBuffer data, CharBuffer text) {
+        this.nodeCount = nodeCount;
+        this.labelStart = labelStart;
+        this.labelEnd = labelEnd;
+        this.subtreeEnd = subtreeEnd;
+        this.dataStart = dataStart;
+        this.suffix = suffix;
+        this.count = count;
+        this.childStart = childStart;
+        this.children = children;
+        this.data = data;
+        this.text = text;
+    }
+
+    /**
+     * copies the given tree in the compact layout.
+     * @param offHeap true to keep the columns in direct memory, outside of the java heap
+     * @throws IllegalArgumentException when a column of the tree does not fit in one buffer
+     */
+    public static CompactSuffixTree from(GeneralizedSuffixTreeImp tree, boolean offHeap) {
+        tree.computeCount();
+
+        // first pass: number the nodes in depth first order, children sorted by their first char
+        int nodes = 0;
+        long indexes = 0;
+        Deque<Node> stack = new ArrayDeque<Node>();
+        stack.push(tree.getRoot());
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            node.order = nodes++;
+            indexes += node.getIndexCount();
+            pushChildren(stack, node);
+        }
+
+        TextBuffer source = tree.getText();
+        IntBuffer labelStart = allocate(nodes, offHeap);
+        IntBuffer labelEnd = allocate(nodes, offHeap);
+        IntBuffer subtreeEnd = allocate(nodes, offHeap);
+        IntBuffer dataStart = allocate(nodes + 1L, offHeap);
+        IntBuffer suffix = allocate(nodes, offHeap);
+        IntBuffer count = allocate(nodes, offHeap);
+        IntBuffer childStart = allocate(nodes + 1L, offHeap);
+        IntBuffer children = allocate(nodes - 1L, offHeap);
+        IntBuffer data = allocate(indexes, offHeap);
+        CharBuffer text = offHeap
+                ? ByteBuffer.allocateDirect(checkedBytes(2L * source.length(), "text")).order(ByteOrder.nativeOrder()).asCharBuffer()
+                : CharBuffer.allocate(source.length());
+        source.writeTo(text);
+
+        // second pass: same order, fill the columns. the parents are kept to compute the subtree sizes afterwards
+        int[] parent = new int[nodes];
+        int position = 0;
+        labelStart.put(ROOT, 0);
+        labelEnd.put(ROOT, 0);
+        stack.push(tree.getRoot());
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            int id = node.order;
+            subtreeEnd.put(id, 1);
+            suffix.put(id, node.getSuffix() == null ? -1 : node.getSuffix().order);
+            count.put(id, node.getResultCount());
+            dataStart.put(id, position);
+            for (int i = 0; i < node.getIndexCount(); i++) {
+                data.put(position++, node.getIndex(i));
+            }
+            for (Edge e : node.getEdges().values()) {
+                labelStart.put(e.getDest().order, e.getStart());
+                labelEnd.put(e.getDest().order, e.getEnd());
+                parent[e.getDest().order] = id;
+            }
+            pushChildren(stack, node);
+        }
+        dataStart.put(nodes, position);
+
+        // subtree sizes, children always come after their parent in depth first order
+        for (int id = nodes - 1; id > ROOT; id--) {
+            subtreeEnd.put(parent[id], subtreeEnd.get(parent[id]) + subtreeEnd.get(id));
+        }
+        for (int id = 0; id < nodes; id++) {
+            subtreeEnd.put(id, id + subtreeEnd.get(id));
+        }
+
+        // the children of every node in a row, already in the order of their first char
+        int listed = 0;
+        for (int id = 0; id < nodes; id++) {
+            childStart.put(id, listed);
+            for (int child = id + 1; child < subtreeEnd.get(id); child = subtreeEnd.get(child)) {
+                children.put(listed++, child);
+            }
+        }
+        childStart.put(nodes, listed);
+
+        return new CompactSuffixTree(nodes, labelStart, labelEnd, subtreeEnd, dataStart, suffix, count, childStart, children, data, text);
+    }
+
+    /**
+     * writes the tree to a snapshot file that {@link #load(Path)} can map back.
+     * the snapshot is written next to the file and then moved over it, so a tree that is still mapped from the old file
+     * (even this one) keeps working and a crash never leaves half a snapshot behind
+     */
+    public void save(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        write(temporary);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void write(Path file) throws IOException {
+        int dataLength = dataStart.get(nodeCount);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer window = ByteBuffer.allocate(WINDOW_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            window.putInt(MAGIC).putInt(VERSION).putInt(nodeCount).putInt(dataLength).putInt(text.limit())
+                    .putInt(0).putInt(0).putInt(0);
+            window.flip();
+            writeFully(channel, window);
+
+            writeColumn(channel, window, labelStart, nodeCount);
+            writeColumn(channel, window, labelEnd, nodeCount);
+            writeColumn(channel, window, subtreeEnd, nodeCount);
+            writeColumn(channel, window, dataStart, nodeCount + 1);
+            writeColumn(channel, window, suffix, nodeCount);
+            writeColumn(channel, window, count, nodeCount);
+            writeColumn(channel, window, childStart, nodeCount + 1);
+            writeColumn(channel, window, children, nodeCount - 1);
+            writeColumn(channel, window, data, dataLength);
+            for (int i = 0; i < text.limit(); ) {
+                window.clear();
+                int n = Math.min(text.limit() - i, WINDOW_BYTES / 2);
+                for (int j = 0; j < n; j++) {
+                    window.putChar(text.get(i + j));
+                }
+                i += n;
+                window.flip();
+                writeFully(channel, window);
+            }
+        }
+    }
+
+    private static void writeColumn(FileChannel channel, ByteBuffer window, IntBuffer column, int size) throws IOException {
+        for (int i = 0; i < size; ) {
+            window.clear();
+            int n = Math.min(size - i, WINDOW_BYTES / 4);
+            for (int j = 0; j < n; j++) {
+                window.putInt(column.get(i + j));
+            }
+            i += n;
+            window.flip();
+            writeFully(channel, window);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer window) throws IOException {
+        while (window.hasRemaining()) {
+            channel.write(window);
+        }
+    }
+
+    /**
+     * maps a file written by {@link #save(Path)}. nothing is copied on the heap: every column is a read only view of the
+     * mapped file, so the tree can answer queries right away and the pages are loaded by the OS when they are touched.
+     * the mapping stays valid after the method returns, even though the channel is closed
+     */
+    public static CompactSuffixTree load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 4L * HEADER_INTS) {
+                throw new IOException(file + " is not a suffix tree snapshot, it is too short");
+            }
+            IntBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 4L * HEADER_INTS)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            if (header.get(0) != MAGIC) {
+                throw new IOException(file + " is not a suffix tree snapshot");
+            }
+            if (header.get(1) != VERSION) {
+                throw new IOException(file + " is a snapshot of version " + header.get(1) + ", only version " + VERSION + " can be read");
+            }
+            int nodes = header.get(2);
+            int dataLength = header.get(3);
+            int textLength = header.get(4);
+            long expected = 4L * HEADER_INTS + 4L * (8L * nodes + 1 + dataLength) + 2L * textLength;
+            if (nodes < 1 || dataLength < 0 || textLength < 0 || size != expected) {
+                throw new IOException(file + " is damaged, it has " + size + " bytes instead of " + expected);
+            }
+
+            // every column is mapped on its own, so only a single column has to fit in the 2GB limit of a mapping
+            long position = 4L * HEADER_INTS;
+            IntBuffer labelStart = mapColumn(channel, position, nodes);
+            position += 4L * nodes;
+            IntBuffer labelEnd = mapColumn(channel, position, nodes);
+            position += 4L * nodes;
+            IntBuffer subtreeEnd = mapColumn(channel, position, nodes);
+            position += 4L * nodes;
+            IntBuffer dataStart = mapColumn(channel, position, nodes + 1);
+            position += 4L * (nodes + 1);
+            IntBuffer suffix = mapColumn(channel, position, nodes);
+            position += 4L * nodes;
+            IntBuffer count = mapColumn(channel, position, nodes);
+            position += 4L * nodes;
+            IntBuffer childStart = mapColumn(channel, position, nodes + 1);
+            position += 4L * (nodes + 1);
+            IntBuffer children = mapColumn(channel, position, nodes - 1);
+            position += 4L * (nodes - 1);
+            IntBuffer data = mapColumn(channel, position, dataLength);
+            position += 4L * dataLength;
+            CharBuffer text = channel.map(FileChannel.MapMode.READ_ONLY, position, 2L * textLength)
+                    .order(ByteOrder.LITTLE_ENDIAN).asCharBuffer();
+
+            return new CompactSuffixTree(nodes, labelStart, labelEnd, subtreeEnd, dataStart, suffix, count, childStart, children, data, text);
+        }
+    }
+
+    private static IntBuffer mapColumn(FileChannel channel, long position, int size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * size).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    /**
+     * pushes the children so that the one with the smallest first char is popped first
+     */
+    private static void pushChildren(Deque<Node> stack, Node node) {
+        Edge[] edges = node.getEdges().values().toArray(new Edge[0]);
+        Arrays.sort(edges, (a, b) -> Character.compare(a.charAt(0), b.charAt(0)));
+        for (int i = edges.length - 1; i >= 0; i--) {
+            stack.push(edges[i].getDest());
+        }
+    }
+
+    static IntBuffer allocate(long size, boolean offHeap) {
+        if (offHeap) {
+            return ByteBuffer.allocateDirect(checkedBytes(4 * size, "column")).order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("the tree is too big to be copied: a column of " + size + " ints does not fit in an array");
+        }
+        return IntBuffer.allocate((int) size);
+    }
+
+    /**
+     * @return the bytes of a direct buffer, which can not have more than Integer.MAX_VALUE of them
+     */
+    private static int checkedBytes(long bytes, String what) {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("the tree is too big to be copied off the heap: its " + what + " takes "
+                    + bytes + " bytes, a direct buffer holds at most " + Integer.MAX_VALUE);
+        }
+        return (int) bytes;
+    }
+
+    /**
+     * Searches for the given word, same as {@link GeneralizedSuffixTreeImp#search(String)}
+     */
+    @Override
+    public Collection<Integer> search(String word) {
+        return search(word, -1);
+    }
+
+    @Override
+    public Collection<Integer> search(String word, int results) {
+        int node = searchNode(word);
+        if (node < 0) {
+            return Collections.<Integer>emptyList();
+        }
+        return getData(node, results);
+    }
+
+    @Override
+    public GeneralizedSuffixTreeImp.ResultInfo searchWithCount(String word, int count) {
+        int node = searchNode(word);
+        if (node < 0) {
+            return new GeneralizedSuffixTreeImp.ResultInfo(Collections.<Integer>emptyList(), 0);
+        }
+        return new GeneralizedSuffixTreeImp.ResultInfo(getData(node, count), getResultCount(node));
+    }
+
+    /**
+     * Returns the node (if present) that corresponds to the given string, or -1
+     */
+    private int searchNode(String word) {
+        if (word.isEmpty()) {
+            return -1;
+        }
+        int currentNode = ROOT;
+        for (int i = 0; i < word.length(); ) {
+            int child = getEdge(currentNode, word.charAt(i));
+            if (child < 0) {
+                return -1;
+            }
+            int start = labelStart.get(child);
+            int lenToMatch = Math.min(word.length() - i, labelEnd.get(child) - start);
+            for (int j = 0; j < lenToMatch; j++) {
+                if (text.get(start + j) != word.charAt(i + j)) {
+                    return -1;
+                }
+            }
+            i += lenToMatch;
+            currentNode = child;
+        }
+        return currentNode;
+    }
+
+    public int getRoot() {
+        return ROOT;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the child of <tt>node</tt> whose label starts with <tt>ch</tt>, or -1
+     */
+    public int getEdge(int node, char ch) {
+        int low = childStart.get(node);
+        int high = childStart.get(node + 1) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int child = children.get(mid);
+            char first = text.get(labelStart.get(child));
+            if (first < ch) {
+                low = mid + 1;
+            } else if (first > ch) {
+                high = mid - 1;
+            } else {
+                return child;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the label of the edge that enters <tt>node</tt>
+     */
+    public String getLabel(int node) {
+        char[] label = new char[labelEnd.get(node) - labelStart.get(node)];
+        for (int i = 0; i < label.length; i++) {
+            label[i] = text.get(labelStart.get(node) + i);
+        }
+        return new String(label);
+    }
+
+    public int getSuffix(int node) {
+        return suffix.get(node);
+    }
+
+    public int getResultCount(int node) {
+        return count.get(node);
+    }
+
+    /**
+     * the indexes of a whole subtree are one contiguous range of the data column
+     */
+    public Collection<Integer> getData(int node, int numElements) {
+        Set<Integer> ret = new HashSet<Integer>();
+        int end = dataStart.get(subtreeEnd.get(node));
+        for (int i = dataStart.get(node); i < end && ret.size() != numElements; i++) {
+            ret.add(data.get(i));
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import java.util.Collection;
+
+/**
+ * An index that can be searched by many threads while another thread keeps putting documents, without any lock on the readers.
+ *
+ * the writer puts the keys in a private {@link GeneralizedSuffixTreeImp}, that only it touches. after every batch of puts
+ * (or when {@link #publish()} is called) the tree is copied to a {@link CompactSuffixTree}, which is never changed after
+ * it is built, and the copy is published in a volatile field. a search reads that field once and works on that version
+ * only, so it always sees a consistent tree (every document of the version and nothing else) and never waits for the writer.
+ * the documents put after the last publish are not visible yet.
+ *
+ * the price is the copy. the writer tree keeps its document sets up to date incrementally, so a publish costs little
+ * more than {@link CompactSuffixTree#from}, but that copy is linear in the size of the whole tree, not of the batch:
+ * with batches of a fixed size, putting n chars in b batches copies O(n * b) chars in all, quadratic in the number of
+ * batches. the <tt>growth</tt> of {@link #ConcurrentSuffixTree(int, double)} bounds it: a batch is only published
+ * once it added at least <tt>growth</tt> times the chars of the last version, so the sizes of the copies grow
+ * geometrically and all of them together are at most (1 + 1 / growth) times the final text. the cost is that the
+ * new keys of a big index wait longer before they are visible (a {@link #publish()} still shows them at once).
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class ConcurrentSuffixTree implements WritableSuffixIndex {
+
+    private final GeneralizedSuffixTreeImp tree = new GeneralizedSuffixTreeImp();
+    /**
+     * the number of puts after which a new version is published on its own, 0 to publish only when asked
+     */
+    private final int batchSize;
+    /**
+     * the least number of new chars of a batch, as a fraction of the text of the last version, 0 for fixed batches
+     */
+    private final double growth;
+    private int unpublished = 0;
+    /**
+     * the length of the text of the writer tree at the last publish
+     */
+    private int publishedLength = 0;
+    /**
+     * true when keys were removed after the last publish
+     */
+    private boolean removed = false;
+    private volatile Version current;
+
+    /**
+     * a published version of the index with its number, to run several queries on the same version
+     */
+    public static final class Version {
+
+        /**
+         * 0 for the empty index, then one more for every publish
+         */
+        public final long number;
+        /**
+         * the number of keys put before this version was published
+         */
+        public final int keys;
+        public final CompactSuffixTree tree;
+
+        Version(long number, int keys, CompactSuffixTree tree) {
+            this.number = number;
+            this.keys = keys;
+            this.tree = tree;
+        }
+    }
+
+    public ConcurrentSuffixTree() {
+        this(0);
+    }
+
+    public ConcurrentSuffixTree(int batchSize) {
+        this(batchSize, 0);
+    }
+
+    /**
+     * @param batchSize the number of puts after which a new version is published on its own, 0 to publish only when asked
+     * @param growth a batch is published on its own only when it also added <tt>growth</tt> times the chars of the
+     *               last version, 0 for batches of a fixed size
+     */
+    public ConcurrentSuffixTree(int batchSize, double growth) {
+        if (batchSize < 0) {
+            throw new IllegalArgumentException("the batch size can not be negative: " + batchSize);
+        }
+        if (!(growth >= 0)) {
+            throw new IllegalArgumentException("the growth can not be negative: " + growth);
+        }
+        this.batchSize = batchSize;
+        this.growth = growth;
+        current = new Version(0, 0, CompactSuffixTree.from(tree, false));
+    }
+
+    /**
+     * puts the key in the writer tree, it is searchable after the next publish
+     */
+    @Override
+    public synchronized void put(String key, int index) throws IllegalStateException {
+        tree.put(key, index);
+        unpublished++;
+        if (batchSize > 0 && unpublished >= batchSize
+                && tree.getText().length() - publishedLength >= growth * publishedLength) {
+            publish();
+        }
+    }
+
+    /**
+     * removes the keys of the index from the writer tree, the searches still find them until the next publish
+     * @return false when no key has this index
+     */
+    public synchronized boolean remove(int index) {
+        if (!tree.remove(index)) {
+            return false;
+        }
+        removed = true;
+        return true;
+    }
+
+    /**
+     * makes all the keys put so far visible to the searches
+     */
+    public synchronized void publish() {
+        if (unpublished == 0 && !removed) {
+            return;
+        }
+        Version last = current;
+        current = new Version(last.number + 1, last.keys + unpublished, CompactSuffixTree.from(tree, false));
+        unpublished = 0;
+        removed = false;
+        publishedLength = tree.getText().length();
+    }
+
+    /**
+     * @return the last published version, it stays the same even when newer ones are published
+     */
+    public Version getVersion() {
+        return current;
+    }
+
+    @Override
+    public Collection<Integer> search(String word) {
+        return current.tree.search(word);
+    }
+
+    @Override
+    public Collection<Integer> search(String word, int results) {
+        return current.tree.search(word, results);
+    }
+
+    @Override
+    public GeneralizedSuffixTreeImp.ResultInfo searchWithCount(String word, int count) {
+        return current.tree.searchWithCount(word, count);
+    }
+}
@@ -0,0 +1,495 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * An immutable compressed set of indexes (documents), the payload of a node once the tree is finished.
+ *
+ * like the containers of a roaring bitmap it uses the smallest of three shapes:
+ * ARRAY  : the sorted values, for small sparse sets
+ * RUNS   : [start, end] pairs, for sets made of ranges of consecutive indexes (the root usually is one run)
+ * BITMAP : one bit per index between the smallest and the biggest value, for dense sets with holes
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public final class DocumentSet {
+
+    private static final int ARRAY = 0;
+    private static final int RUNS = 1;
+    private static final int BITMAP = 2;
+
+    public static final DocumentSet EMPTY = new DocumentSet(ARRAY, new int[0], null, 0, 0, 0);
+
+    private static final PrimitiveIterator.OfInt EMPTY_ITERATOR = new PrimitiveIterator.OfInt() {
+        @Override
+        public boolean hasNext() {
+            return false;
+        }
+
+        @Override
+        public int nextInt() {
+            throw new NoSuchElementException();
+        }
+    };
+
+    private final int kind;
+    /**
+     * the values for ARRAY, the inclusive [start, end] pairs for RUNS
+     */
+    private final int[] values;
+    private final long[] words;
+    /**
+     * the index of bit 0 of the BITMAP
+     */
+    private final int base;
+    private final int cardinality;
+    /**
+     * the number of runs of consecutive indexes, whatever the shape, so a changed set knows which shape fits it best
+     */
+    private final int runs;
+
+    private DocumentSet(int kind, int[] values, long[] words, int base, int cardinality, int runs) {
+        this.kind = kind;
+        this.values = values;
+        this.words = words;
+        this.base = base;
+        this.cardinality = cardinality;
+        this.runs = runs;
+    }
+
+    /**
+     * @return the smallest of the three shapes for a set with these numbers
+     */
+    private static int bestKind(int cardinality, int runs, long span) {
+        long arrayBytes = 4L * cardinality;
+        long runBytes = 8L * runs;
+        long bitmapBytes = 8L * ((span + 63) / 64);
+        if (runBytes <= arrayBytes && runBytes <= bitmapBytes) {
+            return RUNS;
+        }
+        return arrayBytes <= bitmapBytes ? ARRAY : BITMAP;
+    }
+
+    /**
+     * builds the set from the first <tt>length</tt> values of <tt>sorted</tt>, which must be increasing without duplicates
+     */
+    static DocumentSet of(int[] sorted, int length) {
+        if (length == 0) {
+            return EMPTY;
+        }
+        int runs = 1;
+        for (int i = 1; i < length; i++) {
+            if (sorted[i] != sorted[i - 1] + 1) {
+                runs++;
+            }
+        }
+        int kind = bestKind(length, runs, (long) sorted[length - 1] - sorted[0] + 1);
+        if (kind == RUNS) {
+            int[] pairs = new int[2 * runs];
+            int r = 0;
+            pairs[0] = sorted[0];
+            for (int i = 1; i < length; i++) {
+                if (sorted[i] != sorted[i - 1] + 1) {
+                    pairs[r + 1] = sorted[i - 1];
+                    r += 2;
+                    pairs[r] = sorted[i];
+                }
+            }
+            pairs[r + 1] = sorted[length - 1];
+            return new DocumentSet(RUNS, pairs, null, 0, length, runs);
+        } else if (kind == ARRAY) {
+            return new DocumentSet(ARRAY, Arrays.copyOf(sorted, length), null, 0, length, runs);
+        } else {
+            long[] bits = new long[(int) (((long) sorted[length - 1] - sorted[0] + 64) / 64)];
+            for (int i = 0; i < length; i++) {
+                int bit = sorted[i] - sorted[0];
+                bits[bit >>> 6] |= 1L << bit;
+            }
+            return new DocumentSet(BITMAP, null, bits, sorted[0], length, runs);
+        }
+    }
+
+    /**
+     * @return this set with <tt>index</tt> added. the tree only adds indexes bigger than all the others, which costs
+     * a copy of the runs, the array or the words, without going through the values; any other index rebuilds the set
+     */
+    DocumentSet with(int index) {
+        if (contains(index)) {
+            return this;
+        }
+        if (cardinality == 0 || index < last()) {
+            int[] sorted = new int[cardinality + 1];
+            int n = 0;
+            boolean added = false;
+            for (PrimitiveIterator.OfInt it = iterator(); it.hasNext(); ) {
+                int next = it.nextInt();
+                if (!added && index < next) {
+                    sorted[n++] = index;
+                    added = true;
+                }
+                sorted[n++] = next;
+            }
+            if (!added) {
+                sorted[n++] = index;
+            }
+            return of(sorted, n);
+        }
+        boolean extendsRun = index == last() + 1;
+        int newRuns = extendsRun ? runs : runs + 1;
+        int kind = bestKind(cardinality + 1, newRuns, (long) index - first() + 1);
+        if (kind != this.kind) {
+            int[] sorted = new int[cardinality + 1];
+            sorted[copyTo(sorted, 0)] = index;
+            return of(sorted, cardinality + 1);
+        }
+        switch (kind) {
+            case ARRAY: {
+                int[] copy = Arrays.copyOf(values, cardinality + 1);
+                copy[cardinality] = index;
+                return new DocumentSet(ARRAY, copy, null, 0, cardinality + 1, newRuns);
+            }
+            case RUNS: {
+                int[] copy;
+                if (extendsRun) {
+                    copy = values.clone();
+                } else {
+                    copy = Arrays.copyOf(values, values.length + 2);
+                    copy[values.length] = index;
+                }
+                copy[copy.length - 1] = index;
+                return new DocumentSet(RUNS, copy, null, 0, cardinality + 1, newRuns);
+            }
+            default: {
+                int bit = index - base;
+                long[] copy = Arrays.copyOf(words, Math.max(words.length, (bit >>> 6) + 1));
+                copy[bit >>> 6] |= 1L << bit;
+                return new DocumentSet(BITMAP, null, copy, base, cardinality + 1, newRuns);
+            }
+        }
+    }
+
+    /**
+     * @return this set without <tt>index</tt>, a copy of the runs, the array or the words unless the set is better kept
+     * in another shape once the index is gone
+     */
+    DocumentSet without(int index) {
+        if (!contains(index)) {
+            return this;
+        }
+        if (cardinality == 1) {
+            return EMPTY;
+        }
+        boolean before = contains(index - 1);
+        boolean after = contains(index + 1);
+        int newRuns = before && after ? runs + 1 : !before && !after ? runs - 1 : runs;
+        DocumentSet ret;
+        switch (kind) {
+            case ARRAY: {
+                int i = Arrays.binarySearch(values, index);
+                int[] copy = new int[cardinality - 1];
+                System.arraycopy(values, 0, copy, 0, i);
+                System.arraycopy(values, i + 1, copy, i, cardinality - 1 - i);
+                ret = new DocumentSet(ARRAY, copy, null, 0, cardinality - 1, newRuns);
+                break;
+            }
+            case RUNS: {
+                int r = 0;
+                while (values[r + 1] < index) {
+                    r += 2;
+                }
+                int[] copy;
+                if (values[r] == index && values[r + 1] == index) {
+                    copy = new int[values.length - 2];
+                    System.arraycopy(values, 0, copy, 0, r);
+                    System.arraycopy(values, r + 2, copy, r, values.length - r - 2);
+                } else if (values[r] == index) {
+                    copy = values.clone();
+                    copy[r]++;
+                } else if (values[r + 1] == index) {
+                    copy = values.clone();
+                    copy[r + 1]--;
+                } else {
+                    // the run is cut in two
+                    copy = new int[values.length + 2];
+                    System.arraycopy(values, 0, copy, 0, r + 1);
+                    copy[r + 1] = index - 1;
+                    copy[r + 2] = index + 1;
+                    System.arraycopy(values, r + 1, copy, r + 3, values.length - r - 1);
+                }
+                ret = new DocumentSet(RUNS, copy, null, 0, cardinality - 1, newRuns);
+                break;
+            }
+            default: {
+                int bit = index - base;
+                long[] copy = words.clone();
+                copy[bit >>> 6] &= ~(1L << bit);
+                // the words left empty at both ends are dropped
+                int from = 0;
+                int to = copy.length;
+                while (copy[from] == 0) {
+                    from++;
+                }
+                while (copy[to - 1] == 0) {
+                    to--;
+                }
+                if (from > 0 || to < copy.length) {
+                    copy = Arrays.copyOfRange(copy, from, to);
+                }
+                ret = new DocumentSet(BITMAP, null, copy, base + 64 * from, cardinality - 1, newRuns);
+                break;
+            }
+        }
+        if (bestKind(ret.cardinality, newRuns, (long) ret.last() - ret.first() + 1) != kind) {
+            int[] sorted = new int[ret.cardinality];
+            return of(sorted, ret.copyTo(sorted, 0));
+        }
+        return ret;
+    }
+
+    /**
+     * @return the smallest index of a set that is not empty
+     */
+    private int first() {
+        if (kind != BITMAP) {
+            return values[0];
+        }
+        int word = 0;
+        while (words[word] == 0) {
+            word++;
+        }
+        return base + 64 * word + Long.numberOfTrailingZeros(words[word]);
+    }
+
+    /**
+     * @return the biggest index of a set that is not empty
+     */
+    private int last() {
+        if (kind != BITMAP) {
+            return values[values.length - 1];
+        }
+        int word = words.length - 1;
+        while (words[word] == 0) {
+            word--;
+        }
+        return base + 64 * word + 63 - Long.numberOfLeadingZeros(words[word]);
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * @return about how many bytes the set takes on the heap (the shared empty set counts for nothing)
+     */
+    long estimatedBytes() {
+        if (this == EMPTY) {
+            return 0;
+        }
+        return 32 + (values == null ? 0 : 16 + 4L * values.length) + (words == null ? 0 : 16 + 8L * words.length);
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(int index) {
+        switch (kind) {
+            case ARRAY:
+                return Arrays.binarySearch(values, index) >= 0;
+            case RUNS:
+                int low = 0;
+                int high = values.length / 2 - 1;
+                while (low <= high) {
+                    int mid = (low + high) >>> 1;
+                    if (values[2 * mid + 1] < index) {
+                        low = mid + 1;
+                    } else if (values[2 * mid] > index) {
+                        high = mid - 1;
+                    } else {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                long bit = (long) index - base;
+                return bit >= 0 && bit < 64L * words.length && (words[(int) (bit >>> 6)] & (1L << bit)) != 0;
+        }
+    }
+
+    /**
+     * @return the indexes in increasing order, without boxing
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return iterator(0);
+    }
+
+    /**
+     * @return the indexes in increasing order after the first <tt>skip</tt> ones. the skipped indexes are jumped over
+     * (a whole run or a whole word of the bitmap at a time), not read one by one
+     */
+    public PrimitiveIterator.OfInt iterator(int skip) {
+        if (skip >= cardinality) {
+            return EMPTY_ITERATOR;
+        }
+        switch (kind) {
+            case ARRAY:
+                return new PrimitiveIterator.OfInt() {
+                    private int i = Math.max(0, skip);
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < values.length;
+                    }
+
+                    @Override
+                    public int nextInt() {
+                        if (i >= values.length) {
+                            throw new NoSuchElementException();
+                        }
+                        return values[i++];
+                    }
+                };
+            case RUNS: {
+                int run = 0;
+                int left = Math.max(0, skip);
+                while (left > values[run + 1] - values[run]) {
+                    left -= values[run + 1] - values[run] + 1;
+                    run += 2;
+                }
+                final int firstRun = run;
+                final int first = values[run] + left;
+                return new PrimitiveIterator.OfInt() {
+                    private int run = firstRun;
+                    private int next = first;
+
+                    @Override
+                    public boolean hasNext() {
+                        return run < values.length;
+                    }
+
+                    @Override
+                    public int nextInt() {
+                        if (run >= values.length) {
+                            throw new NoSuchElementException();
+                        }
+                        int ret = next;
+                        if (next == values[run + 1]) {
+                            run += 2;
+                            if (run < values.length) {
+                                next = values[run];
+                            }
+                        } else {
+                            next++;
+                        }
+                        return ret;
+                    }
+                };
+            }
+            default: {
+                int word = 0;
+                int left = Math.max(0, skip);
+                while (left >= Long.bitCount(words[word])) {
+                    left -= Long.bitCount(words[word]);
+                    word++;
+                }
+                long bits = words[word];
+                for (; left > 0; left--) {
+                    bits &= bits - 1;
+                }
+                final int firstWord = word;
+                final long firstBits = bits;
+                final int remaining = cardinality - Math.max(0, skip);
+                return new PrimitiveIterator.OfInt() {
+                    private int word = firstWord;
+                    private long bits = firstBits;
+                    private int left = remaining;
+
+                    @Override
+                    public boolean hasNext() {
+                        return left > 0;
+                    }
+
+                    @Override
+                    public int nextInt() {
+                        if (left == 0) {
+                            throw new NoSuchElementException();
+                        }
+                        while (bits == 0) {
+                            bits = words[++word];
+                        }
+                        int bit = Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        left--;
+                        return base + 64 * word + bit;
+                    }
+                };
+            }
+        }
+    }
+
+    /**
+     * @return a read only view of the set as a collection, nothing is copied
+     */
+    public Collection<Integer> asCollection() {
+        return new AbstractCollection<Integer>() {
+            @Override
+            public Iterator<Integer> iterator() {
+                return DocumentSet.this.iterator();
+            }
+
+            @Override
+            public int size() {
+                return cardinality;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Integer && DocumentSet.this.contains((Integer) o);
+            }
+        };
+    }
+
+    /**
+     * writes the indexes in increasing order to <tt>dest</tt> starting at <tt>offset</tt>
+     * @return the offset after the last written index
+     */
+    int copyTo(int[] dest, int offset) {
+        PrimitiveIterator.OfInt it = iterator();
+        while (it.hasNext()) {
+            dest[offset++] = it.nextInt();
+        }
+        return offset;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder ret = new StringBuilder("[");
+        PrimitiveIterator.OfInt it = iterator();
+        while (it.hasNext()) {
+            ret.append(it.nextInt());
+            if (it.hasNext()) {
+                ret.append(", ");
+            }
+        }
+        return ret.append(']').toString();
+    }
+}
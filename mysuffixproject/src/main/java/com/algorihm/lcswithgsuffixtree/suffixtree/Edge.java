@@ -18,18 +18,56 @@ package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
 /**
  *   create Edge class for connect nodes to create suffix
  *   each Edge represents next node and the label which is the substring that we have until the next nodes
+ *   the label is not stored as a String, the edge only keeps the [start, end) offsets of it in the shared {@link TextBuffer}
  * @author : amirali khaneh angha & mahdieh naeemy
  */
 public class Edge {
-    private String label;
+    /**
+     * about how many bytes an edge takes on the heap: the header, three ints and two pointers
+     */
+    static final int ESTIMATED_BYTES = 32;
+
+    private final TextBuffer text;
+    private int start;
+    private int end;
     private Node dest;
 
+    /**
+     * builds the label from the shared text, so call it only when the String itself is needed
+     */
     public String getLabel() {
-        return label;
+        return text.substring(start, end);
+    }
+
+    /**
+     * @return the whole string from the root to the end of this edge, needs the depth cached by computeCount
+     */
+    public String getPathLabel() {
+        return text.substring(end - dest.getDepth(), end);
+    }
+
+    void setLabel(int start, int end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public int length() {
+        return end - start;
     }
 
-    public void setLabel(String label) {
-        this.label = label;
+    /**
+     * @return the char of the label at the given position, read in place from the shared text
+     */
+    public char charAt(int i) {
+        return text.charAt(start + i);
     }
 
     public Node getDest() {
@@ -40,8 +78,10 @@ public class Edge {
         this.dest = dest;
     }
 
-    public Edge(String label, Node dest) {
-        this.label = label;
+    public Edge(TextBuffer text, int start, int end, Node dest) {
+        this.text = text;
+        this.start = start;
+        this.end = end;
         this.dest = dest;
     }
 
@@ -15,8 +15,35 @@
  */
 package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * this tree creation is based on http://www.cs.helsinki.fi/u/ukkonen/SuffixT1withFigs.pdf and we using the ukkonen's algorithm
@@ -32,7 +59,7 @@ import java.util.Collections;
  * The overall complexity of the retrieval operation (search) is O(m) where m is the length of the string to search within the index.
  *
  */
-public class GeneralizedSuffixTreeImp {
+public class GeneralizedSuffixTreeImp implements WritableSuffixIndex {
 
     /**
      * The index of the last item that was added to the GST
@@ -41,11 +68,99 @@ public class GeneralizedSuffixTreeImp {
     /**
      * The root of the suffix tree
      */
-    private final Node root = new Node();
+    private final Node root = new Node(0);
     /**
      * The last leaf that was added during the update operation
      */
     private Node activeLeaf = root;
+    /**
+     * The text of all the keys, edge labels are offsets into it
+     */
+    private final TextBuffer text = new TextBuffer();
+    /**
+     * The active point of the construction: the string text[activeStart, i] read from activeNode,
+     * kept in fields so that put does not allocate anything but the new nodes and edges
+     */
+    private Node activeNode = root;
+    private int activeStart = 0;
+    /**
+     * second result of canonize, the start of the part of the string that is left below the returned node
+     */
+    private int canonStart;
+    /**
+     * second result of testAndSplit, true when the end point of the active string has been reached
+     */
+    private boolean endpoint;
+    /**
+     * false when keys were put after the last time the document sets of the nodes were built.
+     * the sets are built by the first search after a put, which can come from several threads at once:
+     * only one of them builds them, under {@link #buildLock}, and this flag publishes them to the others
+     */
+    private volatile boolean documentsBuilt = false;
+    private final Object buildLock = new Object();
+    /**
+     * the size of the windows the streamed keys go through, in chars or bytes
+     */
+    private static final int WINDOW_SIZE = 8192;
+    /**
+     * the largest part of a file that is memory mapped at once
+     */
+    private static final long MAPPED_SLICE_SIZE = 64L << 20;
+    /**
+     * the smallest number of words searchAll gives to one task of the pool
+     */
+    private static final int PARALLEL_BATCH = 1024;
+    /**
+     * the number of distinct indexes in the tree, the removed ones are not counted
+     */
+    private int documents = 0;
+    /**
+     * at most this many indexes are kept, the oldest one is removed when a new one is put. 0 keeps all of them
+     */
+    private int window = 0;
+    /**
+     * true when indexes were removed after the document sets were built, their refs are still in the nodes
+     */
+    private boolean removedSinceBuild = false;
+    /**
+     * every document before this one was removed, so the oldest live one is found without going over them again
+     */
+    private int firstLive = 0;
+    /**
+     * the chars of the removed keys are freed only when there are at least this many of them, and as many as the live ones
+     */
+    private static final int MIN_COMPACTION = 1 << 16;
+    /**
+     * the counters of the construction and the searches, null when they are off
+     */
+    private TreeMetrics metrics;
+    /**
+     * the answers of the last searches, null when there is no cache
+     */
+    private ResultCache cache;
+    /**
+     * what happened since the document sets were built, in order: the number of every document that was put,
+     * and -(number + 1) for every document that was removed
+     */
+    private int[] pending = new int[16];
+    private int pendingCount = 0;
+    /**
+     * the chars of the pending documents, once they are half of the text one pass over the whole tree is cheaper
+     */
+    private long pendingChars = 0;
+    /**
+     * the nodes made since the document sets were built, they get their sets from their children after the updates
+     */
+    private final List<Node> created = new ArrayList<Node>();
+    /**
+     * true when the next build of the document sets must go over the whole tree: nothing was built yet,
+     * too much was put since the last time, or a compaction moved the nodes
+     */
+    private boolean rebuild = true;
+    /**
+     * the number of the last pending document applied to the sets, see {@link Node#mark}
+     */
+    private int stamp = 0;
 
     /**
      * Searches for the given word within the GST.
@@ -56,36 +171,318 @@ public class GeneralizedSuffixTreeImp {
      * @param word the key to search for
      * @return the collection of indexes associated with the input <tt>word</tt>
      */
+    @Override
     public Collection<Integer> search(String word) {
         return search(word, -1);
     }
 
 
+    @Override
     public Collection<Integer> search(String word, int results) {
+        ResultCache c = cache;
+        if (c != null) {
+            return cachedSearch(c, word, results).results;
+        }
         Node tmpNode = searchNode(word);
         if (tmpNode == null) {
-            return Collections.EMPTY_LIST;
+            return Collections.<Integer>emptyList();
         }
+        buildDocumentSets();
         return tmpNode.getData(results);
     }
 
+    /**
+     * same as {@link #search(String)} but the indexes come back in increasing order as primitive ints, without any set
+     */
+    public PrimitiveIterator.OfInt searchIndexes(String word) {
+        Node tmpNode = searchNode(word);
+        if (tmpNode == null) {
+            return DocumentSet.EMPTY.iterator();
+        }
+        buildDocumentSets();
+        return tmpNode.getDocuments().iterator();
+    }
+
 
+    @Override
     public ResultInfo searchWithCount(String word, int count) {
+        ResultCache c = cache;
+        if (c != null) {
+            ResultInfo cached = cachedSearch(c, word, count);
+            // the fields of a ResultInfo can be changed, every caller gets its own
+            return new ResultInfo(cached.results, cached.totalResults);
+        }
         Node tmpNode = searchNode(word);
         if (tmpNode == null) {
-            return new ResultInfo(Collections.EMPTY_LIST, 0);
+            return new ResultInfo(Collections.<Integer>emptyList(), 0);
         }
+        buildDocumentSets();
+        return new ResultInfo(tmpNode.getData(count), tmpNode.getDocuments().cardinality());
+    }
+
+    /**
+     * the answer of search and searchWithCount from the cache, or from the tree when it is not there yet
+     */
+    private ResultInfo cachedSearch(ResultCache c, String word, int limit) {
+        ResultInfo ret = c.get(word, limit);
+        if (ret != null) {
+            return ret;
+        }
+        Node tmpNode = searchNode(word);
+        if (tmpNode == null) {
+            return c.put(word, limit, Collections.<Integer>emptyList(), 0);
+        }
+        buildDocumentSets();
+        return c.put(word, limit, tmpNode.getData(limit), tmpNode.getDocuments().cardinality());
+    }
+
+    /**
+     * the lazy form of {@link #search(String)}: the exact count, pages of indexes, the occurrences and the most frequent
+     * indexes of the word, each computed only when it is asked (see {@link SearchCursor})
+     */
+    public SearchCursor cursor(String word) {
+        Node currentNode = root;
+        for (int i = 0; i < word.length(); ) {
+            Edge currentEdge = currentNode.getEdge(word.charAt(i));
+            if (null == currentEdge) {
+                break;
+            }
+            int lenToMatch = Math.min(word.length() - i, currentEdge.length());
+            if (!text.regionMatches(currentEdge.getStart(), word, i, lenToMatch)) {
+                break;
+            }
+            i += lenToMatch;
+            if (i == word.length()) {
+                buildDocumentSets();
+                return new SearchCursor(text, currentEdge.getDest(), currentEdge.getEnd());
+            }
+            currentNode = currentEdge.getDest();
+        }
+        return new SearchCursor(text, null, 0);
+    }
+
+    /**
+     * the matching statistics of the query: for every position, the longest substring starting there that is in one of
+     * the keys and the indexes that contain it, given to the listener one position at a time.
+     * it takes a time linear in the length of the query (see {@link MatchingStatistics}) and reads it through a small
+     * window, so the query can be as long as needed
+     */
+    public void matchingStatistics(Reader query, MatchListener listener) throws IOException {
+        buildDocumentSets();
+        new MatchingStatistics(root, text).run(query, listener);
+    }
+
+    public void matchingStatistics(CharSequence query, MatchListener listener) {
+        buildDocumentSets();
+        try {
+            new MatchingStatistics(root, text).run(CharBuffer.wrap(query), listener);
+        } catch (IOException e) {
+            // a CharBuffer does not do any I/O
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * the maximal repeats of the keys (see {@link RepeatFinder}) with at least the given length, number of occurrences
+     * and number of distinct indexes. the tree is analyzed once in linear time, then the repeats are built while
+     * the iterator is read: in depth first order, or the longest first with <tt>sortedByLength</tt>
+     * @param supermaximalOnly keep only the repeats that are not part of a longer repeat
+     */
+    public Iterator<Repeat> maximalRepeats(int minLength, int minOccurrences, int minDocuments,
+                                           boolean supermaximalOnly, boolean sortedByLength) {
+        return new RepeatFinder(text, analyze()).repeats(minLength, minOccurrences, minDocuments, supermaximalOnly, sortedByLength);
+    }
+
+    /**
+     * searches many words at once. the words are sorted so that the ones sharing a prefix come one after the other,
+     * and the walk of a word starts again from the deepest node of the previous walk that is still on its prefix,
+     * so a common prefix is read from the tree once for the whole batch (and a word that extends a missing one is
+     * known to be missing without touching the tree)
+     * @return the indexes of every word, like {@link #search(String)}, as read only views of the sets of the nodes (nothing is copied)
+     */
+    public Map<String, Collection<Integer>> searchAll(Collection<String> words) {
+        String[] sorted = sortedWords(words);
+        buildDocumentSets();
+        Map<String, Collection<Integer>> ret = new HashMap<String, Collection<Integer>>();
+        walkSorted(sorted, 0, sorted.length, ret);
+        return ret;
+    }
+
+    /**
+     * same as {@link #searchAll(Collection)} but the sorted words are cut in runs that are walked on the pool at the same time.
+     * the batch is split only when it is big enough to pay for the tasks
+     */
+    public Map<String, Collection<Integer>> searchAll(Collection<String> words, ForkJoinPool pool) {
+        final String[] sorted = sortedWords(words);
+        buildDocumentSets();
+        int chunk = Math.max(PARALLEL_BATCH, (sorted.length + 4 * pool.getParallelism() - 1) / (4 * pool.getParallelism()));
+        List<Callable<Map<String, Collection<Integer>>>> tasks = new ArrayList<Callable<Map<String, Collection<Integer>>>>();
+        for (int from = 0; from < sorted.length; from += chunk) {
+            final int start = from;
+            final int end = Math.min(sorted.length, from + chunk);
+            tasks.add(() -> {
+                Map<String, Collection<Integer>> part = new HashMap<String, Collection<Integer>>();
+                walkSorted(sorted, start, end, part);
+                return part;
+            });
+        }
+        Map<String, Collection<Integer>> ret = new HashMap<String, Collection<Integer>>();
+        for (Future<Map<String, Collection<Integer>>> future : pool.invokeAll(tasks)) {
+            try {
+                ret.putAll(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while searching", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return ret;
+    }
 
-        return new ResultInfo(tmpNode.getData(count), tmpNode.getResultCount());
+    /**
+     * the places where the word is found with at most <tt>k</tt> differences (see {@link ApproximateSearch}), in one walk
+     * of the tree that leaves a path as soon as it is too far from the word
+     * @return the best match of every (index, offset), sorted by index then offset
+     */
+    public List<ApproximateMatch> searchApproximate(String word, int k, ApproximateMatch.Distance distance) {
+        checkApproximate(word, k);
+        buildDocumentSets();
+        ApproximateSearch walker = new ApproximateSearch(text, word, k, distance);
+        for (Edge edge : root.getEdges().values()) {
+            walker.walk(edge);
+        }
+        return sortedMatches(walker.getMatches().values());
+    }
+
+    /**
+     * same as {@link #searchApproximate(String, int, ApproximateMatch.Distance)} with the edges of the root walked
+     * on the pool at the same time. a start position is under one edge of the root only, so the parts never overlap
+     */
+    public List<ApproximateMatch> searchApproximate(String word, int k, ApproximateMatch.Distance distance, ForkJoinPool pool) {
+        checkApproximate(word, k);
+        buildDocumentSets();
+        List<Callable<Collection<ApproximateMatch>>> tasks = new ArrayList<Callable<Collection<ApproximateMatch>>>();
+        for (Edge edge : root.getEdges().values()) {
+            tasks.add(() -> {
+                ApproximateSearch walker = new ApproximateSearch(text, word, k, distance);
+                walker.walk(edge);
+                return walker.getMatches().values();
+            });
+        }
+        List<ApproximateMatch> ret = new ArrayList<ApproximateMatch>();
+        for (Future<Collection<ApproximateMatch>> future : pool.invokeAll(tasks)) {
+            try {
+                ret.addAll(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while searching", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return sortedMatches(ret);
+    }
+
+    private static void checkApproximate(String word, int k) {
+        if (k < 0 || k >= word.length()) {
+            throw new IllegalArgumentException("k must be between 0 and the length of the word - 1, not " + k);
+        }
+    }
+
+    private static List<ApproximateMatch> sortedMatches(Collection<ApproximateMatch> matches) {
+        List<ApproximateMatch> ret = new ArrayList<ApproximateMatch>(matches);
+        ret.sort((a, b) -> a.index != b.index ? Integer.compare(a.index, b.index) : Integer.compare(a.offset, b.offset));
+        return ret;
+    }
+
+    private static String[] sortedWords(Collection<String> words) {
+        String[] sorted = words.toArray(new String[0]);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * the shared prefix walk of {@link #searchAll(Collection)} over sorted[from, to).
+     * the nodes reached by the previous word are kept on a stack with the number of chars read to reach them
+     */
+    private void walkSorted(String[] sorted, int from, int to, Map<String, Collection<Integer>> out) {
+        Node[] pathNode = new Node[16];
+        int[] pathDepth = new int[16];
+        pathNode[0] = root;
+        int top = 0;
+        String previous = null;
+        // how many chars of the previous word were found in the tree
+        int previousMatched = 0;
+
+        for (int w = from; w < to; w++) {
+            String word = sorted[w];
+            int common = previous == null ? 0 : commonPrefix(previous, word);
+            previous = word;
+            if (common > previousMatched || word.isEmpty()) {
+                // the char the previous word failed on is in this word as well
+                out.put(word, Collections.<Integer>emptyList());
+                previousMatched = Math.min(previousMatched, word.length());
+                continue;
+            }
+            while (top > 0 && pathDepth[top] > common) {
+                top--;
+            }
+            Node node = pathNode[top];
+            int i = pathDepth[top];
+            Node found = null;
+            while (found == null) {
+                Edge edge = node.getEdge(word.charAt(i));
+                if (edge == null) {
+                    break;
+                }
+                int lenToMatch = Math.min(word.length() - i, edge.length());
+                int j = 0;
+                while (j < lenToMatch && text.charAt(edge.getStart() + j) == word.charAt(i + j)) {
+                    j++;
+                }
+                if (j < lenToMatch) {
+                    i += j;
+                    break;
+                }
+                i += lenToMatch;
+                if (i == word.length()) {
+                    found = edge.getDest();
+                } else {
+                    node = edge.getDest();
+                    if (++top == pathNode.length) {
+                        pathNode = Arrays.copyOf(pathNode, 2 * top);
+                        pathDepth = Arrays.copyOf(pathDepth, 2 * top);
+                    }
+                    pathNode[top] = node;
+                    pathDepth[top] = i;
+                }
+            }
+            previousMatched = i;
+            out.put(word, found == null ? Collections.<Integer>emptyList() : found.getDocuments().asCollection());
+        }
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
     }
 
     /**
      * Returns the tree node (if present) that corresponds to the given string.
      */
     private Node searchNode(String word) {
+        TreeMetrics m = metrics;
+        long begin = m == null ? 0 : System.nanoTime();
 
         Node currentNode = root;
         Edge currentEdge;
+        Node found = null;
+        int edges = 0;
 
         for (int i = 0; i < word.length(); ++i) {
             char ch = word.charAt(i);
@@ -93,16 +490,17 @@ public class GeneralizedSuffixTreeImp {
             currentEdge = currentNode.getEdge(ch);
             if (null == currentEdge) {
 
-                return null;
+                break;
             } else {
-                String label = currentEdge.getLabel();
-                int lenToMatch = Math.min(word.length() - i, label.length());
-                if (!word.regionMatches(i, label, 0, lenToMatch)) {
-                    return null;
+                edges++;
+                int lenToMatch = Math.min(word.length() - i, currentEdge.length());
+                if (!text.regionMatches(currentEdge.getStart(), word, i, lenToMatch)) {
+                    break;
                 }
 
-                if (label.length() >= word.length() - i) {
-                    return currentEdge.getDest();
+                if (currentEdge.length() >= word.length() - i) {
+                    found = currentEdge.getDest();
+                    break;
                 } else {
                     // advance to next node
                     currentNode = currentEdge.getDest();
@@ -111,146 +509,507 @@ public class GeneralizedSuffixTreeImp {
             }
         }
 
-        return null;
+        if (m != null) {
+            m.searchDepth.record(edges);
+            m.searchLatency.record(System.nanoTime() - begin);
+        }
+        return found;
     }
 
     /**
-     * this is method to put new string in our tree which throw Exception if we do not indexed correctly
+     * this is method to put new string in our tree which throw Exception if we do not indexed correctly.
+     * the chars must be single byte ones (see {@link TreeEdgeMap}), otherwise an IllegalArgumentException is thrown
+     * and the tree stays as it was, like for the other puts
      */
+    @Override
     public void put(String key, int index) throws IllegalStateException {
+        put((CharSequence) key, index);
+    }
+
+    /**
+     * same as {@link #put(String, int)} for any sequence of chars (StringBuilder, CharBuffer, ...) without making a String of it
+     */
+    public void put(CharSequence key, int index) throws IllegalStateException {
+        checkIndex(index);
+        // the key is copied once in the shared text, all the labels below are offsets into it
+        construct(text.append(key, index), index);
+    }
+
+    /**
+     * puts the whole content of the reader as one key. the chars go straight to the shared text through a small window,
+     * so the input is never held a second time on the heap (no String, no StringBuilder). the reader is not closed
+     */
+    public void put(Reader reader, int index) throws IOException, IllegalStateException {
+        checkIndex(index);
+        int keyStart = text.beginDocument(index);
+        char[] window = new char[WINDOW_SIZE];
+        try {
+            for (int n = reader.read(window); n >= 0; n = reader.read(window)) {
+                text.append(window, 0, n);
+            }
+        } catch (IOException | RuntimeException e) {
+            text.dropLastDocument();
+            throw e;
+        }
+        construct(keyStart, index);
+    }
+
+    /**
+     * puts the bytes of the channel, decoded with <tt>charset</tt>, as one key. the bytes are read and decoded
+     * through two small windows. the channel is not closed
+     */
+    public void put(ReadableByteChannel channel, Charset charset, int index) throws IOException, IllegalStateException {
+        checkIndex(index);
+        int keyStart = text.beginDocument(index);
+        CharsetDecoder decoder = charset.newDecoder();
+        ByteBuffer in = ByteBuffer.allocate(WINDOW_SIZE);
+        CharBuffer out = CharBuffer.allocate(WINDOW_SIZE);
+        try {
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                endOfInput = channel.read(in) < 0;
+                in.flip();
+                decode(decoder, in, out, endOfInput);
+                in.compact();
+            }
+            flush(decoder, out);
+        } catch (IOException | RuntimeException e) {
+            text.dropLastDocument();
+            throw e;
+        }
+        construct(keyStart, index);
+    }
+
+    /**
+     * puts the region [position, position + size) of the file, decoded with <tt>charset</tt>, as one key.
+     * the file is memory mapped a slice at a time and decoded straight from the mapping, so the bytes never come on the heap
+     */
+    public void put(Path file, long position, long size, Charset charset, int index) throws IOException, IllegalStateException {
+        checkIndex(index);
+        int keyStart = text.beginDocument(index);
+        CharsetDecoder decoder = charset.newDecoder();
+        CharBuffer out = CharBuffer.allocate(WINDOW_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long end = position + size;
+            long next = position;
+            while (true) {
+                long sliceSize = Math.min(MAPPED_SLICE_SIZE, end - next);
+                MappedByteBuffer slice = channel.map(FileChannel.MapMode.READ_ONLY, next, sliceSize);
+                boolean endOfInput = next + sliceSize == end;
+                decode(decoder, slice, out, endOfInput);
+                if (endOfInput) {
+                    break;
+                }
+                // a char cut by the end of the slice is decoded again from the next one
+                if (slice.position() == 0) {
+                    throw new IOException("can not decode the bytes at " + next + " of " + file);
+                }
+                next += slice.position();
+            }
+            flush(decoder, out);
+        } catch (IOException | RuntimeException e) {
+            text.dropLastDocument();
+            throw e;
+        }
+        construct(keyStart, index);
+    }
+
+    /**
+     * same as {@link #put(Path, long, long, Charset, int)} for the whole file
+     */
+    public void put(Path file, Charset charset, int index) throws IOException, IllegalStateException {
+        put(file, 0, Files.size(file), charset, index);
+    }
+
+    /**
+     * removes every key that was put with <tt>index</tt>, the searches do not find it any more. the refs are dropped
+     * by the next rebuild of the document sets, and the nodes and chars that only the removed keys needed are freed together
+     * once the removed chars are as many as the live ones, so a removal costs a binary search plus amortized constant time
+     * per removed char, and the tree never holds more than about twice the live text.
+     * a removed index can not be put again
+     * @return false when no key has this index
+     */
+    public boolean remove(int index) {
+        int first = text.firstDocument(index);
+        if (first == text.documentCount()) {
+            return false;
+        }
+        for (int d = first; d < text.documentCount() && text.documentIndex(d) == index; d++) {
+            changed(-(d + 1), text.documentEnd(d) - text.documentStart(d));
+            text.remove(d);
+        }
+        documents--;
+        if (index == last) {
+            // the old refs of the index may still be in the nodes, they must not come back with a new key
+            last = index + 1;
+        }
+        documentsBuilt = false;
+        removedSinceBuild = true;
+        if (cache != null) {
+            cache.invalidate();
+        }
+        int removedLength = text.removedLength();
+        if (removedLength >= MIN_COMPACTION && removedLength >= text.length() - removedLength) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * removes all the indexes smaller than <tt>index</tt>, for example when the indexes are timestamps and the old ones expire
+     * @return the number of indexes that were removed
+     */
+    public int removeBefore(int index) {
+        int count = 0;
+        while (documents > 0 && text.documentIndex(oldestDocument()) < index) {
+            remove(text.documentIndex(oldestDocument()));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * keeps only the last <tt>maxDocuments</tt> indexes: from now on every put of a new index removes the oldest one
+     * when there are too many, like a sliding window over a stream of log lines. 0 turns it off
+     */
+    public void setWindow(int maxDocuments) {
+        if (maxDocuments < 0) {
+            throw new IllegalArgumentException("the window can not be negative: " + maxDocuments);
+        }
+        window = maxDocuments;
+        trimToWindow();
+    }
+
+    /**
+     * turns the metrics on with the given recorder (it can be shared with {@link main.java.com.algorihm.lcswithgsuffixtree.toolsAndLCS.tools}),
+     * or off with null. the counters start from what the recorder already has
+     */
+    public void setMetrics(TreeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * puts a cache of at most <tt>maxBytes</tt> (estimated) in front of search and searchWithCount, or removes it with 0.
+     * the answers are kept by pattern and limit, the least recently used ones are dropped first, and every put or
+     * removal empties it. the collections it returns can not be changed
+     */
+    public void setResultCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("the size of the cache can not be negative: " + maxBytes);
+        }
+        cache = maxBytes == 0 ? null : new ResultCache(maxBytes);
+    }
+
+    /**
+     * @return the hits, misses and evictions of the cache since it was set
+     */
+    public CacheStatistics getCacheStatistics() {
+        if (cache == null) {
+            throw new IllegalStateException("there is no cache, set one with setResultCache first");
+        }
+        return cache.getStatistics();
+    }
+
+    /**
+     * @return the counters and histograms with the number of nodes, edges and leaves and the estimated heap of the tree,
+     * which are counted now with one walk over the tree
+     */
+    public TreeMetrics.Snapshot getMetrics() throws IllegalStateException {
+        if (metrics == null) {
+            throw new IllegalStateException("the metrics are off, turn them on with setMetrics first");
+        }
+        long nodes = 0;
+        long edges = 0;
+        long leaves = 0;
+        long bytes = text.estimatedBytes();
+        Deque<Node> stack = new ArrayDeque<Node>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            nodes++;
+            bytes += node.estimatedBytes();
+            if (node.getEdges().isEmpty()) {
+                leaves++;
+            }
+            for (Edge e : node.getEdges().values()) {
+                edges++;
+                bytes += Edge.ESTIMATED_BYTES;
+                stack.push(e.getDest());
+            }
+        }
+        return new TreeMetrics.Snapshot(metrics, nodes, edges, leaves, bytes);
+    }
+
+    /**
+     * @return the number of distinct indexes in the tree
+     */
+    public int getDocumentCount() {
+        return documents;
+    }
+
+    private void trimToWindow() {
+        while (window > 0 && documents > window) {
+            remove(text.documentIndex(oldestDocument()));
+        }
+    }
+
+    private int oldestDocument() {
+        while (firstLive < text.documentCount() && text.isRemoved(firstLive)) {
+            firstLive++;
+        }
+        return firstLive;
+    }
+
+    private void decode(CharsetDecoder decoder, ByteBuffer in, CharBuffer out, boolean endOfInput) throws CharacterCodingException {
+        while (true) {
+            CoderResult result = decoder.decode(in, out, endOfInput);
+            if (result.isError()) {
+                result.throwException();
+            }
+            drain(out);
+            if (result.isUnderflow()) {
+                return;
+            }
+        }
+    }
+
+    private void flush(CharsetDecoder decoder, CharBuffer out) {
+        while (decoder.flush(out).isOverflow()) {
+            drain(out);
+        }
+        drain(out);
+    }
+
+    /**
+     * moves the decoded chars of the window to the shared text
+     */
+    private void drain(CharBuffer out) {
+        out.flip();
+        text.append(out.array(), out.arrayOffset() + out.position(), out.remaining());
+        out.clear();
+    }
+
+    private void checkIndex(int index) throws IllegalStateException {
         if (index < last) {
             throw new IllegalStateException("You should give the correct indexing to program .\n"+ index + "should be more than " + last);
-        } else {
-            last = index;
+        }
+    }
+
+    /**
+     * runs the construction over the key that was just appended to the text, from <tt>keyStart</tt> to the end of the text.
+     * the chars are checked first, a key the tree can not take is dropped from the text before anything is built
+     * @throws IllegalArgumentException when the key has a char that is not a single byte
+     */
+    private void construct(int keyStart, int index) {
+        int wide = text.firstWideChar(keyStart);
+        if (wide >= 0) {
+            char c = text.charAt(wide);
+            text.dropLastDocument();
+            throw new IllegalArgumentException("Illegal input character " + c + " at " + (wide - keyStart)
+                    + " of the key, only single byte chars can be put");
+        }
+        TreeMetrics.Phase phase = metrics == null ? null : metrics.begin(TreeMetrics.PHASE_PUT);
+        last = index;
+        documentsBuilt = false;
+        if (cache != null) {
+            cache.invalidate();
         }
 
         activeLeaf = root;
 
-        String remainder = key;
-        Node s = root;
+        int keyEnd = text.length();
+        activeNode = root;
+        activeStart = keyStart;
 
         // proceed with tree construction (closely related to procedure in
         // Ukkonen's paper)
-        String text = "";
-        // iterate over the string, one char at a time
-        for (int i = 0; i < remainder.length(); i++) {
-
-            text = text.intern();
+        // iterate over the string, one char at a time, the active string is text[activeStart, i + 1)
+        for (int i = keyStart; i < keyEnd; i++) {
+            update(i, keyEnd, index);
+            activeNode = canonize(activeNode, activeStart, i + 1);
+            activeStart = canonStart;
+        }
 
-            Pair<Node, String> active = update(s, text, remainder.substring(i), index);
-            active = canonize(active.getFirst(), active.getSecond());
-            
-            s = active.getFirst();
-            text = active.getSecond();
+        if (null == activeLeaf.getSuffix() && activeLeaf != root && activeLeaf != activeNode) {
+            activeLeaf.setSuffix(activeNode);
         }
 
-        if (null == activeLeaf.getSuffix() && activeLeaf != root && activeLeaf != s) {
-            activeLeaf.setSuffix(s);
+        int doc = text.documentCount() - 1;
+        changed(doc, keyEnd - keyStart);
+        if (doc == 0 || text.documentIndex(doc - 1) != index || text.isRemoved(doc - 1)) {
+            documents++;
+            trimToWindow();
+        }
+        if (phase != null) {
+            phase.end(keyEnd - keyStart);
         }
 
     }
 
-    private Pair<Boolean, Node> testAndSplit(final Node inputs, final String stringPart, final char t, final String remainder, final int value) {
+    /**
+     * checks whether the string text[strStart, strEnd) read from <tt>inputs</tt> can be followed by <tt>t</tt>,
+     * splitting an edge when it can not.
+     * the remainder of the key is given as the [restStart, restEnd) offsets in the shared text
+     * the result is returned in {@link #endpoint} and as the node where the new leaf should be added
+     */
+    private Node testAndSplit(final Node inputs, final int strStart, final int strEnd, final char t, final int restStart, final int restEnd, final int value) {
         // descend the tree as far as possible
-        Pair<Node, String> ret = canonize(inputs, stringPart);
-        Node s = ret.getFirst();
-        String str = ret.getSecond();
+        Node s = canonize(inputs, strStart, strEnd);
+        int strLength = strEnd - canonStart;
 
-        if (!"".equals(str)) {
-            Edge g = s.getEdge(str.charAt(0));
+        if (strLength > 0) {
+            Edge g = s.getEdge(text.charAt(canonStart));
 
-            String label = g.getLabel();
             // must see whether "str" is substring of the label of an edge
-            if (label.length() > str.length() && label.charAt(str.length()) == t) {
-                return new Pair<Boolean, Node>(true, s);
+            if (g.length() > strLength && g.charAt(strLength) == t) {
+                endpoint = true;
+                return s;
             } else {
                 // need to split the edge
-                String newlabel = label.substring(str.length());
-                assert (label.startsWith(str));
+                assert (text.regionMatches(g.getStart(), canonStart, strLength));
 
                 // build a new node
-                Node r = new Node();
-                // build a new edge
-                Edge newedge = new Edge(str, r);
+                if (metrics != null) {
+                    metrics.splits++;
+                }
+                Node r = newNode(s, s.getDepth() + strLength);
+                // build a new edge, it takes the first part of the label of g
+                Edge newedge = new Edge(text, g.getStart(), g.getStart() + strLength, r);
 
-                g.setLabel(newlabel);
+                g.setLabel(g.getStart() + strLength, g.getEnd());
+                g.getDest().setParent(r);
 
                 // link s -> r
-                r.addEdge(newlabel.charAt(0), g);
-                s.addEdge(str.charAt(0), newedge);
+                r.addEdge(g.charAt(0), g);
+                s.addEdge(text.charAt(canonStart), newedge);
 
-                return new Pair<Boolean, Node>(false, r);
+                endpoint = false;
+                return r;
             }
 
         } else {
             Edge e = s.getEdge(t);
             if (null == e) {
-                return new Pair<Boolean, Node>(false, s);
+                endpoint = false;
+                return s;
             } else {
-                if (remainder.equals(e.getLabel())) {
+                int restLength = restEnd - restStart;
+                // compare the remainder and the label in place, neither of them is copied
+                int common = Math.min(restLength, e.length());
+                boolean prefix = text.regionMatches(restStart, e.getStart(), common);
+                if (prefix && restLength == e.length()) {
                     // update payload of destination node
                     e.getDest().addRef(value);
-                    return new Pair<Boolean, Node>(true, s);
-                } else if (remainder.startsWith(e.getLabel())) {
-                    return new Pair<Boolean, Node>(true, s);
-                } else if (e.getLabel().startsWith(remainder)) {
+                    endpoint = true;
+                    return s;
+                } else if (prefix && restLength > e.length()) {
+                    endpoint = true;
+                    return s;
+                } else if (prefix) {
                     // need to split as above
-                    Node newNode = new Node();
+                    if (metrics != null) {
+                        metrics.splits++;
+                    }
+                    Node newNode = newNode(s, s.getDepth() + restLength);
                     newNode.addRef(value);
 
-                    Edge newEdge = new Edge(remainder, newNode);
+                    Edge newEdge = new Edge(text, e.getStart(), e.getStart() + restLength, newNode);
 
-                    e.setLabel(e.getLabel().substring(remainder.length()));
+                    e.setLabel(e.getStart() + restLength, e.getEnd());
+                    e.getDest().setParent(newNode);
 
-                    newNode.addEdge(e.getLabel().charAt(0), e);
+                    newNode.addEdge(e.charAt(0), e);
 
                     s.addEdge(t, newEdge);
 
-                    return new Pair<Boolean, Node>(false, s);
+                    endpoint = false;
+                    return s;
                 } else {
                     // they are different words. No prefix. but they may still share some common substr
-                    return new Pair<Boolean, Node>(true, s);
+                    endpoint = true;
+                    return s;
                 }
             }
         }
 
     }
 
+    /**
+     * @return a new node below <tt>parent</tt> with the given string depth, remembered until the document sets are built
+     */
+    private Node newNode(Node parent, int depth) {
+        Node node = new Node(depth);
+        node.setParent(parent);
+        if (!rebuild) {
+            created.add(node);
+        }
+        return node;
+    }
 
-    private Pair<Node, String> canonize(final Node s, final String inputstr) {
+    /**
+     * remembers a document that was put, or removed with -(doc + 1), for the next update of the document sets
+     */
+    private void changed(int doc, int length) {
+        documentsBuilt = false;
+        if (rebuild) {
+            return;
+        }
+        pendingChars += length;
+        if (2 * pendingChars > text.length()) {
+            // the updates would cost more than building everything again
+            rebuild = true;
+            pendingCount = 0;
+            created.clear();
+            return;
+        }
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, 2 * pendingCount);
+        }
+        pending[pendingCount++] = doc;
+    }
 
-        if ("".equals(inputstr)) {
-            return new Pair<Node, String>(s, inputstr);
-        } else {
-            Node currentNode = s;
-            String str = inputstr;
-            Edge g = s.getEdge(str.charAt(0));
+    /**
+     * descends from <tt>s</tt> along text[start, end) as long as whole edges are matched.
+     * the active string always exists in the tree, so only the label lengths are needed (skip/count trick)
+     * returns the deepest node reached and stores the start of what is left of the string in {@link #canonStart}
+     */
+    private Node canonize(final Node s, final int start, final int end) {
+        Node currentNode = s;
+        int str = start;
+        if (str < end) {
+            Edge g = s.getEdge(text.charAt(str));
             // descend the tree as long as a proper label is found
-            while (g != null && str.startsWith(g.getLabel())) {
-                str = str.substring(g.getLabel().length());
+            while (g != null && end - str >= g.length()) {
+                assert (text.regionMatches(g.getStart(), str, g.length()));
+                str += g.length();
                 currentNode = g.getDest();
-                if (str.length() > 0) {
-                    g = currentNode.getEdge(str.charAt(0));
+                if (metrics != null) {
+                    metrics.canonizeSteps++;
+                }
+                if (str < end) {
+                    g = currentNode.getEdge(text.charAt(str));
                 }
             }
-
-            return new Pair<Node, String>(currentNode, str);
         }
+
+        canonStart = str;
+        return currentNode;
     }
 
-    private Pair<Node, String> update(final Node inputNode, final String stringPart, final String rest, final int value) {
-        Node s = inputNode;
-        String tempstr = stringPart;
-        char newChar = stringPart.charAt(stringPart.length() - 1);
+    /**
+     * adds the char at offset <tt>i</tt> to the tree, starting from the active point (activeNode, text[activeStart, i + 1))
+     * and leaves the new active point in the same fields
+     */
+    private void update(final int i, final int restEnd, final int value) {
+        Node s = activeNode;
+        int k = activeStart;
+        char newChar = text.charAt(i);
 
         // line 1
         Node oldroot = root;
 
         // line 1b
-        Pair<Boolean, Node> ret = testAndSplit(s, tempstr.substring(0, tempstr.length() - 1), newChar, rest, value);
-
-        Node r = ret.getSecond();
-        boolean endpoint = ret.getFirst();
+        Node r = testAndSplit(s, k, i, newChar, i, restEnd, value);
 
         Node leaf;
         while (!endpoint) {
@@ -261,9 +1020,9 @@ public class GeneralizedSuffixTreeImp {
                 leaf = tempEdge.getDest();
             } else {
                 // must build a new leaf
-                leaf = new Node();
+                leaf = newNode(r, r.getDepth() + restEnd - i);
                 leaf.addRef(value);
-                Edge newedge = new Edge(rest, leaf);
+                Edge newedge = new Edge(text, i, restEnd, leaf);
                 r.addEdge(newChar, newedge);
             }
 
@@ -281,45 +1040,450 @@ public class GeneralizedSuffixTreeImp {
             if (null == s.getSuffix()) { // root node
                 assert (root == s);
                 // this is a special case to handle what is referred to as node _|_ on the paper
-                tempstr = tempstr.substring(1);
+                k++;
             } else {
-                Pair<Node, String> canret = canonize(s.getSuffix(), safeCutLastChar(tempstr));
-                s = canret.getFirst();
-                // use intern to ensure that tempstr is a reference from the string pool
-                tempstr = (canret.getSecond() + tempstr.charAt(tempstr.length() - 1)).intern();
+                // the string without its last char is text[k, i), it is empty once k passed i
+                if (metrics != null) {
+                    metrics.suffixLinkWalks++;
+                }
+                s = canonize(s.getSuffix(), k, Math.max(k, i));
+                k = canonStart;
             }
 
             // line 7
-            ret = testAndSplit(s, safeCutLastChar(tempstr), newChar, rest, value);
-            r = ret.getSecond();
-            endpoint = ret.getFirst();
-
+            r = testAndSplit(s, k, Math.max(k, i), newChar, i, restEnd, value);
         }
 
         // line 8
         if (oldroot != root) {
             oldroot.setSuffix(r);
         }
-        oldroot = root;
 
-        return new Pair<Node, String>(s, tempstr);
+        activeNode = s;
+        activeStart = k;
     }
 
     public Node getRoot() {
         return root;
     }
 
-    private String safeCutLastChar(String seq) {
-        if (seq.length() == 0) {
-            return "";
-        }
-        return seq.substring(0, seq.length() - 1);
+    /**
+     * @return the shared text that the edge labels point into
+     */
+    public TextBuffer getText() {
+        return text;
     }
 
+    /**
+     * computes and caches in every node the number of distinct indexes below it and its string depth,
+     * with one linear pass (see {@link TreeAnalysis}). it must be called again after the next put
+     */
     public int computeCount() {
-        return root.computeAndCacheCount();
+        analyze();
+        return root.getResultCount();
+    }
+
+    /**
+     * numbers the nodes and computes their string depth and distinct index count in one linear pass,
+     * the result is a snapshot: it must be computed again after the next put
+     */
+    public TreeAnalysis analyze() {
+        buildDocumentSets();
+        return new TreeAnalysis(this);
+    }
+
+    /**
+     * prepares the constant time longest common extension and LCA queries over the tree as it is now,
+     * it must be prepared again after the next put
+     */
+    public LongestCommonExtension lce() {
+        return new LongestCommonExtension(analyze());
+    }
+
+    /**
+     * brings the document sets of the nodes up to date with the keys that were put or removed since the last time,
+     * nothing is done if there are none. a few keys are applied one by one ({@link #updateDocumentSets()}), so a search
+     * after every put only costs about the nodes of the new key; the whole tree is built again the first time,
+     * after a compaction, or once the pending keys are half of the text ({@link #buildAllDocumentSets()}).
+     * the searches of a tree that is not changed any more can run on many threads, the first ones wait for the build
+     */
+    private void buildDocumentSets() {
+        if (documentsBuilt) {
+            return;
+        }
+        synchronized (buildLock) {
+            if (documentsBuilt) {
+                return;
+            }
+            TreeMetrics.Phase phase = metrics == null ? null : metrics.begin(TreeMetrics.PHASE_DOCUMENT_SETS);
+            int changedNodes = rebuild ? buildAllDocumentSets() : updateDocumentSets();
+            rebuild = false;
+            pendingCount = 0;
+            pendingChars = 0;
+            created.clear();
+            removedSinceBuild = false;
+            documentsBuilt = true;
+            if (phase != null) {
+                phase.end(changedNodes);
+            }
+        }
     }
 
+    /**
+     * builds in bulk the payloads of the nodes once the keys are in, instead of walking the suffix links on every addRef.
+     * first the indexes are copied along the suffix links, deepest nodes first since a suffix link always goes up,
+     * then every node gets the compressed set of its own indexes and the sets of its children, and caches the size of the set
+     * and its string depth ({@link Node#getResultCount()}, {@link Node#getDepth()}).
+     * @return the number of nodes
+     */
+    private int buildAllDocumentSets() {
+        // depth first order with the string depth of every node, the depths waiting on the stack are kept aside
+        List<Node> nodes = new ArrayList<Node>();
+        int[] depth = new int[16];
+        int[] stackDepth = new int[16];
+        Deque<Node> stack = new ArrayDeque<Node>();
+        stack.push(root);
+        stackDepth[0] = 0;
+        int maxDepth = 0;
+        while (!stack.isEmpty()) {
+            int nodeDepth = stackDepth[stack.size() - 1];
+            Node node = stack.pop();
+            if (nodes.size() == depth.length) {
+                depth = Arrays.copyOf(depth, 2 * depth.length);
+            }
+            depth[nodes.size()] = nodeDepth;
+            nodes.add(node);
+            maxDepth = Math.max(maxDepth, nodeDepth);
+            if (stack.size() + node.getEdges().size() > stackDepth.length) {
+                stackDepth = Arrays.copyOf(stackDepth, 2 * (stack.size() + node.getEdges().size()));
+            }
+            for (Edge e : node.getEdges().values()) {
+                stackDepth[stack.size()] = nodeDepth + e.length();
+                stack.push(e.getDest());
+                e.getDest().setParent(node);
+            }
+        }
+
+        int[] colors = TreeAnalysis.distinctIndexes(text);
+        if (removedSinceBuild) {
+            for (Node node : nodes) {
+                node.retainRefs(colors);
+            }
+        }
+
+        // copy the indexes along the suffix links, sorting the nodes by decreasing depth with a counting sort
+        int[] byDepth = new int[maxDepth + 2];
+        for (int v = 0; v < nodes.size(); v++) {
+            byDepth[depth[v]]++;
+        }
+        for (int d = maxDepth; d > 0; d--) {
+            byDepth[d - 1] += byDepth[d];
+        }
+        Node[] deepestFirst = new Node[nodes.size()];
+        for (int v = 0; v < nodes.size(); v++) {
+            deepestFirst[--byDepth[depth[v]]] = nodes.get(v);
+        }
+        for (Node node : deepestFirst) {
+            if (node.getSuffix() != null) {
+                node.getSuffix().addRefs(node);
+                if (metrics != null) {
+                    metrics.refPropagations++;
+                }
+            }
+        }
+
+        // children come after their parent in depth first order, so going backward every child set is ready.
+        // the duplicates are dropped with a stamp per index value before sorting, so only the distinct indexes are sorted
+        int[] scratch = new int[16];
+        int[] stamp = new int[colors.length];
+        Arrays.fill(stamp, -1);
+        for (int v = nodes.size() - 1; v >= 0; v--) {
+            Node node = nodes.get(v);
+            int size = node.getIndexCount();
+            for (Edge e : node.getEdges().values()) {
+                size += e.getDest().getDocuments().cardinality();
+            }
+            if (size > scratch.length) {
+                scratch = new int[Math.max(size, 2 * scratch.length)];
+            }
+            int n = 0;
+            for (int i = 0; i < node.getIndexCount(); i++) {
+                n = addDistinct(scratch, n, colors, stamp, v, node.getIndex(i));
+            }
+            for (Edge e : node.getEdges().values()) {
+                PrimitiveIterator.OfInt it = e.getDest().getDocuments().iterator();
+                while (it.hasNext()) {
+                    n = addDistinct(scratch, n, colors, stamp, v, it.nextInt());
+                }
+            }
+            Arrays.sort(scratch, 0, n);
+            node.setDocuments(DocumentSet.of(scratch, n));
+            node.cacheCount(n, depth[v]);
+        }
+        return nodes.size();
+    }
+
+    /**
+     * applies the pending puts and removals to the sets that were built before. every suffix of a pending key ends on a node,
+     * found from the one of the previous suffix through its suffix link, where the index of the key is added to
+     * (or dropped from) the refs. the nodes above it get the index in their set with {@link DocumentSet#with(int)}
+     * (or lose it with {@link DocumentSet#without(int)}), and a path is climbed only up to the first node this key already
+     * went through, so a key changes about as many sets as it has nodes. the nodes made since the last build come last:
+     * their set is the one of their children and their own refs, deepest nodes first.
+     * @return the number of sets that changed
+     */
+    private int updateDocumentSets() {
+        int changedNodes = created.size();
+        for (int p = 0; p < pendingCount; p++) {
+            boolean put = pending[p] >= 0;
+            int doc = put ? pending[p] : -pending[p] - 1;
+            int index = text.documentIndex(doc);
+            int start = text.documentStart(doc);
+            int end = text.documentEnd(doc);
+            stamp++;
+            if (start < end) {
+                // the root is where the empty suffix ends, every key that is not empty has a ref there too
+                changedNodes += updatePath(root, index, put);
+            }
+            Node node = root;
+            for (int i = start; i < end; i++) {
+                node = i == start ? locate(i, end) : nextSuffix(node, i, end);
+                changedNodes += updatePath(node, index, put);
+            }
+        }
+
+        Collections.sort(created, (a, b) -> Integer.compare(b.getDepth(), a.getDepth()));
+        int[] scratch = new int[16];
+        for (Node node : created) {
+            int size = node.getIndexCount();
+            for (Edge e : node.getEdges().values()) {
+                size += e.getDest().getDocuments().cardinality();
+            }
+            if (size > scratch.length) {
+                scratch = new int[Math.max(size, 2 * scratch.length)];
+            }
+            int n = 0;
+            for (int i = 0; i < node.getIndexCount(); i++) {
+                scratch[n++] = node.getIndex(i);
+            }
+            for (Edge e : node.getEdges().values()) {
+                n = e.getDest().getDocuments().copyTo(scratch, n);
+            }
+            Arrays.sort(scratch, 0, n);
+            int distinct = 0;
+            for (int i = 0; i < n; i++) {
+                if (distinct == 0 || scratch[i] != scratch[distinct - 1]) {
+                    scratch[distinct++] = scratch[i];
+                }
+            }
+            node.setDocuments(DocumentSet.of(scratch, distinct));
+            node.cacheCount(distinct, node.getDepth());
+        }
+        return changedNodes;
+    }
+
+    /**
+     * adds <tt>index</tt> to the refs of <tt>node</tt> and to the sets of the nodes above it, or drops it from them,
+     * up to the first node that was already done for the same key
+     * @return the number of sets that changed
+     */
+    private int updatePath(Node node, int index, boolean put) {
+        if (put) {
+            node.addRef(index);
+        } else {
+            node.removeRef(index);
+        }
+        int changedNodes = 0;
+        for (Node up = node; up != null && up.mark != stamp; up = up.getParent()) {
+            up.mark = stamp;
+            if (up.hasDocuments()) {
+                DocumentSet set = put ? up.getDocuments().with(index) : up.getDocuments().without(index);
+                if (set != up.getDocuments()) {
+                    up.setDocuments(set);
+                    up.cacheCount(set.cardinality(), up.getDepth());
+                    changedNodes++;
+                }
+            }
+        }
+        return changedNodes;
+    }
+
+    /**
+     * @return the node where text[from, end) ends, going down from the root and reading only the first char of every edge
+     */
+    private Node locate(int from, int end) {
+        Node node = root;
+        int i = from;
+        while (i < end) {
+            Edge e = node.getEdge(text.charAt(i));
+            if (e == null) {
+                break;
+            }
+            i += e.length();
+            node = e.getDest();
+        }
+        if (i != end) {
+            throw new IllegalStateException("the suffix at " + from + " does not end on a node");
+        }
+        return node;
+    }
+
+    /**
+     * @return the node where text[from, end) ends, given the node of text[from - 1, end): its suffix link when it is
+     * at the right depth and still in the tree, or a walk from the root
+     */
+    private Node nextSuffix(Node node, int from, int end) {
+        Node next = node.getSuffix();
+        if (next != null && next.getParent() != null && next.getDepth() == end - from) {
+            return next;
+        }
+        return locate(from, end);
+    }
+
+    /**
+     * frees what the removed keys left behind. the nodes without any index below them are cut, a node left with one child
+     * and no index of its own is merged with its child, then the chars of the removed keys are dropped from the text and
+     * every label is moved to a live key that has the same string. linear in the size of the tree
+     */
+    private void compact() {
+        buildDocumentSets();
+        TreeMetrics.Phase phase = metrics == null ? null : metrics.begin(TreeMetrics.PHASE_COMPACTION);
+
+        // breadth first order, a parent is always before its children
+        List<Node> nodes = new ArrayList<Node>();
+        List<Edge> incoming = new ArrayList<Edge>();
+        int[] parent = new int[16];
+        nodes.add(root);
+        incoming.add(null);
+        parent[0] = -1;
+        for (int v = 0; v < nodes.size(); v++) {
+            Node node = nodes.get(v);
+            node.order = v;
+            for (Edge e : node.getEdges().values()) {
+                if (nodes.size() == parent.length) {
+                    parent = Arrays.copyOf(parent, 2 * parent.length);
+                }
+                parent[nodes.size()] = v;
+                nodes.add(e.getDest());
+                incoming.add(e);
+            }
+        }
+
+        // children first: cut or merge the node, or find where its string ends in a live key, (document, end offset)
+        int n = nodes.size();
+        boolean[] gone = new boolean[n];
+        int[] liveDoc = new int[n];
+        int[] liveEnd = new int[n];
+        for (int v = n - 1; v > 0; v--) {
+            Node node = nodes.get(v);
+            Edge in = incoming.get(v);
+            if (node.getIndexCount() == 0 && node.getEdges().size() <= 1) {
+                if (node.getEdges().isEmpty()) {
+                    nodes.get(parent[v]).removeEdge(in.charAt(0));
+                } else {
+                    Edge below = node.getEdges().values().iterator().next();
+                    int end = below.getEnd();
+                    in.setLabel(end - in.length() - below.length(), end);
+                    in.setDest(below.getDest());
+                    below.getDest().setParent(nodes.get(parent[v]));
+                }
+                node.setParent(null);
+                gone[v] = true;
+            } else if (!node.getEdges().isEmpty()) {
+                Edge e = node.getEdges().values().iterator().next();
+                int child = e.getDest().order;
+                liveDoc[v] = liveDoc[child];
+                liveEnd[v] = liveEnd[child] - e.length();
+            } else {
+                liveDoc[v] = liveDocument(node.getIndex(0), in.getEnd(), node.getDepth());
+                liveEnd[v] = text.documentEnd(liveDoc[v]);
+            }
+        }
+
+        int[] shift = text.compact();
+        for (int v = 0; v < n; v++) {
+            if (gone[v]) {
+                continue;
+            }
+            for (Edge e : nodes.get(v).getEdges().values()) {
+                int child = e.getDest().order;
+                int end = liveEnd[child] + shift[liveDoc[child]];
+                e.setLabel(end - e.length(), end);
+            }
+        }
+        firstLive = 0;
+        documentsBuilt = false;
+        // the documents were numbered again, the next build goes over the whole tree
+        rebuild = true;
+        if (phase != null) {
+            phase.end(n);
+        }
+    }
+
+    /**
+     * @return a live key of <tt>index</tt> that ends with the <tt>length</tt> chars before <tt>end</tt>
+     */
+    private int liveDocument(int index, int end, int length) {
+        int d = text.firstDocument(index);
+        if (d + 1 == text.documentCount() || text.documentIndex(d + 1) != index) {
+            // the only key of the index, a leaf with its ref is always one of its suffixes
+            return d;
+        }
+        for (; d < text.documentCount() && text.documentIndex(d) == index; d++) {
+            if (text.documentEndsWith(d, end, length)) {
+                return d;
+            }
+        }
+        throw new IllegalStateException("no key of " + index + " ends with " + text.substring(end - length, end));
+    }
+
+    /**
+     * appends <tt>index</tt> to <tt>scratch</tt> unless it was already added for node <tt>v</tt>
+     */
+    private static int addDistinct(int[] scratch, int n, int[] colors, int[] stamp, int v, int index) {
+        int color = Arrays.binarySearch(colors, index);
+        if (stamp[color] != v) {
+            stamp[color] = v;
+            scratch[n++] = index;
+        }
+        return n;
+    }
+
+
+    /**
+     * the counters of the result cache at one moment, see {@link #setResultCache(long)}
+     */
+    public static final class CacheStatistics {
+
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        /**
+         * the number of times the entries were dropped because the tree changed
+         */
+        public final long invalidations;
+        public final int entries;
+        public final long bytes;
+
+        CacheStatistics(long hits, long misses, long evictions, long invalidations, int entries, long bytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+            this.entries = entries;
+            this.bytes = bytes;
+        }
+
+        public double hitRate() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hits + " misses=" + misses + " evictions=" + evictions + " invalidations=" + invalidations
+                    + " entries=" + entries + " bytes=" + bytes;
+        }
+    }
 
     public static class ResultInfo {
 
@@ -337,26 +1501,4 @@ public class GeneralizedSuffixTreeImp {
             this.results = results;
         }
     }
-
-    /**
-     * A private class used to return a tuples of two elements
-     */
-    private class Pair<A, B> {
-
-        private final A first;
-        private final B second;
-
-        public Pair(A first, B second) {
-            this.first = first;
-            this.second = second;
-        }
-
-        public A getFirst() {
-            return first;
-        }
-
-        public B getSecond() {
-            return second;
-        }
-    }
 }
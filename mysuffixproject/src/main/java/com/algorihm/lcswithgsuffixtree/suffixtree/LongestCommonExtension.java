@@ -0,0 +1,150 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import java.util.Arrays;
+
+/**
+ * Longest common extension and lowest common ancestor queries in constant time over a finished tree,
+ * see {@link GeneralizedSuffixTreeImp#lce()}.
+ *
+ * every suffix of every key ends on a node, so the longest common prefix of two suffixes is the string depth of the LCA
+ * of their two nodes. with the nodes in depth first order, the LCA of u and v (u before v) is the parent of the shallowest
+ * node in (u, v], so the string depth of the parent of every node is put in an array with {@link RangeMinimum} on it,
+ * and an LCE is two array reads and one range minimum.
+ * the node of every suffix is found once per key by following the suffix links from the node of the whole key.
+ *
+ * it is a snapshot like {@link TreeAnalysis}: about 4 bytes per char and 12 bytes per node, built again after the next put
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class LongestCommonExtension {
+
+    private final TreeAnalysis analysis;
+    private final TextBuffer text;
+    /**
+     * the node (in the numbering of the analysis) where the suffix that starts at every offset of the text ends,
+     * -1 for the chars of the removed keys
+     */
+    private final int[] locus;
+    /**
+     * over the string depth of the parent of every node
+     */
+    private final RangeMinimum parentDepth;
+
+    LongestCommonExtension(TreeAnalysis analysis) {
+        this.analysis = analysis;
+        text = analysis.getText();
+        int size = analysis.size();
+
+        int[] values = new int[size];
+        for (int v = 1; v < size; v++) {
+            values[v] = analysis.getDepth(analysis.getParent(v));
+        }
+        parentDepth = new RangeMinimum(values);
+
+        locus = new int[text.length()];
+        Arrays.fill(locus, -1);
+        for (int d = 0; d < text.documentCount(); d++) {
+            if (text.isRemoved(d)) {
+                continue;
+            }
+            int start = text.documentStart(d);
+            int end = text.documentEnd(d);
+            int v = start < end ? walk(start, end) : 0;
+            for (int i = start; i < end; i++) {
+                locus[i] = v;
+                if (i + 1 < end) {
+                    // the suffix link is the next suffix when it is at the right depth and still in the tree
+                    Node next = analysis.getNode(v).getSuffix();
+                    if (next != null && next.order >= 0 && next.order < size && analysis.getNode(next.order) == next
+                            && analysis.getDepth(next.order) == end - i - 1) {
+                        v = next.order;
+                    } else {
+                        v = walk(i + 1, end);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the node where text[from, end) ends, going down from the root and reading only the first char of every edge
+     */
+    private int walk(int from, int end) {
+        Node node = analysis.getNode(0);
+        int i = from;
+        while (i < end) {
+            Edge e = node.getEdge(text.charAt(i));
+            if (e == null) {
+                break;
+            }
+            i += e.length();
+            node = e.getDest();
+        }
+        if (i != end) {
+            throw new IllegalStateException("the suffix at " + from + " does not end on a node");
+        }
+        return node.order;
+    }
+
+    /**
+     * @return the length of the longest common prefix of the suffix that starts at <tt>offset1</tt> in key <tt>doc1</tt>
+     * and the one that starts at <tt>offset2</tt> in key <tt>doc2</tt>. the keys are numbered in the order of the puts,
+     * {@link TextBuffer#firstDocument(int)} gives the first key of an index. an offset can be the length of its key (empty suffix)
+     */
+    public int lce(int doc1, int offset1, int doc2, int offset2) {
+        int u = locus(doc1, offset1);
+        int v = locus(doc2, offset2);
+        if (u == 0 || v == 0) {
+            // only the empty suffix ends on the root
+            return 0;
+        }
+        if (u == v) {
+            return analysis.getDepth(u);
+        }
+        return parentDepth.get(parentDepth.query(Math.min(u, v) + 1, Math.max(u, v)));
+    }
+
+    /**
+     * @return the node (in the numbering of {@link #getAnalysis()}) where the suffix at <tt>offset</tt> of key <tt>doc</tt> ends,
+     * the root for the empty suffix
+     */
+    public int locus(int doc, int offset) {
+        if (doc < 0 || doc >= text.documentCount() || text.isRemoved(doc)) {
+            throw new IllegalArgumentException("there is no key " + doc);
+        }
+        int start = text.documentStart(doc);
+        int length = text.documentEnd(doc) - start;
+        if (offset < 0 || offset > length) {
+            throw new IllegalArgumentException("the offset " + offset + " is not in key " + doc);
+        }
+        return offset == length ? 0 : locus[start + offset];
+    }
+
+    /**
+     * @return the lowest common ancestor of the nodes u and v of the analysis
+     */
+    public int lca(int u, int v) {
+        if (u == v) {
+            return u;
+        }
+        return analysis.getParent(parentDepth.query(Math.min(u, v) + 1, Math.max(u, v)));
+    }
+
+    public TreeAnalysis getAnalysis() {
+        return analysis;
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+/**
+ * Receives the matching statistics of a query, see {@link GeneralizedSuffixTreeImp#matchingStatistics(java.io.Reader, MatchListener)}
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public interface MatchListener {
+
+    /**
+     * called once for every position of the query, in order
+     * @param position  the position in the query
+     * @param length    the length of the longest substring starting at <tt>position</tt> that is in one of the keys, 0 if none
+     * @param documents the indexes whose key contains that substring (empty when the length is 0)
+     */
+    void match(long position, int length, DocumentSet documents);
+}
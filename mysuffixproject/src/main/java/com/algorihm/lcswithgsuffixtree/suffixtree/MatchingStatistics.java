@@ -0,0 +1,184 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ * The matching statistics of a query against the tree: for every position i of the query, the longest prefix of
+ * query[i..] that is a substring of some key.
+ *
+ * the match is kept as a point in the tree: the node v, and k chars down the edge that starts with
+ * the next char. when the match can not be extended, the match of position i + 1 is the same string without its
+ * first char, so the walk goes on from the suffix link of v and only the k chars below v are descended again, one edge
+ * at a time (skip / count), which makes the whole query linear. the chars to descend are read back from the text of the
+ * tree (the match is a path, so it is text[end - length, end) for the offset <tt>end</tt> where it stops),
+ * so the query itself is read only once, forward, and never kept.
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+class MatchingStatistics {
+
+    private static final int WINDOW_SIZE = 8192;
+
+    private final Node root;
+    private final TextBuffer text;
+    /**
+     * the query is read through this window, so only WINDOW_SIZE chars of it are in memory at a time
+     */
+    private final CharBuffer window = CharBuffer.allocate(WINDOW_SIZE);
+    private Readable query;
+
+    private Node node;
+    /**
+     * an offset of the text where the string of <tt>node</tt> ends
+     */
+    private int nodeEnd;
+    /**
+     * the edge below <tt>node</tt> the match goes into and how many of its chars are matched, 0 when it stops on the node
+     */
+    private Edge edge;
+    private int down;
+
+    MatchingStatistics(Node root, TextBuffer text) {
+        this.root = root;
+        this.text = text;
+    }
+
+    void run(Readable query, MatchListener listener) throws IOException {
+        this.query = query;
+        window.clear().flip();
+        node = root;
+        nodeEnd = 0;
+        edge = null;
+        down = 0;
+        int length = 0;
+        long position = 0;
+        int next = read();
+        while (next >= 0 || length > 0) {
+            // extend the match as far as the query allows
+            while (next >= 0 && extend((char) next)) {
+                length++;
+                next = read();
+            }
+            listener.match(position, length, documents(length));
+            position++;
+            if (length == 0) {
+                // not even the first char is in the tree, it is skipped
+                next = read();
+            } else {
+                length--;
+                dropFirstChar(length);
+            }
+        }
+    }
+
+    /**
+     * @return the next char of the query or -1 at its end
+     */
+    private int read() throws IOException {
+        if (!window.hasRemaining()) {
+            window.clear();
+            int n = query.read(window);
+            while (n == 0) {
+                n = query.read(window);
+            }
+            window.flip();
+            if (n < 0) {
+                return -1;
+            }
+        }
+        return window.get();
+    }
+
+    /**
+     * moves the match one char down if the tree has <tt>c</tt> there
+     */
+    private boolean extend(char c) {
+        if (down == 0) {
+            Edge e = edgeOf(node, c);
+            if (e == null) {
+                return false;
+            }
+            edge = e;
+        } else if (text.charAt(edge.getStart() + down) != c) {
+            return false;
+        }
+        down++;
+        if (down == edge.length()) {
+            node = edge.getDest();
+            nodeEnd = edge.getEnd();
+            edge = null;
+            down = 0;
+        }
+        return true;
+    }
+
+    /**
+     * the tree only has edges for single byte chars, any other char just does not match.
+     * an edge whose subtree has no index left only holds the text of removed keys (it stays until the next compaction),
+     * so it is not there either and the match stops on the deepest node that still has live keys below it
+     */
+    private static Edge edgeOf(Node node, char c) {
+        if (c != (char) (byte) c) {
+            return null;
+        }
+        Edge e = node.getEdge(c);
+        if (e == null || e.getDest().getDocuments().isEmpty()) {
+            return null;
+        }
+        return e;
+    }
+
+    /**
+     * changes the match (of the given length once shortened) to the same string without its first char
+     */
+    private void dropFirstChar(int length) {
+        // the string of the match is text[end - (length + 1), end)
+        int end = down == 0 ? nodeEnd : edge.getStart() + down;
+        int below = down;
+        if (node != root && node.getSuffix() != null) {
+            // the string of the suffix link is the one of the node without its first char, it ends at the same offset
+            node = node.getSuffix();
+        } else {
+            below = length;
+            node = root;
+        }
+        edge = null;
+        down = 0;
+        // skip / count: only the first char of every edge is looked at
+        int from = end - below;
+        while (below > 0) {
+            Edge e = node.getEdge(text.charAt(from));
+            if (below < e.length()) {
+                edge = e;
+                down = below;
+                return;
+            }
+            node = e.getDest();
+            nodeEnd = e.getEnd();
+            from += e.length();
+            below -= e.length();
+        }
+    }
+
+    private DocumentSet documents(int length) {
+        if (length == 0) {
+            return DocumentSet.EMPTY;
+        }
+        return down == 0 ? node.getDocuments() : edge.getDest().getDocuments();
+    }
+}
@@ -15,9 +15,11 @@
  */
 package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.PrimitiveIterator;
 import java.util.Set;
 
 /**
@@ -40,13 +42,13 @@ Boolean checked = false;
 
     private int lastIdx = 0;
     /**
-     * The starting size of the int[] array containing the payload
+     * The starting size of the int[] array containing the payload, it doubles when it is full
      */
     private static final int START_SIZE = 0;
     /**
-     * The increment in size used when the payload array is full
+     * The indexes of the whole subtree, built in bulk by the tree once the keys are in (null until then)
      */
-    private static final int INCREMENT = 1;
+    private DocumentSet documents;
     /**
      * The set of edges starting from this node
      */
@@ -57,9 +59,24 @@ Boolean checked = false;
      * is the node denoted by the path that corresponds to str without the first char.
      */
     private Node suffix;
+    /**
+     * the node above this one, null for the root and for the nodes a compaction took out of the tree
+     */
+    private Node parent;
 
     private int resultCount = -1;
 
+    private int depth = -1;
+
+    /**
+     * position of this node in the depth first numbering of the last traversal that numbered the tree
+     */
+    int order = -1;
+    /**
+     * the last update of the document sets that went through this node, so a path to the root is climbed only once
+     */
+    int mark = 0;
+
     /**
      * Creates a new Node
      */
@@ -69,6 +86,14 @@ Boolean checked = false;
         data = new int[START_SIZE];
     }
 
+    /**
+     * Creates a new Node whose string depth is already known, the tree gives it while it is built
+     */
+    Node(int depth) {
+        this();
+        this.depth = depth;
+    }
+
 
     public Collection<Integer> getData() {
         return getData(-1);
@@ -77,28 +102,38 @@ Boolean checked = false;
 
     Collection<Integer> getData(int numElements) {
         Set<Integer> ret = new HashSet<Integer>();
-        for (int num : data) {
-            ret.add(num);
-            if (ret.size() == numElements) {
-                return ret;
-            }
-        }
-        // need to get more matches from child nodes. This is what may waste time
-        for (Edge e : edges.values()) {
-            if (-1 == numElements || ret.size() < numElements) {
-                for (int num : e.getDest().getData()) {
-                    ret.add(num);
-                    if (ret.size() == numElements) {
-                        return ret;
-                    }
-                }
-            }
+        PrimitiveIterator.OfInt it = getDocuments().iterator();
+        while (ret.size() != numElements && it.hasNext()) {
+            ret.add(it.nextInt());
         }
         return ret;
     }
 
     /**
-     * Adds the given <tt>index</tt> to the set of indexes associated with <tt>this</tt>
+     * @return the compressed set of the indexes of the whole subtree
+     */
+    public DocumentSet getDocuments() throws IllegalStateException {
+        if (null == documents) {
+            throw new IllegalStateException("getDocuments() shouldn't be called before the tree is searched or computeCount() is called");
+        }
+        return documents;
+    }
+
+    void setDocuments(DocumentSet documents) {
+        this.documents = documents;
+    }
+
+    /**
+     * @return false for a node that was made after the last time the document sets were built
+     */
+    boolean hasDocuments() {
+        return documents != null;
+    }
+
+    /**
+     * Adds the given <tt>index</tt> to the set of indexes associated with <tt>this</tt>.
+     * the suffixes of this node are not updated here, the tree copies the indexes along the suffix links in bulk
+     * (see {@link #addRefs(Node)}) when the construction is over
      */
     void addRef(int index) {
         if (contains(index)) {
@@ -106,17 +141,57 @@ Boolean checked = false;
         }
 
         addIndex(index);
+    }
+
+    /**
+     * drops <tt>index</tt> from the indexes stored in this node itself
+     */
+    void removeRef(int index) {
+        int i = Arrays.binarySearch(data, 0, lastIdx, index);
+        if (i >= 0) {
+            System.arraycopy(data, i + 1, data, i, lastIdx - i - 1);
+            lastIdx--;
+        }
+    }
 
-        // add this reference to all the suffixes as well
-        Node iter = this.suffix;
-        while (iter != null) {
-            if (iter.contains(index)) {
-                break;
+    /**
+     * drops the indexes of <tt>this</tt> that are not in <tt>live</tt> (sorted), used once keys were removed from the tree
+     */
+    void retainRefs(int[] live) {
+        int n = 0;
+        for (int i = 0; i < lastIdx; i++) {
+            if (Arrays.binarySearch(live, data[i]) >= 0) {
+                data[n++] = data[i];
             }
-            iter.addRef(index);
-            iter = iter.suffix;
         }
+        lastIdx = n;
+    }
 
+    /**
+     * Adds all the indexes of <tt>other</tt> to <tt>this</tt> with one merge of the two sorted payloads
+     */
+    void addRefs(Node other) {
+        if (other.lastIdx == 0) {
+            return;
+        }
+        int[] merged = new int[lastIdx + other.lastIdx];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < lastIdx || j < other.lastIdx) {
+            int next;
+            if (j == other.lastIdx || (i < lastIdx && data[i] < other.data[j])) {
+                next = data[i++];
+            } else if (i == lastIdx || other.data[j] < data[i]) {
+                next = other.data[j++];
+            } else {
+                next = data[i++];
+                j++;
+            }
+            merged[n++] = next;
+        }
+        data = merged;
+        lastIdx = n;
     }
 
 
@@ -140,44 +215,75 @@ Boolean checked = false;
     }
 
 
-    protected int computeAndCacheCount() {
-        computeAndCacheCountRecursive();
-        return resultCount;
+    /**
+     * stores the values computed by the analysis of the tree, see {@link GeneralizedSuffixTreeImp#computeCount()}
+     */
+    void cacheCount(int resultCount, int depth) {
+        this.resultCount = resultCount;
+        this.depth = depth;
     }
 
-    private Set<Integer> computeAndCacheCountRecursive() {
-        Set<Integer> ret = new HashSet<Integer>();
-        for (int num : data) {
-            ret.add(num);
+    public int getResultCount() throws IllegalStateException {
+        if (-1 == resultCount) {
+            throw new IllegalStateException("getResultCount() shouldn't be called without calling computeCount() first");
         }
-        for (Edge e : edges.values()) {
-            for (int num : e.getDest().computeAndCacheCountRecursive()) {
-                ret.add(num);
-            }
+
+        return resultCount;
+    }
+
+    /**
+     * @return the length of the string on the path from the root to this node
+     */
+    public int getDepth() throws IllegalStateException {
+        if (-1 == depth) {
+            throw new IllegalStateException("getDepth() shouldn't be called without calling computeCount() first");
         }
 
-        resultCount = ret.size();
-        return ret;
+        return depth;
     }
 
+    /**
+     * @return how many indexes are stored in this node itself, children excluded
+     */
+    int getIndexCount() {
+        return lastIdx;
+    }
 
-    public int getResultCount() throws IllegalStateException {
-        if (-1 == resultCount) {
-            throw new IllegalStateException("getResultCount() shouldn't be called without calling computeCount() first");
-        }
+    /**
+     * @return the i-th index stored in this node itself
+     */
+    int getIndex(int i) {
+        return data[i];
+    }
 
-        return resultCount;
+    /**
+     * @return about how many bytes the node takes on the heap with its payload, its edge map and its document set,
+     * but not the edges themselves
+     */
+    long estimatedBytes() {
+        long ret = 48 + 16 + 4L * data.length;
+        if (edges instanceof TreeEdgeMap) {
+            ret += ((TreeEdgeMap) edges).estimatedBytes();
+        }
+        if (documents != null) {
+            ret += documents.estimatedBytes();
+        }
+        return ret;
     }
 
     void addEdge(char ch, Edge e) {
         edges.put(ch, e);
     }
 
+    void removeEdge(char ch) {
+        edges.remove(ch);
+    }
+
     public Edge getEdge(char ch) {
         return edges.get(ch);
     }
 
-    Map<Character, Edge> getEdges() {
+    public Map<Character, Edge> getEdges() {
         return edges;
     }
 
@@ -189,12 +295,29 @@ Boolean checked = false;
         this.suffix = suffix;
     }
 
+    Node getParent() {
+        return parent;
+    }
+
+    void setParent(Node parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * inserts the index where it keeps the payload sorted, at the end when it is the biggest one, as it usually is
+     */
     private void addIndex(int index) {
         if (lastIdx == data.length) {
-            int[] copy = new int[data.length + INCREMENT];
+            int[] copy = new int[Math.max(1, 2 * data.length)];
             System.arraycopy(data, 0, copy, 0, data.length);
             data = copy;
         }
-        data[lastIdx++] = index;
+        int i = lastIdx;
+        while (i > 0 && data[i - 1] > index) {
+            data[i] = data[i - 1];
+            i--;
+        }
+        data[i] = index;
+        lastIdx++;
     }
 }
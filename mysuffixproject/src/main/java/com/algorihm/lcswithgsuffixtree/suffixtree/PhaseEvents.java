@@ -0,0 +1,48 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+/**
+ * Where the phases of {@link TreeMetrics} go besides the histograms: JFR events when the runtime has them.
+ * jdk.jfr is not in the java 8 API the library is built for, so the events are compiled apart (the jfr source folder,
+ * for java 11) and loaded by name. on a runtime without JFR the phases only go to the histograms
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+abstract class PhaseEvents {
+
+    private static final String JFR = "main.java.com.algorihm.lcswithgsuffixtree.suffixtree.JfrPhaseEvents";
+
+    /**
+     * @return the started event of a phase
+     */
+    abstract Object begin();
+
+    /**
+     * ends the event that {@link #begin()} gave and commits it if the recording wants it
+     */
+    abstract void end(Object event, String phase, long size);
+
+    /**
+     * @return the JFR events, or null when the runtime can not load them (java 8, or no jdk.jfr module)
+     */
+    static PhaseEvents load() {
+        try {
+            return (PhaseEvents) Class.forName(JFR).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
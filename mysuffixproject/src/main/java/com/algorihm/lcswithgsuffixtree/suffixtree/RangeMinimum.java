@@ -0,0 +1,109 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+/**
+ * Range minimum queries over a fixed int array in constant time after a linear preprocessing.
+ *
+ * the array is cut in blocks of 64, a sparse table keeps the minimum of every run of 2^j blocks,
+ * and inside a window of 64 positions the minimum comes from a bit mask per position: bit k of mask[i] is set when
+ * position i - k is on the stack of the increasing minimums of the window ending at i, so the farthest set bit
+ * inside the range is its minimum. a query is two mask lookups and two table reads
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+final class RangeMinimum {
+
+    private static final int BLOCK = 64;
+
+    private final int[] values;
+    private final long[] masks;
+    /**
+     * table[j][b] is the position of the minimum of the blocks [b, b + 2^j)
+     */
+    private final int[][] table;
+
+    RangeMinimum(int[] values) {
+        this.values = values;
+        int n = values.length;
+        masks = new long[n];
+        long mask = 0;
+        for (int i = 0; i < n; i++) {
+            // the window moves by one, the positions that are not smaller than the new one leave the stack
+            mask <<= 1;
+            while (mask != 0 && values[i] <= values[i - Long.numberOfTrailingZeros(mask)]) {
+                mask &= mask - 1;
+            }
+            mask |= 1;
+            masks[i] = mask;
+        }
+
+        int blocks = (n + BLOCK - 1) / BLOCK;
+        int levels = blocks == 0 ? 1 : 32 - Integer.numberOfLeadingZeros(blocks);
+        table = new int[levels][];
+        table[0] = new int[blocks];
+        for (int b = 0; b < blocks; b++) {
+            table[0][b] = small(Math.min(n, (b + 1) * BLOCK) - 1, Math.min(BLOCK, n - b * BLOCK));
+        }
+        for (int j = 1; j < levels; j++) {
+            int count = blocks - (1 << j) + 1;
+            table[j] = new int[count];
+            for (int b = 0; b < count; b++) {
+                table[j][b] = min(table[j - 1][b], table[j - 1][b + (1 << (j - 1))]);
+            }
+        }
+    }
+
+    /**
+     * @return a position of the minimum in [from, to]
+     */
+    int query(int from, int to) {
+        if (to - from + 1 <= BLOCK) {
+            return small(to, to - from + 1);
+        }
+        int ret = min(small(from + BLOCK - 1, BLOCK), small(to, BLOCK));
+        int first = from / BLOCK + 1;
+        int last = to / BLOCK - 1;
+        if (first <= last) {
+            int j = 31 - Integer.numberOfLeadingZeros(last - first + 1);
+            ret = min(ret, min(table[j][first], table[j][last - (1 << j) + 1]));
+        }
+        return ret;
+    }
+
+    int get(int i) {
+        return values[i];
+    }
+
+    /**
+     * the minimum of the <tt>length</tt> positions that end at <tt>end</tt>, at most 64 of them
+     */
+    private int small(int end, int length) {
+        long mask = length == BLOCK ? masks[end] : masks[end] & ((1L << length) - 1);
+        return end - (63 - Long.numberOfLeadingZeros(mask));
+    }
+
+    private int min(int a, int b) {
+        return values[b] < values[a] ? b : a;
+    }
+
+    long estimatedBytes() {
+        long ret = 16 + 8L * masks.length;
+        for (int[] level : table) {
+            ret += 16 + 4L * level.length;
+        }
+        return ret;
+    }
+}
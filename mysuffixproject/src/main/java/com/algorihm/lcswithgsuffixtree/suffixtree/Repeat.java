@@ -0,0 +1,72 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import java.util.Iterator;
+
+/**
+ * A repeated substring found by {@link GeneralizedSuffixTreeImp#maximalRepeats}, with its counts.
+ * the string and the positions are only built when they are asked for
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class Repeat {
+
+    private final TextBuffer text;
+    private final Node node;
+    private final int end;
+
+    /**
+     * the length of the repeated string
+     */
+    public final int length;
+    /**
+     * how many times it is in the keys
+     */
+    public final int occurrences;
+    /**
+     * how many distinct indexes contain it
+     */
+    public final int documents;
+
+    Repeat(TextBuffer text, Node node, int end, int length, int occurrences) {
+        this.text = text;
+        this.node = node;
+        this.end = end;
+        this.length = length;
+        this.occurrences = occurrences;
+        this.documents = node.getResultCount();
+    }
+
+    public String getSubstring() {
+        return text.substring(end - length, end);
+    }
+
+    public DocumentSet getDocuments() {
+        return node.getDocuments();
+    }
+
+    /**
+     * @return every (index, offset) where the string is, found by walking its subtree while the iterator is read
+     */
+    public Iterator<SearchCursor.Occurrence> positions() {
+        return new SearchCursor(text, node, end).occurrences();
+    }
+
+    @Override
+    public String toString() {
+        return getSubstring() + " x" + occurrences + " in " + documents;
+    }
+}
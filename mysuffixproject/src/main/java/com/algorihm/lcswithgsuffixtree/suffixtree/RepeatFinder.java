@@ -0,0 +1,275 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Finds the maximal repeats of the keys: the strings that occur at least twice and can not be extended on the right
+ * or on the left without losing an occurrence. the end of a key is a right context and the start of a key a left context
+ * that no other occurrence has, as if every key had its own terminator.
+ *
+ * in the tree a maximal repeat is a node v where
+ * right maximal : children + occurrences that end exactly at v (suffixes of keys) >= 2
+ * left maximal  : the chars just before the occurrences in the subtree are not all the same (or one of them is a key start)
+ * and a supermaximal repeat is also not contained in another repeat: every child has one occurrence only and all the
+ * left chars are different.
+ * the occurrences that end at a node are found by walking the suffixes of every key once, then one bottom-up pass over
+ * the {@link TreeAnalysis} numbering computes the occurrence count and the left char of every subtree, so the whole
+ * enumeration is linear; the results are then read lazily.
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+class RepeatFinder {
+
+    /**
+     * the left context of a key start, or of a subtree with two different left chars
+     */
+    private static final int DIVERSE = -2;
+    private static final int NONE = -1;
+
+    private final TextBuffer text;
+    private final TreeAnalysis analysis;
+    private final int[] occurrences;
+    private final int[] left;
+    private final int[] rightContexts;
+    /**
+     * the largest number of occurrences of a child, for the supermaximal test
+     */
+    private final int[] largestChild;
+    /**
+     * the left chars of the occurrences that end exactly at a node (the keys that have its string as a suffix),
+     * the ones of node v are ownLeft[ownStart[v], ownStart[v + 1])
+     */
+    private final int[] ownStart;
+    private final int[] ownLeft;
+
+    RepeatFinder(TextBuffer text, TreeAnalysis analysis) {
+        this.text = text;
+        this.analysis = analysis;
+        int size = analysis.size();
+        occurrences = new int[size];
+        left = new int[size];
+        rightContexts = new int[size];
+        largestChild = new int[size];
+        Arrays.fill(left, NONE);
+        ownStart = new int[size + 1];
+        ownLeft = ownLeftChars();
+
+        // children come after their parent, so going backward every subtree is complete when its root is reached
+        for (int v = size - 1; v >= 0; v--) {
+            int own = ownStart[v + 1] - ownStart[v];
+            for (int i = ownStart[v]; i < ownStart[v + 1]; i++) {
+                left[v] = merge(left[v], ownLeft[i]);
+            }
+            occurrences[v] += own;
+            rightContexts[v] += own;
+            int parent = analysis.getParent(v);
+            // a subtree left with the keys of removed indexes only is not a right context anymore
+            if (parent >= 0 && occurrences[v] > 0) {
+                occurrences[parent] += occurrences[v];
+                rightContexts[parent]++;
+                largestChild[parent] = Math.max(largestChild[parent], occurrences[v]);
+                left[parent] = merge(left[parent], left[v]);
+            }
+        }
+    }
+
+    /**
+     * walks the suffixes of every live key once, from the longest one with the suffix links (every suffix of a key ends
+     * on a node), and keeps the left char of each one by node. it is linear in the text like the construction, even when
+     * many keys share an index, where going from the refs of a node to the keys would try every key of the index
+     * @return the left chars, the ones of node v in [ownStart[v], ownStart[v + 1]), which this fills
+     */
+    private int[] ownLeftChars() {
+        int[] nodeOf = new int[text.length()];
+        int[] leftOf = new int[text.length()];
+        int n = 0;
+        for (int d = 0; d < text.documentCount(); d++) {
+            int start = text.documentStart(d);
+            int end = text.documentEnd(d);
+            if (text.isRemoved(d) || start == end) {
+                continue;
+            }
+            int v = locate(start, end);
+            for (int i = start; i < end; i++) {
+                if (i > start) {
+                    v = analysis.getSuffixLink(v);
+                }
+                if (v <= 0 || analysis.getDepth(v) != end - i) {
+                    throw new IllegalStateException("the suffix at " + i + " does not end on a node");
+                }
+                nodeOf[n] = v;
+                leftOf[n] = i == start ? DIVERSE : text.charAt(i - 1);
+                n++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            ownStart[nodeOf[i] + 1]++;
+        }
+        for (int v = 0; v < ownStart.length - 1; v++) {
+            ownStart[v + 1] += ownStart[v];
+        }
+        int[] next = Arrays.copyOf(ownStart, ownStart.length - 1);
+        int[] ret = new int[n];
+        for (int i = 0; i < n; i++) {
+            ret[next[nodeOf[i]]++] = leftOf[i];
+        }
+        return ret;
+    }
+
+    /**
+     * @return the node where text[from, end) ends, going down from the root and reading only the first char of every edge
+     */
+    private int locate(int from, int end) {
+        Node node = analysis.getNode(0);
+        int i = from;
+        while (i < end) {
+            Edge e = node.getEdge(text.charAt(i));
+            if (e == null) {
+                break;
+            }
+            i += e.length();
+            node = e.getDest();
+        }
+        if (i != end) {
+            throw new IllegalStateException("the key at " + from + " does not end on a node");
+        }
+        return node.order;
+    }
+
+    private static int merge(int a, int b) {
+        if (a == NONE) {
+            return b;
+        }
+        if (b == NONE || a == b) {
+            return a;
+        }
+        return DIVERSE;
+    }
+
+    boolean isMaximal(int v, int minLength, int minOccurrences, int minDocuments) {
+        return v > 0
+                && analysis.getDepth(v) >= minLength
+                && occurrences[v] >= Math.max(2, minOccurrences)
+                && analysis.getDocumentCount(v) >= minDocuments
+                && rightContexts[v] >= 2
+                && left[v] == DIVERSE;
+    }
+
+    /**
+     * a maximal repeat whose one char extensions all occur once at most
+     */
+    boolean isSupermaximal(int v) {
+        if (largestChild[v] > 1) {
+            return false;
+        }
+        // every child holds one occurrence, so its left char is the char of that occurrence
+        Set<Integer> seen = new HashSet<Integer>();
+        int end = analysis.getSubtreeEnd(v);
+        for (int child = v + 1; child < end; child = analysis.getSubtreeEnd(child)) {
+            if (left[child] != DIVERSE && left[child] != NONE && !seen.add(left[child])) {
+                return false;
+            }
+        }
+        for (int i = ownStart[v]; i < ownStart[v + 1]; i++) {
+            if (ownLeft[i] != DIVERSE && !seen.add(ownLeft[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    Repeat repeat(int v) {
+        return new Repeat(text, analysis.getNode(v), analysis.getLabelEnd(v), analysis.getDepth(v), occurrences[v]);
+    }
+
+    /**
+     * @return the repeats in depth first order, or the longest first with <tt>sortedByLength</tt> (a counting sort on the lengths)
+     */
+    Iterator<Repeat> repeats(final int minLength, final int minOccurrences, final int minDocuments,
+                             final boolean supermaximalOnly, boolean sortedByLength) {
+        final int[] order;
+        if (sortedByLength) {
+            int maxDepth = 0;
+            int found = 0;
+            for (int v = 0; v < analysis.size(); v++) {
+                if (accept(v, minLength, minOccurrences, minDocuments, supermaximalOnly)) {
+                    maxDepth = Math.max(maxDepth, analysis.getDepth(v));
+                    found++;
+                }
+            }
+            int[] start = new int[maxDepth + 2];
+            order = new int[found];
+            for (int v = 0; v < analysis.size(); v++) {
+                if (accept(v, minLength, minOccurrences, minDocuments, supermaximalOnly)) {
+                    start[maxDepth - analysis.getDepth(v) + 1]++;
+                }
+            }
+            for (int i = 1; i < start.length; i++) {
+                start[i] += start[i - 1];
+            }
+            for (int v = 0; v < analysis.size(); v++) {
+                if (accept(v, minLength, minOccurrences, minDocuments, supermaximalOnly)) {
+                    order[start[maxDepth - analysis.getDepth(v)]++] = v;
+                }
+            }
+        } else {
+            order = null;
+        }
+
+        return new Iterator<Repeat>() {
+            private int next = -1;
+            private int position = 0;
+
+            {
+                advance();
+            }
+
+            private void advance() {
+                if (order != null) {
+                    next = position < order.length ? order[position++] : analysis.size();
+                    return;
+                }
+                do {
+                    next++;
+                } while (next < analysis.size() && !accept(next, minLength, minOccurrences, minDocuments, supermaximalOnly));
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < analysis.size();
+            }
+
+            @Override
+            public Repeat next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Repeat ret = repeat(next);
+                advance();
+                return ret;
+            }
+        };
+    }
+
+    private boolean accept(int v, int minLength, int minOccurrences, int minDocuments, boolean supermaximalOnly) {
+        return isMaximal(v, minLength, minOccurrences, minDocuments) && (!supermaximalOnly || isSupermaximal(v));
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The answers of the last searches of a tree, by pattern and limit, so a hot query does not walk the tree again.
+ * it is only made by {@link GeneralizedSuffixTreeImp#setResultCache(long)}, its counters are read with
+ * {@link GeneralizedSuffixTreeImp#getCacheStatistics()}.
+ *
+ * it is a least recently used map bounded by an estimate of the bytes of its entries (the pattern and the boxed indexes).
+ * the tree calls {@link #invalidate()} on every put and removal, which only raises a flag: the entries are dropped
+ * by the next lookup, so a burst of puts costs nothing more. all the methods are synchronized, the searches of a tree
+ * can come from many threads.
+ * the cached collections are unmodifiable, they are given to every caller that asks for the same pattern and limit
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+final class ResultCache {
+
+    /**
+     * what a pattern and an entry cost beside the chars and the indexes: the key, the map entry and the result objects
+     */
+    private static final int ENTRY_BYTES = 160;
+    /**
+     * a boxed index in a HashSet: the node of the set and the Integer
+     */
+    private static final int INDEX_BYTES = 48;
+
+    private final long maxBytes;
+    private long bytes = 0;
+    private volatile boolean stale = false;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    private final LinkedHashMap<Key, GeneralizedSuffixTreeImp.ResultInfo> entries =
+            new LinkedHashMap<Key, GeneralizedSuffixTreeImp.ResultInfo>(16, 0.75f, true);
+
+    private static final class Key {
+
+        private final String word;
+        private final int limit;
+
+        Key(String word, int limit) {
+            this.word = word;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return limit == other.limit && word.equals(other.word);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * word.hashCode() + limit;
+        }
+    }
+
+    /**
+     * @param maxBytes the most the entries may take, as estimated
+     */
+    ResultCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("the cache needs a positive size, not " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the answer cached for the pattern and the limit, or null (counted as a miss)
+     */
+    synchronized GeneralizedSuffixTreeImp.ResultInfo get(String word, int limit) {
+        dropIfStale();
+        GeneralizedSuffixTreeImp.ResultInfo ret = entries.get(new Key(word, limit));
+        if (ret == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return ret;
+    }
+
+    /**
+     * keeps the answer, evicting the least recently used ones until it fits. an answer bigger than the whole cache is not kept
+     * @return the answer with its results made unmodifiable, to be returned to the caller
+     */
+    synchronized GeneralizedSuffixTreeImp.ResultInfo put(String word, int limit, Collection<Integer> results, int total) {
+        GeneralizedSuffixTreeImp.ResultInfo ret = new GeneralizedSuffixTreeImp.ResultInfo(Collections.unmodifiableCollection(results), total);
+        dropIfStale();
+        long size = sizeOf(word, ret);
+        if (size > maxBytes) {
+            return ret;
+        }
+        GeneralizedSuffixTreeImp.ResultInfo previous = entries.put(new Key(word, limit), ret);
+        if (previous != null) {
+            bytes -= sizeOf(word, previous);
+        }
+        bytes += size;
+        Iterator<Map.Entry<Key, GeneralizedSuffixTreeImp.ResultInfo>> it = entries.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<Key, GeneralizedSuffixTreeImp.ResultInfo> eldest = it.next();
+            bytes -= sizeOf(eldest.getKey().word, eldest.getValue());
+            it.remove();
+            evictions++;
+        }
+        return ret;
+    }
+
+    /**
+     * every cached answer is wrong from now on, they are dropped by the next lookup
+     */
+    void invalidate() {
+        stale = true;
+    }
+
+    private void dropIfStale() {
+        if (stale) {
+            stale = false;
+            if (!entries.isEmpty()) {
+                entries.clear();
+                bytes = 0;
+                invalidations++;
+            }
+        }
+    }
+
+    private static long sizeOf(String word, GeneralizedSuffixTreeImp.ResultInfo info) {
+        return ENTRY_BYTES + 2L * word.length() + (long) INDEX_BYTES * info.results.size();
+    }
+
+    synchronized GeneralizedSuffixTreeImp.CacheStatistics getStatistics() {
+        return new GeneralizedSuffixTreeImp.CacheStatistics(hits, misses, evictions, invalidations, entries.size(), bytes);
+    }
+
+    long getMaxBytes() {
+        return maxBytes;
+    }
+}
@@ -0,0 +1,238 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+
+/**
+ * The answer of a search that is read only when it is asked for, see {@link GeneralizedSuffixTreeImp#cursor(String)}.
+ *
+ * the cursor only keeps the node where the word ends. the number of documents is the size cached in that node,
+ * the documents come one by one from its compressed set (a page skips the first ones without reading them),
+ * and the occurrences are found by walking the subtree only as far as the caller reads.
+ * every index stored in a node u of the subtree means that the string of u is a suffix of that key,
+ * so the word is in the key at (length of the key - depth of u).
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class SearchCursor {
+
+    private final TextBuffer text;
+    /**
+     * the node where the word ends and the end offset of the label of its edge, null when the word is not in the tree
+     */
+    private final Node locus;
+    private final int locusEnd;
+
+    SearchCursor(TextBuffer text, Node locus, int locusEnd) {
+        this.text = text;
+        this.locus = locus;
+        this.locusEnd = locusEnd;
+    }
+
+    /**
+     * one place where the word is found
+     */
+    public static class Occurrence {
+
+        /**
+         * the index the key was put with
+         */
+        public final int index;
+        /**
+         * the position of the word in the key
+         */
+        public final int offset;
+
+        public Occurrence(int index, int offset) {
+            this.index = index;
+            this.offset = offset;
+        }
+
+        @Override
+        public String toString() {
+            return index + ":" + offset;
+        }
+    }
+
+    /**
+     * an index with the number of times the word is in its key(s)
+     */
+    public static class DocumentHits {
+
+        public final int index;
+        public final int occurrences;
+
+        public DocumentHits(int index, int occurrences) {
+            this.index = index;
+            this.occurrences = occurrences;
+        }
+
+        @Override
+        public String toString() {
+            return index + "x" + occurrences;
+        }
+    }
+
+    /**
+     * @return the exact number of distinct indexes that contain the word, without reading them
+     */
+    public int count() {
+        return locus == null ? 0 : locus.getResultCount();
+    }
+
+    /**
+     * @return the indexes in increasing order, read only when next is called
+     */
+    public PrimitiveIterator.OfInt documents() {
+        return locus == null ? DocumentSet.EMPTY.iterator() : locus.getDocuments().iterator();
+    }
+
+    /**
+     * @return at most <tt>limit</tt> indexes after the first <tt>offset</tt> ones, in increasing order
+     */
+    public List<Integer> page(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("the offset and the limit can not be negative: " + offset + ", " + limit);
+        }
+        if (locus == null) {
+            return Collections.emptyList();
+        }
+        List<Integer> ret = new ArrayList<Integer>(Math.min(limit, Math.max(0, count() - offset)));
+        PrimitiveIterator.OfInt it = locus.getDocuments().iterator(offset);
+        while (ret.size() < limit && it.hasNext()) {
+            ret.add(it.nextInt());
+        }
+        return ret;
+    }
+
+    /**
+     * @return every place where the word is, in no particular order. the subtree is walked while the iterator is read,
+     * so reading the first few occurrences of a frequent word is cheap
+     */
+    public Iterator<Occurrence> occurrences() {
+        if (locus == null) {
+            return Collections.<Occurrence>emptyList().iterator();
+        }
+        return new Iterator<Occurrence>() {
+            private final Deque<Node> nodes = new ArrayDeque<Node>();
+            private final Deque<Integer> ends = new ArrayDeque<Integer>();
+            private Node node = null;
+            private int end;
+            private int ref;
+            private int document;
+            private Occurrence next;
+
+            {
+                nodes.push(locus);
+                ends.push(locusEnd);
+                advance();
+            }
+
+            /**
+             * moves to the next (node, ref, document) that is an occurrence
+             */
+            private void advance() {
+                next = null;
+                while (next == null) {
+                    if (node != null && document < text.documentCount() && text.documentIndex(document) == node.getIndex(ref)) {
+                        int d = document++;
+                        int length = text.documentEnd(d) - text.documentStart(d);
+                        int depth = node.getDepth();
+                        // many keys can be put with the same index, the string of the node must end this one
+                        if (text.documentEndsWith(d, end, depth)) {
+                            next = new Occurrence(node.getIndex(ref), length - depth);
+                        }
+                    } else if (node != null && ref + 1 < node.getIndexCount()) {
+                        ref++;
+                        document = text.firstDocument(node.getIndex(ref));
+                    } else if (!nodes.isEmpty()) {
+                        node = nodes.pop();
+                        end = ends.pop();
+                        for (Edge e : node.getEdges().values()) {
+                            nodes.push(e.getDest());
+                            ends.push(e.getEnd());
+                        }
+                        ref = 0;
+                        document = node.getIndexCount() > 0 ? text.firstDocument(node.getIndex(0)) : text.documentCount();
+                    } else {
+                        return;
+                    }
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Occurrence next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Occurrence ret = next;
+                advance();
+                return ret;
+            }
+        };
+    }
+
+    /**
+     * @return the <tt>k</tt> indexes where the word is found the most times, the most frequent first
+     * (ties go to the smaller index). all the occurrences are counted once, only k of them are kept in a heap
+     */
+    public List<DocumentHits> topDocuments(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k can not be negative: " + k);
+        }
+        Map<Integer, int[]> counts = new HashMap<Integer, int[]>();
+        Iterator<Occurrence> it = occurrences();
+        while (it.hasNext()) {
+            int index = it.next().index;
+            int[] count = counts.get(index);
+            if (count == null) {
+                counts.put(index, new int[]{1});
+            } else {
+                count[0]++;
+            }
+        }
+        // the smallest of the kept ones on top, so it is the one to drop
+        PriorityQueue<DocumentHits> heap = new PriorityQueue<DocumentHits>(Math.max(1, k), (a, b) ->
+                a.occurrences != b.occurrences ? Integer.compare(a.occurrences, b.occurrences) : Integer.compare(b.index, a.index));
+        for (Map.Entry<Integer, int[]> entry : counts.entrySet()) {
+            heap.add(new DocumentHits(entry.getKey(), entry.getValue()[0]));
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+        List<DocumentHits> ret = new ArrayList<DocumentHits>(heap.size());
+        while (!heap.isEmpty()) {
+            ret.add(heap.poll());
+        }
+        Collections.reverse(ret);
+        return ret;
+    }
+}
@@ -0,0 +1,232 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * An index made of several independent {@link GeneralizedSuffixTreeImp} (shards), so the documents can be
+ * put in the trees on all the cores at the same time.
+ *
+ * put only queues the document for the shard that has the fewest chars so far (the same index always goes to the same shard,
+ * so the counts stay right). the queued documents are put in their trees on a fork join pool, one task per shard,
+ * the first time the index is searched (or when build is called). search asks every shard on the pool and merges the answers:
+ * an index lives in one shard only, so the totals of the shards can just be added.
+ *
+ * once built the shards are only read, so many threads can search at the same time. put and search must not be mixed
+ * from different threads.
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class ShardedSuffixTree implements WritableSuffixIndex {
+
+    private final ForkJoinPool pool;
+    private final GeneralizedSuffixTreeImp[] shards;
+    /**
+     * the number of chars given to every shard, to keep them balanced
+     */
+    private final long[] load;
+    /**
+     * the documents waiting to be put in every shard
+     */
+    private final List<List<String>> pendingKeys = new ArrayList<List<String>>();
+    private final List<List<Integer>> pendingIndexes = new ArrayList<List<Integer>>();
+    private boolean pending = false;
+    private int last = 0;
+    private int lastShard = -1;
+    private int documents = 0;
+
+    /**
+     * one shard per core, built on the common pool
+     */
+    public ShardedSuffixTree() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShardedSuffixTree(int shardCount) {
+        this(shardCount, ForkJoinPool.commonPool());
+    }
+
+    public ShardedSuffixTree(int shardCount, ForkJoinPool pool) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("there must be at least one shard, not " + shardCount);
+        }
+        this.pool = pool;
+        shards = new GeneralizedSuffixTreeImp[shardCount];
+        load = new long[shardCount];
+        for (int s = 0; s < shardCount; s++) {
+            shards[s] = new GeneralizedSuffixTreeImp();
+            pendingKeys.add(new ArrayList<String>());
+            pendingIndexes.add(new ArrayList<Integer>());
+        }
+    }
+
+    /**
+     * queues the key for the least loaded shard, it is put in the tree by the next build
+     */
+    @Override
+    public void put(String key, int index) throws IllegalStateException {
+        if (index < last) {
+            throw new IllegalStateException("You should give the correct indexing to program .\n" + index + "should be more than " + last);
+        }
+        int shard;
+        if (lastShard >= 0 && index == last) {
+            shard = lastShard;
+        } else {
+            shard = 0;
+            for (int s = 1; s < shards.length; s++) {
+                if (load[s] < load[shard]) {
+                    shard = s;
+                }
+            }
+            documents++;
+        }
+        last = index;
+        lastShard = shard;
+        load[shard] += key.length();
+        pendingKeys.get(shard).add(key);
+        pendingIndexes.get(shard).add(index);
+        pending = true;
+    }
+
+    /**
+     * puts the queued documents in their shards, one fork join task per shard, and prepares the shards for searching.
+     * nothing is done if nothing was put since the last build
+     */
+    public synchronized void build() {
+        if (!pending) {
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int s = 0; s < shards.length; s++) {
+            final GeneralizedSuffixTreeImp shard = shards[s];
+            final List<String> keys = pendingKeys.get(s);
+            final List<Integer> indexes = pendingIndexes.get(s);
+            tasks.add(() -> {
+                for (int i = 0; i < keys.size(); i++) {
+                    shard.put(keys.get(i), indexes.get(i));
+                }
+                keys.clear();
+                indexes.clear();
+                // builds the document sets now, so the searches only read the tree
+                shard.computeCount();
+                return null;
+            });
+        }
+        invokeAll(tasks);
+        pending = false;
+    }
+
+    @Override
+    public Collection<Integer> search(String word) {
+        return search(word, -1);
+    }
+
+    @Override
+    public Collection<Integer> search(final String word, final int results) {
+        return searchWithCount(word, results).results;
+    }
+
+    /**
+     * asks every shard for at most <tt>count</tt> indexes, the total is the sum of the totals of the shards
+     */
+    @Override
+    public GeneralizedSuffixTreeImp.ResultInfo searchWithCount(final String word, final int count) {
+        build();
+        List<Callable<GeneralizedSuffixTreeImp.ResultInfo>> tasks = new ArrayList<Callable<GeneralizedSuffixTreeImp.ResultInfo>>();
+        for (final GeneralizedSuffixTreeImp shard : shards) {
+            tasks.add(() -> shard.searchWithCount(word, count));
+        }
+        Set<Integer> results = new HashSet<Integer>();
+        int total = 0;
+        for (GeneralizedSuffixTreeImp.ResultInfo info : invokeAll(tasks)) {
+            total += info.totalResults;
+            for (int index : info.results) {
+                if (results.size() == count) {
+                    break;
+                }
+                results.add(index);
+            }
+        }
+        return new GeneralizedSuffixTreeImp.ResultInfo(results, total);
+    }
+
+    /**
+     * @return the number of indexes whose key contains <tt>word</tt>
+     */
+    public int count(String word) {
+        return searchWithCount(word, 1).totalResults;
+    }
+
+    /**
+     * analyzes every shard on the pool, see {@link GeneralizedSuffixTreeImp#analyze()}
+     */
+    public TreeAnalysis[] analyze() {
+        build();
+        List<Callable<TreeAnalysis>> tasks = new ArrayList<Callable<TreeAnalysis>>();
+        for (final GeneralizedSuffixTreeImp shard : shards) {
+            tasks.add(shard::analyze);
+        }
+        return invokeAll(tasks).toArray(new TreeAnalysis[0]);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @return the tree of shard <tt>s</tt>, with all the documents put so far
+     */
+    public GeneralizedSuffixTreeImp getShard(int s) {
+        build();
+        return shards[s];
+    }
+
+    /**
+     * @return the number of distinct indexes put in the index
+     */
+    public int getDocumentCount() {
+        return documents;
+    }
+
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        List<T> ret = new ArrayList<T>(tasks.size());
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                ret.add(future.get());
+            }
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("the pool of the shards does not take tasks, was it shut down?", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return ret;
+    }
+}
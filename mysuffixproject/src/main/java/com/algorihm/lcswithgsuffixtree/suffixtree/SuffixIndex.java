@@ -0,0 +1,45 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import java.util.Collection;
+
+/**
+ * The common face of every engine that can find the documents containing a word,
+ * so the caller can choose the engine (suffix tree, suffix array, ...) for each index.
+ * it only has the queries: the engines that can also take new keys implement {@link WritableSuffixIndex},
+ * the frozen ones (like {@link CompactSuffixTree}) only this.
+ *
+ * after put(K, V), search(H) returns a set containing V for any string H that is substring of K.
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public interface SuffixIndex {
+
+    /**
+     * @return all the indexes whose key contains <tt>word</tt>
+     */
+    Collection<Integer> search(String word);
+
+    /**
+     * @return at most <tt>results</tt> indexes whose key contains <tt>word</tt>, -1 for all of them
+     */
+    Collection<Integer> search(String word, int results);
+
+    /**
+     * @return at most <tt>count</tt> indexes whose key contains <tt>word</tt> and the total number of them
+     */
+    GeneralizedSuffixTreeImp.ResultInfo searchWithCount(String word, int count);
+}
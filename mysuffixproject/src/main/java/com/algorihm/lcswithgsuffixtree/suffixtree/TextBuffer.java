@@ -0,0 +1,302 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * The shared text of a generalized suffix tree.
+ * every key that is put in the tree is appended here exactly once, and the edges only keep
+ * (start, end) offsets into this buffer instead of their own copy of the label.
+ * the buffer also remembers where each document starts so an offset can be mapped back to (document, position)
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class TextBuffer {
+
+    /**
+     * The starting size of the char[] array containing the text
+     */
+    private static final int START_SIZE = 16;
+    /**
+     * the most chars the text can hold: the offsets are ints, and most VMs can not make an array of Integer.MAX_VALUE
+     */
+    static final int MAX_LENGTH = Integer.MAX_VALUE - 8;
+
+    private char[] chars = new char[START_SIZE];
+
+    private int length = 0;
+
+    /**
+     * start offset of every document, in the order they were appended
+     */
+    private int[] docStarts = new int[START_SIZE];
+    /**
+     * the index value that was given to put for every document
+     */
+    private int[] docIndexes = new int[START_SIZE];
+
+    private int docCount = 0;
+    /**
+     * true for the documents that were removed from the tree, their chars stay here until the next {@link #compact()}
+     */
+    private boolean[] removed = new boolean[START_SIZE];
+    /**
+     * the number of chars of the removed documents
+     */
+    private int removedLength = 0;
+
+    /**
+     * Appends a new document to the buffer and returns the offset where it starts
+     */
+    public int append(CharSequence key, int index) {
+        ensureCapacity((long) length + key.length());
+        int start = beginDocument(index);
+        for (int i = 0; i < key.length(); i++) {
+            chars[length++] = key.charAt(i);
+        }
+        return start;
+    }
+
+    /**
+     * starts a new document that is empty for now, its chars are added with {@link #append(char[], int, int)}
+     * @return the offset where the document starts
+     */
+    int beginDocument(int index) {
+        if (docCount == docStarts.length) {
+            docStarts = Arrays.copyOf(docStarts, docCount * 2);
+            docIndexes = Arrays.copyOf(docIndexes, docCount * 2);
+            removed = Arrays.copyOf(removed, docCount * 2);
+        }
+        docStarts[docCount] = length;
+        docIndexes[docCount] = index;
+        docCount++;
+        return length;
+    }
+
+    /**
+     * adds the chars at the end of the last document
+     */
+    void append(char[] window, int offset, int len) {
+        ensureCapacity((long) length + len);
+        System.arraycopy(window, offset, chars, length, len);
+        length += len;
+    }
+
+    /**
+     * forgets the last document, used when it could not be read completely
+     */
+    void dropLastDocument() {
+        docCount--;
+        length = docStarts[docCount];
+    }
+
+    /**
+     * grows the text to at least <tt>capacity</tt> chars, doubling it so the appends stay linear, up to {@link #MAX_LENGTH}
+     * @throws IllegalStateException when the text can not hold that many chars
+     */
+    private void ensureCapacity(long capacity) {
+        if (capacity > chars.length) {
+            if (capacity > MAX_LENGTH) {
+                throw new IllegalStateException("the text can not hold more than " + MAX_LENGTH + " chars, "
+                        + capacity + " were needed");
+            }
+            chars = Arrays.copyOf(chars, (int) Math.min(MAX_LENGTH, Math.max(capacity, 2L * chars.length)));
+        }
+    }
+
+    /**
+     * @return the offset of the first char after <tt>from</tt> that is not a single byte char (the only ones the edges
+     * of the tree take, see {@link TreeEdgeMap}), -1 when there is none
+     */
+    int firstWideChar(int from) {
+        for (int i = from; i < length; i++) {
+            if (chars[i] != (char) (byte) chars[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return about how many bytes the buffer takes on the heap
+     */
+    public long estimatedBytes() {
+        return 48 + 16 + 2L * chars.length + 2 * (16 + 4L * docStarts.length) + 16 + removed.length;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public char charAt(int offset) {
+        return chars[offset];
+    }
+
+    /**
+     * builds a new String with the chars in [start, end), use it only when the label is really needed
+     */
+    public String substring(int start, int end) {
+        return new String(chars, start, end - start);
+    }
+
+    /**
+     * compares two regions of the buffer char by char without copying them
+     */
+    boolean regionMatches(int offset, int otherOffset, int len) {
+        for (int i = 0; i < len; i++) {
+            if (chars[offset + i] != chars[otherOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true when the <tt>length</tt> chars that end at <tt>offset</tt> are also the last chars of document <tt>doc</tt>
+     */
+    boolean documentEndsWith(int doc, int offset, int length) {
+        int end = documentEnd(doc);
+        return length <= end - documentStart(doc) && regionMatches(end - length, offset - length, length);
+    }
+
+    /**
+     * compares a region of the buffer with a region of the given sequence without copying them
+     */
+    boolean regionMatches(int offset, CharSequence other, int otherOffset, int len) {
+        for (int i = 0; i < len; i++) {
+            if (chars[offset + i] != other.charAt(otherOffset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * copies the whole text to the given buffer
+     */
+    void writeTo(CharBuffer out) {
+        out.put(chars, 0, length);
+    }
+
+    public int documentCount() {
+        return docCount;
+    }
+
+    public int documentStart(int doc) {
+        return docStarts[doc];
+    }
+
+    public int documentEnd(int doc) {
+        return doc + 1 < docCount ? docStarts[doc + 1] : length;
+    }
+
+    /**
+     * @return the index value that was given to put for the document
+     */
+    public int documentIndex(int doc) {
+        return docIndexes[doc];
+    }
+
+    /**
+     * marks the document as removed, it is skipped by {@link #firstDocument(int)} and dropped by the next {@link #compact()}
+     */
+    void remove(int doc) {
+        if (!removed[doc]) {
+            removed[doc] = true;
+            removedLength += documentEnd(doc) - documentStart(doc);
+        }
+    }
+
+    boolean isRemoved(int doc) {
+        return removed[doc];
+    }
+
+    /**
+     * @return the number of chars that belong to removed documents
+     */
+    int removedLength() {
+        return removedLength;
+    }
+
+    /**
+     * drops the chars of the removed documents, the others are moved to the front in the same order.
+     * @return for every document before the compaction how far its chars moved (new offset - old offset),
+     * nothing is said for the removed ones
+     */
+    int[] compact() {
+        int[] shift = new int[docCount];
+        int n = 0;
+        int newLength = 0;
+        for (int d = 0; d < docCount; d++) {
+            if (removed[d]) {
+                continue;
+            }
+            int start = docStarts[d];
+            int len = documentEnd(d) - start;
+            System.arraycopy(chars, start, chars, newLength, len);
+            shift[d] = newLength - start;
+            docStarts[n] = newLength;
+            docIndexes[n] = docIndexes[d];
+            n++;
+            newLength += len;
+        }
+        Arrays.fill(removed, 0, docCount, false);
+        docCount = n;
+        length = newLength;
+        removedLength = 0;
+        return shift;
+    }
+
+    /**
+     * @return the first document that was put with the given index value and was not removed, or documentCount() if there is none
+     * (the index values never decrease, so it is a binary search)
+     */
+    public int firstDocument(int index) {
+        int low = 0;
+        int high = docCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (docIndexes[mid] < index) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        // the removed ones of an index are all before the live ones, a removal takes every document of the index
+        while (low < docCount && docIndexes[low] == index && removed[low]) {
+            low++;
+        }
+        return low < docCount && docIndexes[low] == index ? low : docCount;
+    }
+
+    /**
+     * @return the document that contains the char at the given offset
+     */
+    public int documentOf(int offset) {
+        int low = 0;
+        int high = docCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (docStarts[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,305 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * The facts about every node of a finished tree that the LCS style queries need, computed once.
+ *
+ * the nodes are numbered in depth first order (the root is 0) so the subtree of node v is [v, subtreeEnd(v)).
+ * for every node it keeps the string depth and the number of distinct indexes (documents) below it.
+ * the distinct counts come from one pass with the color set size method of Hui
+ * ("Color set size problem with applications to string matching"): every index stored in a node is a colored leaf,
+ * and for two consecutive leaves of the same color in depth first order the count of their LCA is decreased by one.
+ * the LCAs are found on the fly with Tarjan's offline union find, so there is no HashSet merge at all.
+ * the count and the depth are also cached in the nodes, so {@link Node#getResultCount()} and {@link Node#getDepth()} can be used.
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class TreeAnalysis {
+
+    private final TextBuffer text;
+    private final int size;
+    private final Node[] nodes;
+    private final int[] parent;
+    private final int[] subtreeEnd;
+    private final int[] depth;
+    /**
+     * end offset in the text of the label of the edge entering the node, the path from the root is
+     * text[labelEnd - depth, labelEnd)
+     */
+    private final int[] labelEnd;
+    private final int[] documentCount;
+    /**
+     * the distinct index values of the tree in increasing order, the color of an index is its position here
+     */
+    private final int[] colors;
+
+    TreeAnalysis(GeneralizedSuffixTreeImp tree) {
+        text = tree.getText();
+        colors = distinctIndexes(text);
+
+        // number the nodes in depth first order
+        int count = 0;
+        Deque<Node> stack = new ArrayDeque<Node>();
+        stack.push(tree.getRoot());
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            node.order = count++;
+            for (Edge e : node.getEdges().values()) {
+                stack.push(e.getDest());
+            }
+        }
+        size = count;
+        nodes = new Node[size];
+        parent = new int[size];
+        subtreeEnd = new int[size];
+        depth = new int[size];
+        labelEnd = new int[size];
+        documentCount = new int[size];
+
+        // same order again, now every child can find the numbers of its parent
+        parent[0] = -1;
+        stack.push(tree.getRoot());
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            int id = node.order;
+            nodes[id] = node;
+            subtreeEnd[id] = 1;
+            for (Edge e : node.getEdges().values()) {
+                int child = e.getDest().order;
+                parent[child] = id;
+                depth[child] = depth[id] + e.length();
+                labelEnd[child] = e.getEnd();
+                stack.push(e.getDest());
+            }
+        }
+        for (int v = size - 1; v > 0; v--) {
+            subtreeEnd[parent[v]] += subtreeEnd[v];
+        }
+        for (int v = 0; v < size; v++) {
+            subtreeEnd[v] += v;
+        }
+
+        countDocuments();
+    }
+
+    static int[] distinctIndexes(TextBuffer text) {
+        // put accepts the indexes in increasing order only, so they are already sorted
+        int[] ret = new int[text.documentCount()];
+        int n = 0;
+        for (int d = 0; d < text.documentCount(); d++) {
+            if (text.isRemoved(d)) {
+                continue;
+            }
+            if (n == 0 || ret[n - 1] != text.documentIndex(d)) {
+                ret[n++] = text.documentIndex(d);
+            }
+        }
+        return Arrays.copyOf(ret, n);
+    }
+
+    /**
+     * the color set size pass, walking the nodes in depth first order and replaying the exits from the subtrees
+     */
+    private void countDocuments() {
+        int[] lastSeen = new int[colors.length];
+        Arrays.fill(lastSeen, -1);
+        // union find for the LCAs: a finished node points to its parent, a node still on the path points to itself
+        int[] link = new int[size];
+        int[] path = new int[size];
+        int top = -1;
+        for (int v = 0; v < size; v++) {
+            while (top >= 0 && subtreeEnd[path[top]] <= v) {
+                int finished = path[top--];
+                link[finished] = parent[finished];
+            }
+            link[v] = v;
+            path[++top] = v;
+
+            Node node = nodes[v];
+            for (int i = 0; i < node.getIndexCount(); i++) {
+                int color = colorOf(node.getIndex(i));
+                documentCount[v]++;
+                if (lastSeen[color] >= 0) {
+                    documentCount[find(link, lastSeen[color])]--;
+                }
+                lastSeen[color] = v;
+            }
+        }
+        for (int v = size - 1; v > 0; v--) {
+            documentCount[parent[v]] += documentCount[v];
+        }
+        for (int v = 0; v < size; v++) {
+            nodes[v].cacheCount(documentCount[v], depth[v]);
+        }
+    }
+
+    private static int find(int[] link, int v) {
+        int root = v;
+        while (link[root] != root) {
+            root = link[root];
+        }
+        while (link[v] != root) {
+            int next = link[v];
+            link[v] = root;
+            v = next;
+        }
+        return root;
+    }
+
+    private int colorOf(int index) {
+        return Arrays.binarySearch(colors, index);
+    }
+
+    TextBuffer getText() {
+        return text;
+    }
+
+    /**
+     * @return the number of nodes in the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    public Node getNode(int v) {
+        return nodes[v];
+    }
+
+    /**
+     * @return the depth first number of the parent, -1 for the root
+     */
+    public int getParent(int v) {
+        return parent[v];
+    }
+
+    /**
+     * @return the first node after the subtree of <tt>v</tt>
+     */
+    public int getSubtreeEnd(int v) {
+        return subtreeEnd[v];
+    }
+
+    /**
+     * @return the length of the string on the path from the root to <tt>v</tt>
+     */
+    public int getDepth(int v) {
+        return depth[v];
+    }
+
+    /**
+     * @return an offset of the text where the string of <tt>v</tt> ends
+     */
+    int getLabelEnd(int v) {
+        return labelEnd[v];
+    }
+
+    /**
+     * @return the number of distinct indexes in the subtree of <tt>v</tt>
+     */
+    public int getDocumentCount(int v) {
+        return documentCount[v];
+    }
+
+    /**
+     * @return the number of distinct indexes in the whole tree
+     */
+    public int getTotalDocuments() {
+        return colors.length;
+    }
+
+    /**
+     * @return the number of refs stored in <tt>v</tt> itself, the keys that end with the string of <tt>v</tt>
+     */
+    public int getRefCount(int v) {
+        return nodes[v].getIndexCount();
+    }
+
+    /**
+     * @return the color of the i-th ref of <tt>v</tt>: the position of its index among the distinct indexes,
+     * between 0 and {@link #getTotalDocuments()} - 1
+     */
+    public int getRefColor(int v, int i) {
+        return colorOf(nodes[v].getIndex(i));
+    }
+
+    /**
+     * @return the index that has this color
+     */
+    public int getIndexOfColor(int color) {
+        return colors[color];
+    }
+
+    /**
+     * @return the string on the path from the root to <tt>v</tt>, read from the shared text
+     */
+    public String getPathLabel(int v) {
+        return text.substring(labelEnd[v] - depth[v], labelEnd[v]);
+    }
+
+    /**
+     * @return the node whose string is the one of <tt>v</tt> without its first char, or -1 for the root and when that
+     * string ends inside an edge. the suffix link is used when it is there and right, else the string is read from the root
+     */
+    public int getSuffixLink(int v) {
+        if (v == 0) {
+            return -1;
+        }
+        Node next = nodes[v].getSuffix();
+        if (next != null && next.order >= 0 && next.order < size && nodes[next.order] == next && depth[next.order] == depth[v] - 1) {
+            return next.order;
+        }
+        int end = labelEnd[v];
+        int i = end - depth[v] + 1;
+        Node node = nodes[0];
+        while (i < end) {
+            Edge e = node.getEdge(text.charAt(i));
+            if (e == null) {
+                return -1;
+            }
+            i += e.length();
+            node = e.getDest();
+        }
+        return i == end ? node.order : -1;
+    }
+
+    /**
+     * @return every (index, offset) where the string of <tt>v</tt> is, found by walking its subtree while the iterator is read
+     */
+    public Iterator<SearchCursor.Occurrence> getOccurrences(int v) {
+        return new SearchCursor(text, nodes[v], labelEnd[v]).occurrences();
+    }
+
+    /**
+     * @return the distinct indexes stored in the subtree of <tt>v</tt>, which is one range of the numbering
+     */
+    public Collection<Integer> getDocuments(int v) {
+        Set<Integer> ret = new HashSet<Integer>();
+        for (int u = v; u < subtreeEnd[v]; u++) {
+            for (int i = 0; i < nodes[u].getIndexCount(); i++) {
+                ret.add(nodes[u].getIndex(i));
+            }
+        }
+        return ret;
+    }
+}
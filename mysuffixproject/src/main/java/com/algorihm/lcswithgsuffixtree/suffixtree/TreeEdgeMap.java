@@ -81,6 +81,16 @@ public class TreeEdgeMap implements Map<Character, Edge> {
         return values[idx];
     }
 
+    /**
+     * @return about how many bytes the map takes on the heap, without the edges
+     */
+    long estimatedBytes() {
+        if (chars == null) {
+            return 24;
+        }
+        return 24 + 16 + chars.length + 16 + 4L * values.length;
+    }
+
     private int search(char a) {
         if (chars == null)
             return -1;
@@ -155,7 +165,21 @@ public class TreeEdgeMap implements Map<Character, Edge> {
     
     @Override
     public Edge remove(Object key) {
-        throw new UnsupportedOperationException("Not implemented");
+        int idx = search(((Character) key).charValue());
+        if (idx < 0) {
+            return null;
+        }
+        Edge previous = values[idx];
+        int currentSize = chars.length;
+        byte[] temp = new byte[currentSize - 1];
+        System.arraycopy(chars, 0, temp, 0, idx);
+        System.arraycopy(chars, idx + 1, temp, idx, currentSize - idx - 1);
+        chars = temp;
+        Edge[] temp1 = new Edge[currentSize - 1];
+        System.arraycopy(values, 0, temp1, 0, idx);
+        System.arraycopy(values, idx + 1, temp1, idx, currentSize - idx - 1);
+        values = temp1;
+        return previous;
     }
     
     @Override
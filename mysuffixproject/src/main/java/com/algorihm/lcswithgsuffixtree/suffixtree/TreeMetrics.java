@@ -0,0 +1,259 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The counters and histograms of a tree, off until one is given to {@link GeneralizedSuffixTreeImp#setMetrics(TreeMetrics)}
+ * (or to {@link main.java.com.algorihm.lcswithgsuffixtree.toolsAndLCS.tools#setMetrics(TreeMetrics)}).
+ * when there is none the hot paths only test one field against null.
+ *
+ * the construction counters are written by the thread that puts, without any synchronization, like the tree itself.
+ * the histograms can be written by many searching threads at the same time. {@link #snapshot()} copies everything
+ * into a plain {@link Snapshot} that can be handed to any metrics system
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public final class TreeMetrics {
+
+    public static final String PHASE_PUT = "put";
+    public static final String PHASE_DOCUMENT_SETS = "documentSets";
+    public static final String PHASE_COMPACTION = "compaction";
+    public static final String PHASE_LCS = "lcs";
+
+    /**
+     * edges split in two by testAndSplit
+     */
+    long splits;
+    /**
+     * edges skipped over by canonize
+     */
+    long canonizeSteps;
+    /**
+     * suffix links followed by update
+     */
+    long suffixLinkWalks;
+    /**
+     * suffix links the refs were copied along when the document sets were built
+     */
+    long refPropagations;
+    /**
+     * the number of edges walked by a search
+     */
+    final Histogram searchDepth = new Histogram();
+    /**
+     * the time of a search, in nanoseconds
+     */
+    final Histogram searchLatency = new Histogram();
+    private final Map<String, Histogram> phases = new ConcurrentHashMap<String, Histogram>();
+    /**
+     * the JFR events of the phases, null when the runtime has no JFR
+     */
+    private static final PhaseEvents EVENTS = PhaseEvents.load();
+
+    /**
+     * starts the timing of a phase, it is recorded when {@link Phase#end(long)} is called
+     */
+    public Phase begin(String phase) {
+        return new Phase(phase);
+    }
+
+    /**
+     * a running phase: a JFR event (when there is JFR) and the start time for the histogram of the phase
+     */
+    public final class Phase {
+
+        private final Object event = EVENTS == null ? null : EVENTS.begin();
+        private final String name;
+        private final long start = System.nanoTime();
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @param size the number of chars or nodes the phase went over
+         */
+        public void end(long size) {
+            phases.computeIfAbsent(name, k -> new Histogram()).record(System.nanoTime() - start);
+            if (EVENTS != null) {
+                EVENTS.end(event, name, size);
+            }
+        }
+    }
+
+    /**
+     * A histogram with one bucket per power of two: bucket b counts the values v with 2^(b-1) <= v < 2^b (bucket 0 is v <= 0)
+     */
+    public static final class Histogram {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(65);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long value) {
+            buckets.incrementAndGet(value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        HistogramSnapshot snapshot() {
+            long[] copy = new long[buckets.length()];
+            for (int b = 0; b < copy.length; b++) {
+                copy[b] = buckets.get(b);
+            }
+            return new HistogramSnapshot(count.get(), sum.get(), max.get(), copy);
+        }
+    }
+
+    /**
+     * the values of a {@link Histogram} at one moment
+     */
+    public static final class HistogramSnapshot {
+
+        public final long count;
+        public final long sum;
+        public final long max;
+        /**
+         * the counts of the power of two buckets, see {@link Histogram}
+         */
+        public final long[] buckets;
+
+        HistogramSnapshot(long count, long sum, long max, long[] buckets) {
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+            this.buckets = buckets;
+        }
+
+        public double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @return an upper bound of the <tt>q</tt> quantile (0 to 1): the top of the bucket it falls in, at most the max
+         */
+        public long quantile(double q) {
+            long rank = (long) Math.ceil(q * count);
+            long seen = 0;
+            for (int b = 0; b < buckets.length; b++) {
+                seen += buckets[b];
+                if (seen >= rank && seen > 0) {
+                    return b == 0 ? 0 : Math.min(max, b == 64 ? Long.MAX_VALUE : (1L << b) - 1);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + " mean=" + Math.round(mean()) + " p50=" + quantile(0.5) + " p99=" + quantile(0.99) + " max=" + max;
+        }
+    }
+
+    /**
+     * A copy of the metrics, with the sizes of the tree when it comes from {@link GeneralizedSuffixTreeImp#getMetrics()}
+     * (they are -1 when it comes from {@link TreeMetrics#snapshot()})
+     */
+    public static final class Snapshot {
+
+        public final long splits;
+        public final long canonizeSteps;
+        public final long suffixLinkWalks;
+        public final long refPropagations;
+        public final long nodes;
+        public final long edges;
+        public final long leaves;
+        /**
+         * a rough estimate of the bytes the tree keeps alive (nodes, edges, payloads, document sets and text),
+         * for a 64 bit jvm with compressed pointers
+         */
+        public final long estimatedBytes;
+        public final HistogramSnapshot searchDepth;
+        public final HistogramSnapshot searchLatency;
+        /**
+         * the time of every phase by name, in nanoseconds
+         */
+        public final Map<String, HistogramSnapshot> phases;
+
+        Snapshot(TreeMetrics metrics, long nodes, long edges, long leaves, long estimatedBytes) {
+            this.splits = metrics.splits;
+            this.canonizeSteps = metrics.canonizeSteps;
+            this.suffixLinkWalks = metrics.suffixLinkWalks;
+            this.refPropagations = metrics.refPropagations;
+            this.nodes = nodes;
+            this.edges = edges;
+            this.leaves = leaves;
+            this.estimatedBytes = estimatedBytes;
+            this.searchDepth = metrics.searchDepth.snapshot();
+            this.searchLatency = metrics.searchLatency.snapshot();
+            Map<String, HistogramSnapshot> copy = new LinkedHashMap<String, HistogramSnapshot>();
+            for (Map.Entry<String, Histogram> entry : metrics.phases.entrySet()) {
+                copy.put(entry.getKey(), entry.getValue().snapshot());
+            }
+            this.phases = Collections.unmodifiableMap(copy);
+        }
+
+        /**
+         * @return every value as a flat name -> number map (the histograms give their count, mean, p50, p99 and max),
+         * the easiest form to forward to a metrics system
+         */
+        public Map<String, Number> toMap() {
+            Map<String, Number> ret = new LinkedHashMap<String, Number>();
+            ret.put("splits", splits);
+            ret.put("canonizeSteps", canonizeSteps);
+            ret.put("suffixLinkWalks", suffixLinkWalks);
+            ret.put("refPropagations", refPropagations);
+            ret.put("nodes", nodes);
+            ret.put("edges", edges);
+            ret.put("leaves", leaves);
+            ret.put("estimatedBytes", estimatedBytes);
+            put(ret, "searchDepth", searchDepth);
+            put(ret, "searchLatencyNanos", searchLatency);
+            for (Map.Entry<String, HistogramSnapshot> entry : phases.entrySet()) {
+                put(ret, "phase." + entry.getKey() + ".nanos", entry.getValue());
+            }
+            return ret;
+        }
+
+        private static void put(Map<String, Number> out, String name, HistogramSnapshot histogram) {
+            out.put(name + ".count", histogram.count);
+            out.put(name + ".mean", histogram.mean());
+            out.put(name + ".p50", histogram.quantile(0.5));
+            out.put(name + ".p99", histogram.quantile(0.99));
+            out.put(name + ".max", histogram.max);
+        }
+
+        @Override
+        public String toString() {
+            return toMap().toString();
+        }
+    }
+
+    /**
+     * @return the counters and histograms, without the sizes of a tree
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this, -1, -1, -1, -1);
+    }
+}
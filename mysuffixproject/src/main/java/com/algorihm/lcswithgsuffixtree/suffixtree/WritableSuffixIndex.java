@@ -0,0 +1,28 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+/**
+ * A {@link SuffixIndex} that keys can be put in.
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public interface WritableSuffixIndex extends SuffixIndex {
+
+    /**
+     * adds the given key to the index, the indexes must be given in increasing order
+     */
+    void put(String key, int index) throws IllegalStateException;
+}
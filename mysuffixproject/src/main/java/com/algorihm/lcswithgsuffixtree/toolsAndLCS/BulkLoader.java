@@ -0,0 +1,262 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.toolsAndLCS;
+
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.GeneralizedSuffixTreeImp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Puts many files in a tree, one key per file, with the reading, decoding and normalization done on a pool
+ * while the caller's thread only runs the construction.
+ *
+ * every file is read and decoded through small windows by a task of the pool, and every decoded char goes through
+ * the alphabet filter straight into one char array, so there is no String and no second copy before the tree.
+ * the tasks are started in the order of the files, at most <tt>maxInFlight</tt> ahead of the file being put:
+ * when the construction is slower the pool waits (and the memory stays bounded), when it is faster the caller waits
+ * for the next file. the keys are put in the order of the files because the indexes of a tree only grow.
+ * the report says how long each side waited, so it shows which one limits the load
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class BulkLoader {
+
+    /**
+     * the alphabet of the keys: what every decoded char becomes
+     */
+    public interface AlphabetFilter {
+
+        /**
+         * @return the char to put for <tt>c</tt>, or -1 to drop it
+         */
+        int map(char c);
+    }
+
+    /**
+     * the lower case ascii letters and the digits, the other chars are dropped, like {@link tools#normalize(String)}.
+     * the case is folded char by char, so it does not depend on the default locale
+     */
+    public static final AlphabetFilter LETTERS_AND_DIGITS = c -> {
+        if (c >= 'A' && c <= 'Z') {
+            return c + ('a' - 'A');
+        }
+        if (c >= 128) {
+            c = Character.toLowerCase(c);
+        }
+        return c >= 'a' && c <= 'z' || c >= '0' && c <= '9' ? c : -1;
+    };
+
+    /**
+     * every ascii char as it is, the others are dropped (the tree only takes ascii)
+     */
+    public static final AlphabetFilter ASCII = c -> c < 128 ? c : -1;
+
+    /**
+     * the size of the windows a file is read and decoded through
+     */
+    private static final int WINDOW_SIZE = 8192;
+
+    private final Charset charset;
+    private final AlphabetFilter filter;
+    private final int maxInFlight;
+
+    /**
+     * how a load went
+     */
+    public static final class Report {
+
+        public final int documents;
+        /**
+         * the number of chars put, after the filter
+         */
+        public final long chars;
+        /**
+         * the time the caller spent putting the keys in the tree
+         */
+        public final long putNanos;
+        /**
+         * the time the caller waited for a file that was not decoded yet, close to 0 when the construction is the limit
+         */
+        public final long waitNanos;
+
+        Report(int documents, long chars, long putNanos, long waitNanos) {
+            this.documents = documents;
+            this.chars = chars;
+            this.putNanos = putNanos;
+            this.waitNanos = waitNanos;
+        }
+
+        @Override
+        public String toString() {
+            return documents + " documents, " + chars + " chars, put " + putNanos / 1000000 + "ms, waited " + waitNanos / 1000000 + "ms";
+        }
+    }
+
+    public BulkLoader(Charset charset, AlphabetFilter filter, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("at least one file must be in flight, not " + maxInFlight);
+        }
+        this.charset = charset;
+        this.filter = filter;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * puts every regular file of the directory (not the sub directories), in the order of their names
+     */
+    public Report load(GeneralizedSuffixTreeImp tree, Path directory, int firstIndex, ForkJoinPool pool) throws IOException {
+        List<Path> files = new ArrayList<Path>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+        return load(tree, files, firstIndex, pool);
+    }
+
+    /**
+     * puts the files with the indexes firstIndex, firstIndex + 1, ... in the order of the list
+     */
+    public Report load(GeneralizedSuffixTreeImp tree, List<Path> files, int firstIndex, ForkJoinPool pool) throws IOException {
+        Deque<Future<CharBuffer>> inFlight = new ArrayDeque<Future<CharBuffer>>();
+        int next = 0;
+        long chars = 0;
+        long putNanos = 0;
+        long waitNanos = 0;
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                while (next < files.size() && inFlight.size() < maxInFlight) {
+                    final Path file = files.get(next++);
+                    inFlight.add(pool.submit(() -> decode(file)));
+                }
+                long start = System.nanoTime();
+                CharBuffer key = await(inFlight.poll());
+                long decoded = System.nanoTime();
+                tree.put(key, firstIndex + i);
+                putNanos += System.nanoTime() - decoded;
+                waitNanos += decoded - start;
+                chars += key.remaining();
+            }
+        } finally {
+            for (Future<CharBuffer> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+        return new Report(files.size(), chars, putNanos, waitNanos);
+    }
+
+    private static CharBuffer await(Future<CharBuffer> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while loading", e);
+        } catch (ExecutionException e) {
+            // a fork join pool wraps the checked exceptions of a callable in plain RuntimeExceptions
+            Throwable cause = e.getCause();
+            while (cause != null && cause.getClass() == RuntimeException.class && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * reads, decodes and filters one file. the bytes that are not valid in the charset become the replacement char,
+     * which the filter usually drops
+     */
+    CharBuffer decode(Path file) throws IOException {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(WINDOW_SIZE);
+        CharBuffer window = CharBuffer.allocate(WINDOW_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // most charsets give at most one char per byte, so the size of the file is the size of the key
+            Key key = new Key((int) Math.min(Integer.MAX_VALUE - 8, Math.max(16, channel.size())));
+            boolean end = false;
+            while (true) {
+                if (!end && channel.read(bytes) < 0) {
+                    end = true;
+                }
+                bytes.flip();
+                CoderResult result = decoder.decode(bytes, window, end);
+                bytes.compact();
+                key.drain(window, filter);
+                if (end && result.isUnderflow()) {
+                    break;
+                }
+            }
+            while (decoder.flush(window).isOverflow()) {
+                key.drain(window, filter);
+            }
+            key.drain(window, filter);
+            return CharBuffer.wrap(key.chars, 0, key.length);
+        }
+    }
+
+    /**
+     * the filtered chars of a file, growing when the file has more chars than bytes
+     */
+    private static final class Key {
+
+        private char[] chars;
+        private int length = 0;
+
+        Key(int capacity) {
+            chars = new char[capacity];
+        }
+
+        void drain(CharBuffer window, AlphabetFilter filter) {
+            window.flip();
+            while (window.hasRemaining()) {
+                int c = filter.map(window.get());
+                if (c >= 0) {
+                    if (length == chars.length) {
+                        chars = Arrays.copyOf(chars, chars.length * 2);
+                    }
+                    chars[length++] = (char) c;
+                }
+            }
+            window.clear();
+        }
+    }
+}
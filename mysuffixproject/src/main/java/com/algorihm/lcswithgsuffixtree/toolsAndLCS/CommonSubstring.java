@@ -0,0 +1,57 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.toolsAndLCS;
+
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.SearchCursor;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * a common substring found in the tree together with the indexes (documents) that contain it
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class CommonSubstring {
+
+    /**
+     * the common substring, empty if nothing is shared
+     */
+    public String substring;
+    /**
+     * every index whose key contains the substring
+     */
+    public Collection<Integer> documents;
+    /**
+     * every (index, offset) where the substring starts, null when the method that found it does not give them
+     */
+    public List<SearchCursor.Occurrence> positions;
+
+    public CommonSubstring(String substring, Collection<Integer> documents) {
+        this.substring = substring;
+        this.documents = documents;
+    }
+
+    public CommonSubstring(String substring, Collection<Integer> documents, List<SearchCursor.Occurrence> positions) {
+        this.substring = substring;
+        this.documents = documents;
+        this.positions = positions;
+    }
+
+    @Override
+    public String toString() {
+        return substring + " " + documents;
+    }
+}
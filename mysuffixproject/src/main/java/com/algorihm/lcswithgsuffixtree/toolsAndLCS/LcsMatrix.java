@@ -0,0 +1,153 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.toolsAndLCS;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The length of the longest common substring of every pair of indexes, see {@link tools#lcsMatrix}.
+ *
+ * the indexes are the rows, in increasing order. only the lengths of at least <tt>minLength</tt> are kept, the others read as 0.
+ * a dense matrix keeps the upper triangle in one array (4 bytes for every pair, about 200MB for 10k indexes),
+ * a sparse one only the pairs over the threshold, sorted, which is the one to use for near duplicates
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class LcsMatrix {
+
+    /**
+     * receives the pairs of {@link #forEachPair(PairListener)}
+     */
+    public interface PairListener {
+
+        void pair(int index1, int index2, int length);
+    }
+
+    private final int[] indexes;
+    public final int minLength;
+    /**
+     * the triangle of a dense matrix, row by row, null when it is sparse
+     */
+    private final AtomicIntegerArray dense;
+    /**
+     * the pairs of a sparse matrix as (row1 << 32 | row2) with row1 < row2, sorted, and their lengths
+     */
+    private final long[] pairs;
+    private final int[] lengths;
+
+    LcsMatrix(int[] indexes, int minLength, AtomicIntegerArray dense) {
+        this.indexes = indexes;
+        this.minLength = minLength;
+        this.dense = dense;
+        this.pairs = null;
+        this.lengths = null;
+    }
+
+    LcsMatrix(int[] indexes, int minLength, long[] pairs, int[] lengths) {
+        this.indexes = indexes;
+        this.minLength = minLength;
+        this.dense = null;
+        this.pairs = pairs;
+        this.lengths = lengths;
+    }
+
+    /**
+     * @return the position of (row1, row2) in the triangle, row1 < row2
+     */
+    static long cell(int rows, int row1, int row2) {
+        return (long) row1 * (2L * rows - row1 - 1) / 2 + (row2 - row1 - 1);
+    }
+
+    /**
+     * @return the number of rows, the distinct indexes of the tree
+     */
+    public int size() {
+        return indexes.length;
+    }
+
+    public int getIndex(int row) {
+        return indexes[row];
+    }
+
+    public boolean isDense() {
+        return dense != null;
+    }
+
+    /**
+     * @return the length of the longest substring the keys of the two indexes share, 0 when it is shorter than minLength
+     */
+    public int length(int index1, int index2) {
+        int row1 = row(index1);
+        int row2 = row(index2);
+        if (row1 == row2) {
+            throw new IllegalArgumentException("the two indexes are the same: " + index1);
+        }
+        return lengthOfRows(Math.min(row1, row2), Math.max(row1, row2));
+    }
+
+    private int lengthOfRows(int row1, int row2) {
+        if (dense != null) {
+            return dense.get((int) cell(indexes.length, row1, row2));
+        }
+        int at = Arrays.binarySearch(pairs, ((long) row1 << 32) | row2);
+        return at < 0 ? 0 : lengths[at];
+    }
+
+    private int row(int index) {
+        int row = Arrays.binarySearch(indexes, index);
+        if (row < 0) {
+            throw new IllegalArgumentException("no key has the index " + index);
+        }
+        return row;
+    }
+
+    /**
+     * gives every pair of indexes with a length of at least minLength, the first index smaller than the second,
+     * in increasing order of the first then the second
+     */
+    public void forEachPair(PairListener listener) {
+        if (dense != null) {
+            int rows = indexes.length;
+            int at = 0;
+            for (int row1 = 0; row1 < rows; row1++) {
+                for (int row2 = row1 + 1; row2 < rows; row2++) {
+                    int length = dense.get(at++);
+                    if (length > 0) {
+                        listener.pair(indexes[row1], indexes[row2], length);
+                    }
+                }
+            }
+        } else {
+            for (int i = 0; i < pairs.length; i++) {
+                listener.pair(indexes[(int) (pairs[i] >>> 32)], indexes[(int) pairs[i]], lengths[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the whole matrix with the rows in the order of the indexes, 0 on the diagonal
+     */
+    public int[][] toArray() {
+        int rows = indexes.length;
+        int[][] ret = new int[rows][rows];
+        for (int row1 = 0; row1 < rows; row1++) {
+            for (int row2 = row1 + 1; row2 < rows; row2++) {
+                ret[row1][row2] = ret[row2][row1] = lengthOfRows(row1, row2);
+            }
+        }
+        return ret;
+    }
+}
@@ -16,11 +16,31 @@
 package main.java.com.algorihm.lcswithgsuffixtree.toolsAndLCS;
 
 
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.Edge;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.GeneralizedSuffixTreeImp;
 import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.Node;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.SearchCursor;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.ShardedSuffixTree;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.TreeAnalysis;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.TreeMetrics;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 /**
  * a class for all tools method such as method to remove unexpected characters
  * But the main use of this class is utility to calculate LCS
@@ -35,12 +55,12 @@ public class tools {
      */
 
     public static String normalize(String in) {
-        StringBuilder out = new StringBuilder();
-        String l = in.toLowerCase();
-        for (int i = 0; i < l.length(); ++i) {
-            char c = l.charAt(i);
-            if (c >= 'a' && c <= 'z' || c >= '0' && c <= '9') {
-                out.append(c);
+        // one pass, the case is folded char by char (see BulkLoader.LETTERS_AND_DIGITS) instead of a lower case copy first
+        StringBuilder out = new StringBuilder(in.length());
+        for (int i = 0; i < in.length(); ++i) {
+            int c = BulkLoader.LETTERS_AND_DIGITS.map(in.charAt(i));
+            if (c >= 0) {
+                out.append((char) c);
             }
         }
         return out.toString();
@@ -51,41 +71,518 @@ public class tools {
         */
     final static int MAX_CHAR = 256;
 
+    /**
+     * where the time of the lcs methods is recorded (the "lcs" phase), null when the metrics are off
+     */
+    private TreeMetrics metrics;
+
+    /**
+     * turns the timing of the lcs methods on with the given recorder, usually the one of the tree, or off with null
+     */
+    public void setMetrics(TreeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * the longest common substring of the two documents of the tree. the counts of the nodes are computed first,
+     * so it can be called right after the puts
+     */
+    public String myLCS(GeneralizedSuffixTreeImp tree) {
+        tree.computeCount();
+        return myLCS(tree.getRoot());
+    }
+
+    /**
+     * the longest path below <tt>node</tt> that both documents share.
+     * it only reads the counts cached by {@link GeneralizedSuffixTreeImp#computeCount()}, which must be called first
+     * and again after every put (use {@link #myLCS(GeneralizedSuffixTreeImp)} for the whole tree),
+     * and walks the existing edges once without recursion.
+     * the children are visited in the order of their first char and a tie goes to the last one, so of several longest
+     * substrings the greatest one is returned
+     */
     public String myLCS(Node node) {
-//        boolean check = false;
-//        HashSet<Node> set = new HashSet<>();
-        StringBuilder temp = new StringBuilder();
-        for (int i = 0; i < MAX_CHAR; i++) {
-//            temp = new StringBuilder();
+        Edge best = null;
+        Deque<Edge> stack = new ArrayDeque<Edge>();
+        pushChildren(stack, node);
+        while (!stack.isEmpty()) {
+            Edge e = stack.pop();
+            if (e.getDest().getResultCount() == 2) {
+                if (best == null || e.getDest().getDepth() >= best.getDest().getDepth()) {
+                    best = e;
+                }
+                pushChildren(stack, e.getDest());
+            }
+        }
+        if (best == null) {
+            return "";
+        }
+        return best.getPathLabel().substring(node.getDepth());
+    }
+
+    /**
+     * pushes the edges of the node so that the one with the smallest first char is popped first
+     */
+    private static void pushChildren(Deque<Edge> stack, Node node) {
+        Edge[] edges = node.getEdges().values().toArray(new Edge[0]);
+        Arrays.sort(edges, (a, b) -> Character.compare(a.charAt(0), b.charAt(0)));
+        for (int i = edges.length - 1; i >= 0; i--) {
+            stack.push(edges[i]);
+        }
+    }
+
+    /**
+     * the longest substring that is common to at least <tt>k</tt> different indexes, with all the indexes that contain it.
+     * unlike myLCS it works for any number of documents, in one linear pass over the analysis of the tree
+     */
+    public CommonSubstring longestCommonSubstring(GeneralizedSuffixTreeImp tree, int k) {
+        return longestCommonSubstring(tree.analyze(), k);
+    }
+
+    public CommonSubstring longestCommonSubstring(TreeAnalysis analysis, int k) {
+        TreeMetrics.Phase phase = metrics == null ? null : metrics.begin(TreeMetrics.PHASE_LCS);
+        int best = -1;
+        for (int v = 0; v < analysis.size(); v++) {
+            if (analysis.getDocumentCount(v) >= k && (best < 0 || analysis.getDepth(v) > analysis.getDepth(best))) {
+                best = v;
+            }
+        }
+        if (phase != null) {
+            phase.end(analysis.size());
+        }
+        return toCommonSubstring(analysis, best);
+    }
+
+    /**
+     * the answers of {@link #longestCommonSubstring(TreeAnalysis, int)} for every k at once, element k of the array
+     * is the answer for k (elements 0 and 1 are not used), so one pass replaces N separate runs
+     */
+    public CommonSubstring[] longestCommonSubstrings(GeneralizedSuffixTreeImp tree) {
+        return longestCommonSubstrings(tree.analyze());
+    }
+
+    public CommonSubstring[] longestCommonSubstrings(TreeAnalysis analysis) {
+        TreeMetrics.Phase phase = metrics == null ? null : metrics.begin(TreeMetrics.PHASE_LCS);
+        int documents = analysis.getTotalDocuments();
+        // deepest node for every exact document count, then the best one among the counts >= k
+        int[] deepest = new int[documents + 2];
+        Arrays.fill(deepest, -1);
+        for (int v = 0; v < analysis.size(); v++) {
+            int count = analysis.getDocumentCount(v);
+            if (deepest[count] < 0 || analysis.getDepth(v) > analysis.getDepth(deepest[count])) {
+                deepest[count] = v;
+            }
+        }
+        CommonSubstring[] ret = new CommonSubstring[Math.max(documents + 1, 2)];
+        int best = -1;
+        for (int k = documents; k >= 2; k--) {
+            if (deepest[k] >= 0 && (best < 0 || analysis.getDepth(deepest[k]) > analysis.getDepth(best))) {
+                best = deepest[k];
+            }
+            ret[k] = toCommonSubstring(analysis, best);
+        }
+        if (phase != null) {
+            phase.end(analysis.size());
+        }
+        return ret;
+    }
+
+    /**
+     * every substring common to at least <tt>k</tt> indexes whose length is one of the <tt>lengths</tt> largest lengths
+     * of such substrings, the longest first, each with the places where it starts. with lengths = 1 these are all the
+     * ties for the longest common substring.
+     * only the maximal ones are given: adding a char on the right or on the left makes them common to less than k indexes
+     * (otherwise every prefix and suffix of the longest one would come too).
+     * in the tree such a string is a node v with k indexes or more where no child has k, and no node with k indexes
+     * has v as its suffix link (the string of that node would be v with one more char on the left).
+     * one pass over the analysis finds them, then the strings, documents and positions are built while the iterator is read
+     */
+    public Iterator<CommonSubstring> topCommonSubstrings(GeneralizedSuffixTreeImp tree, int k, int lengths) {
+        return topCommonSubstrings(tree.analyze(), k, lengths);
+    }
+
+    public Iterator<CommonSubstring> topCommonSubstrings(TreeAnalysis analysis, int k, int lengths) {
+        if (k < 1 || lengths < 1) {
+            throw new IllegalArgumentException("k and the number of lengths must be positive: " + k + ", " + lengths);
+        }
+        TreeMetrics.Phase phase = metrics == null ? null : metrics.begin(TreeMetrics.PHASE_LCS);
+        int size = analysis.size();
+        boolean[] extendable = new boolean[size];
+        for (int v = 1; v < size; v++) {
+            if (analysis.getDocumentCount(v) >= k) {
+                extendable[analysis.getParent(v)] = true;
+                int link = analysis.getSuffixLink(v);
+                if (link > 0) {
+                    extendable[link] = true;
+                }
+            }
+        }
+        // the maximal nodes with the depth in the high bits, so the deepest come last once sorted
+        long[] found = new long[16];
+        int n = 0;
+        for (int v = 1; v < size; v++) {
+            if (!extendable[v] && analysis.getDocumentCount(v) >= k) {
+                if (n == found.length) {
+                    found = Arrays.copyOf(found, n * 2);
+                }
+                found[n++] = ((long) analysis.getDepth(v) << 32) | v;
+            }
+        }
+        Arrays.sort(found, 0, n);
+        // the shortest length that is still one of the largest ones
+        int first = n;
+        for (int distinct = 0; first > 0; first--) {
+            if (first == n || found[first - 1] >>> 32 != found[first] >>> 32) {
+                if (distinct == lengths) {
+                    break;
+                }
+                distinct++;
+            }
+        }
+        if (phase != null) {
+            phase.end(size);
+        }
+        final long[] nodes = found;
+        final int from = first;
+        final int to = n;
+        return new Iterator<CommonSubstring>() {
+            private int next = to - 1;
+
+            @Override
+            public boolean hasNext() {
+                return next >= from;
+            }
+
+            @Override
+            public CommonSubstring next() {
+                if (next < from) {
+                    throw new NoSuchElementException();
+                }
+                int v = (int) nodes[next--];
+                List<SearchCursor.Occurrence> positions = new ArrayList<SearchCursor.Occurrence>();
+                Iterator<SearchCursor.Occurrence> it = analysis.getOccurrences(v);
+                while (it.hasNext()) {
+                    positions.add(it.next());
+                }
+                positions.sort((a, b) -> a.index != b.index ? Integer.compare(a.index, b.index) : Integer.compare(a.offset, b.offset));
+                return new CommonSubstring(analysis.getPathLabel(v), analysis.getDocuments(v), positions);
+            }
+        };
+    }
+
+    /**
+     * the length of the longest common substring of every pair of indexes, keeping only the ones of at least
+     * <tt>minLength</tt> (see {@link LcsMatrix}), in one pass over a tree of all the documents instead of a tree per pair.
+     *
+     * the answer for a pair is the depth of the deepest node that has both in its subtree. the subtrees are merged
+     * bottom up, and when the set of indexes A of a node meets the set B of one more child, the new pairs are
+     * (A \ B) x (B \ A): a pair that is in one of them already met deeper, at a longer string. the smaller set is
+     * always the one that is read, and a pair can be met at several nodes, the largest depth is kept.
+     * only the nodes at least minLength deep are merged, so the work is cut to the strings that count. their top nodes
+     * are the roots of independent subtrees, which are cut in groups of about the same size and merged on the pool
+     */
+    public LcsMatrix lcsMatrix(GeneralizedSuffixTreeImp tree, int minLength, boolean dense, ForkJoinPool pool) {
+        return lcsMatrix(tree.analyze(), minLength, dense, pool);
+    }
+
+    public LcsMatrix lcsMatrix(TreeAnalysis analysis, int minLength, boolean dense, ForkJoinPool pool) {
+        if (minLength < 0) {
+            throw new IllegalArgumentException("the minimum length can not be negative: " + minLength);
+        }
+        final int rows = analysis.getTotalDocuments();
+        if (dense && (long) rows * (rows - 1) / 2 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("a dense matrix of " + rows + " indexes is too big, use a sparse one");
+        }
+        TreeMetrics.Phase phase = metrics == null ? null : metrics.begin(TreeMetrics.PHASE_LCS);
+        int[] indexes = new int[rows];
+        for (int c = 0; c < rows; c++) {
+            indexes[c] = analysis.getIndexOfColor(c);
+        }
+        int depth = Math.max(1, minLength);
+        // the top nodes deep enough that have a pair to give, and the number of nodes below them
+        List<Integer> roots = new ArrayList<Integer>();
+        long work = 0;
+        for (int v = 1; v < analysis.size(); v++) {
+            if (analysis.getDepth(v) >= depth && analysis.getDepth(analysis.getParent(v)) < depth
+                    && analysis.getDocumentCount(v) >= 2) {
+                roots.add(v);
+                work += analysis.getSubtreeEnd(v) - v;
+            }
+        }
+        final AtomicIntegerArray triangle = dense ? new AtomicIntegerArray((int) ((long) rows * (rows - 1) / 2)) : null;
+        long chunk = Math.max(1, work / (4 * pool.getParallelism()));
+        List<Callable<Map<Long, Integer>>> tasks = new ArrayList<Callable<Map<Long, Integer>>>();
+        for (int from = 0; from < roots.size(); ) {
+            int to = from;
+            long size = 0;
+            while (to < roots.size() && size < chunk) {
+                size += analysis.getSubtreeEnd(roots.get(to)) - roots.get(to);
+                to++;
+            }
+            final List<Integer> group = roots.subList(from, to);
+            tasks.add(() -> {
+                Map<Long, Integer> found = triangle == null ? new HashMap<Long, Integer>() : null;
+                for (int root : group) {
+                    mergeSubtree(analysis, root, rows, triangle, found);
+                }
+                return found;
+            });
+            from = to;
+        }
+        Map<Long, Integer> found = new HashMap<Long, Integer>();
+        for (Future<Map<Long, Integer>> future : pool.invokeAll(tasks)) {
             try {
-                if (node.getEdge((char) i) != null) {
-//                    System.out.println(node.getEdge((char) i).getLabel());
-                    if (node.getEdge((char) i).getDest().getData().size() == 2/*&& !node.getEdge((char) i).getDest().getChecked()*/) {
-                        /*node.getEdge((char) i).getDest().setChecked(true);*/
-//                        System.out.println(node.getEdge((char) i).getLabel());
-                        StringBuilder l = new StringBuilder(node.getEdge((char) i).getLabel());
-                        l.append(myLCS(node.getEdge((char) i).getDest()));
-                        if (temp.length() <= l.length())
-                            temp = l;
-//                        temp.append(myDoTravers(node.getEdge((char) i).getDest()));
-//                        System.out.println(node.getEdge((char) i).getDest() + " ezafe ?? " + node.getEdge((char) i).getLabel());
-//                        set.add(node.getEdge((char) i).getDest());
-//                        set.addAll(myDoTravers(node.getEdge((char) i).getDest()));
+                Map<Long, Integer> part = future.get();
+                if (part != null) {
+                    for (Map.Entry<Long, Integer> e : part.entrySet()) {
+                        found.merge(e.getKey(), e.getValue(), Math::max);
                     }
                 }
-            } catch (Exception e) {
-//                System.out.println(i);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while computing the matrix", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        LcsMatrix ret;
+        if (dense) {
+            ret = new LcsMatrix(indexes, minLength, triangle);
+        } else {
+            long[] pairs = new long[found.size()];
+            int n = 0;
+            for (long pair : found.keySet()) {
+                pairs[n++] = pair;
+            }
+            Arrays.sort(pairs);
+            int[] lengths = new int[pairs.length];
+            for (int i = 0; i < pairs.length; i++) {
+                lengths[i] = found.get(pairs[i]);
+            }
+            ret = new LcsMatrix(indexes, minLength, pairs, lengths);
+        }
+        if (phase != null) {
+            phase.end(work);
+        }
+        return ret;
+    }
+
+    /**
+     * the bottom up merge of {@link #lcsMatrix} in the subtree of <tt>root</tt>: going backward in the numbering every
+     * node is complete when it is reached, it takes its own refs and is then merged into its parent
+     */
+    private static void mergeSubtree(TreeAnalysis analysis, int root, int rows, AtomicIntegerArray triangle, Map<Long, Integer> found) {
+        int end = analysis.getSubtreeEnd(root);
+        ColorSet[] pending = new ColorSet[end - root];
+        for (int v = end - 1; v >= root; v--) {
+            // the refs of the node are added one by one, two of them are a pair too
+            ColorSet set = pending[v - root];
+            pending[v - root] = null;
+            for (int i = 0; i < analysis.getRefCount(v); i++) {
+                int color = analysis.getRefColor(v, i);
+                if (set == null) {
+                    set = new ColorSet();
+                }
+                if (!set.contains(color)) {
+                    for (int x : set.slots) {
+                        if (x >= 0) {
+                            record(Math.min(x, color), Math.max(x, color), analysis.getDepth(v), rows, triangle, found);
+                        }
+                    }
+                    set.add(color);
+                }
+            }
+            if (set == null) {
+                continue;
             }
-/*            if (answer.length()<=temp.length()){
-                answer = temp.toString();
-                check = true;
+            if (v > root) {
+                int parent = analysis.getParent(v);
+                pending[parent - root] = merge(pending[parent - root], set, analysis.getDepth(parent), rows, triangle, found);
+            }
+        }
+    }
+
+    /**
+     * @return the union of the two sets, after giving the new pairs between them the length <tt>depth</tt>.
+     * the smaller set is read and added into the larger one, which is returned
+     */
+    private static ColorSet merge(ColorSet a, ColorSet b, int depth, int rows, AtomicIntegerArray triangle,
+                                  Map<Long, Integer> found) {
+        if (a == null || b.size == 0) {
+            return a == null ? b : a;
+        }
+        if (a.size < b.size) {
+            ColorSet swap = a;
+            a = b;
+            b = swap;
+        }
+        int[] added = new int[b.size];
+        int n = 0;
+        for (int y : b.slots) {
+            if (y >= 0 && !a.contains(y)) {
+                added[n++] = y;
+                for (int x : a.slots) {
+                    if (x >= 0 && !b.contains(x)) {
+                        record(Math.min(x, y), Math.max(x, y), depth, rows, triangle, found);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            a.add(added[i]);
+        }
+        return a;
+    }
+
+    /**
+     * a set of the dense colors of a {@link TreeAnalysis} (0 to rows - 1) with open addressing in an int array,
+     * -1 marks the free slots. the merge reads the slots directly
+     */
+    private static final class ColorSet {
+
+        private int[] slots = {-1, -1, -1, -1};
+        private int size = 0;
+
+        boolean contains(int color) {
+            int mask = slots.length - 1;
+            for (int i = slot(color, mask); ; i = (i + 1) & mask) {
+                if (slots[i] == color) {
+                    return true;
+                } else if (slots[i] < 0) {
+                    return false;
+                }
             }
         }
-        if (check)
-            return answer;
-        else return "";*/
+
+        /**
+         * adds a color that is not in the set
+         */
+        void add(int color) {
+            if (2 * (size + 1) > slots.length) {
+                int[] old = slots;
+                slots = new int[2 * old.length];
+                Arrays.fill(slots, -1);
+                for (int c : old) {
+                    if (c >= 0) {
+                        insert(c);
+                    }
+                }
+            }
+            insert(color);
+            size++;
+        }
+
+        private void insert(int color) {
+            int mask = slots.length - 1;
+            int i = slot(color, mask);
+            while (slots[i] >= 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = color;
+        }
+
+        private static int slot(int color, int mask) {
+            int h = color * 0x9E3779B9;
+            return (h ^ h >>> 16) & mask;
+        }
+    }
+
+    private static void record(int row1, int row2, int depth, int rows, AtomicIntegerArray triangle, Map<Long, Integer> found) {
+        if (triangle != null) {
+            int cell = (int) LcsMatrix.cell(rows, row1, row2);
+            if (triangle.get(cell) < depth) {
+                triangle.accumulateAndGet(cell, depth, Math::max);
+            }
+        } else {
+            found.merge(((long) row1 << 32) | row2, depth, Math::max);
+        }
+    }
+
+    /**
+     * the longest substring common to at least <tt>k</tt> indexes of a sharded index, where no single tree sees all the documents.
+     * such a string is in at least ceil(k / shards) documents of one shard, so the candidates are the nodes of the shards
+     * with that many documents. they are tried from the deepest one, and the longest prefix of the path of a node that
+     * the whole index finds in k documents is found with a binary search (a longer prefix is never in more documents).
+     * the best string one shard already has on its own is the starting lower bound, which prunes most candidates
+     */
+    public CommonSubstring longestCommonSubstring(ShardedSuffixTree index, int k) {
+        TreeAnalysis[] analyses = index.analyze();
+        TreeMetrics.Phase phase = metrics == null ? null : metrics.begin(TreeMetrics.PHASE_LCS);
+        int threshold = (k + analyses.length - 1) / analyses.length;
+
+        String best = "";
+        for (TreeAnalysis analysis : analyses) {
+            for (int v = 1; v < analysis.size(); v++) {
+                if (analysis.getDocumentCount(v) >= k && analysis.getDepth(v) > best.length()) {
+                    best = analysis.getPathLabel(v);
+                }
+            }
+        }
+
+        // the candidates of every shard sorted by depth (in the high bits), then merged from the deepest one
+        long[][] candidates = new long[analyses.length][];
+        int[] next = new int[analyses.length];
+        for (int s = 0; s < analyses.length; s++) {
+            TreeAnalysis analysis = analyses[s];
+            long[] order = new long[analysis.size()];
+            int n = 0;
+            for (int v = 1; v < analysis.size(); v++) {
+                if (analysis.getDocumentCount(v) >= threshold && analysis.getDepth(v) > best.length()) {
+                    order[n++] = ((long) analysis.getDepth(v) << 32) | v;
+                }
+            }
+            Arrays.sort(order, 0, n);
+            candidates[s] = order;
+            next[s] = n - 1;
+        }
+        while (true) {
+            int s = -1;
+            for (int t = 0; t < analyses.length; t++) {
+                if (next[t] >= 0 && (s < 0 || candidates[t][next[t]] > candidates[s][next[s]])) {
+                    s = t;
+                }
+            }
+            if (s < 0) {
+                break;
+            }
+            TreeAnalysis analysis = analyses[s];
+            int v = (int) candidates[s][next[s]--];
+            if (analysis.getDepth(v) <= best.length()) {
+                break;
+            }
+            String label = analysis.getPathLabel(v);
+            int low = Math.max(analysis.getDepth(analysis.getParent(v)), best.length()) + 1;
+            int high = analysis.getDepth(v);
+            if (index.count(label.substring(0, low)) < k) {
+                continue;
+            }
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (index.count(label.substring(0, mid)) >= k) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            best = label.substring(0, low);
+        }
+        if (phase != null) {
+            long nodes = 0;
+            for (TreeAnalysis analysis : analyses) {
+                nodes += analysis.size();
+            }
+            phase.end(nodes);
+        }
+        if (best.isEmpty()) {
+            return new CommonSubstring("", Collections.<Integer>emptyList());
+        }
+        return new CommonSubstring(best, index.search(best));
+    }
+
+    private static CommonSubstring toCommonSubstring(TreeAnalysis analysis, int node) {
+        if (node <= 0) {
+            return new CommonSubstring("", Collections.<Integer>emptyList());
         }
-        return temp.toString();
+        return new CommonSubstring(analysis.getPathLabel(node), analysis.getDocuments(node));
     }
 
     ArrayList arrayList = new ArrayList();
@@ -0,0 +1,170 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixarray;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * the counts and the searches of the FM index against String.contains over the keys, with keys put after a build
+ * (read back out of the transform) and chars out of ascii
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class FMIndexTest {
+
+    /**
+     * ascii letters and a few wide chars, the index keeps any char
+     */
+    private static final String WIDE = "abéÿĀ中";
+
+    @Test
+    public void sameAnswersAsAScan() {
+        Random random = new Random(3);
+        for (int round = 0; round < 80; round++) {
+            String alphabet = round % 2 == 0 ? "abc" : WIDE.substring(0, 2 + round % 5);
+            Keys keys = new Keys();
+            FMIndex index = new FMIndex();
+            int puts = 1 + random.nextInt(30);
+            for (int i = 0; i < puts; i++) {
+                keys.put(index, word(random, random.nextInt(40), alphabet), random.nextInt(3) == 0 ? keys.last() : keys.last() + 1);
+            }
+            check(keys, index, random, alphabet);
+        }
+    }
+
+    @Test
+    public void putsAfterTheBuild() {
+        Random random = new Random(4);
+        for (int round = 0; round < 40; round++) {
+            String alphabet = round % 2 == 0 ? "ab" : WIDE;
+            Keys keys = new Keys();
+            FMIndex index = new FMIndex();
+            for (int step = 0; step < 4; step++) {
+                int puts = random.nextInt(8);
+                for (int i = 0; i < puts; i++) {
+                    keys.put(index, word(random, random.nextInt(30), alphabet), keys.last() + random.nextInt(2));
+                }
+                // the query builds the index, the next puts make it read the keys back from the transform
+                check(keys, index, random, alphabet);
+            }
+        }
+    }
+
+    @Test
+    public void everySampleDistance() {
+        // one long key, so the located rows walk back up to SAMPLE_RATE - 1 chars
+        Random random = new Random(5);
+        Keys keys = new Keys();
+        FMIndex index = new FMIndex();
+        keys.put(index, word(random, 20 * FMIndex.SAMPLE_RATE, "ab"), 0);
+        keys.put(index, word(random, 3 * FMIndex.SAMPLE_RATE, "ab"), 1);
+        check(keys, index, random, "ab");
+    }
+
+    private static void check(Keys keys, FMIndex index, Random random, String alphabet) {
+        for (int q = 0; q < 40; q++) {
+            String word = q % 2 == 0 ? keys.piece(random) : word(random, 1 + random.nextInt(4), alphabet);
+            if (word.isEmpty()) {
+                continue;
+            }
+            String what = keys + " " + word;
+            SortedSet<Integer> expected = keys.indexesContaining(word);
+            assertEquals(what, keys.occurrences(word), index.occurrences(word));
+            assertEquals(what, expected, new TreeSet<Integer>(index.search(word)));
+            int limit = random.nextInt(3);
+            assertEquals(what, Math.min(limit, expected.size()), index.search(word, limit).size());
+            assertTrue(what, expected.containsAll(index.search(word, limit)));
+            assertEquals(what, expected.size(), index.searchWithCount(word, limit).totalResults);
+            assertEquals(what, Math.min(limit, expected.size()), index.searchWithCount(word, limit).results.size());
+        }
+    }
+
+    private static String word(Random random, int length, String alphabet) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * the keys put in an index, with the naive answers
+     */
+    private static final class Keys {
+
+        private final List<String> keys = new ArrayList<String>();
+        private final List<Integer> indexes = new ArrayList<Integer>();
+
+        void put(FMIndex index, String key, int value) {
+            index.put(key, value);
+            keys.add(key);
+            indexes.add(value);
+        }
+
+        int last() {
+            return indexes.isEmpty() ? 0 : indexes.get(indexes.size() - 1);
+        }
+
+        String piece(Random random) {
+            if (keys.isEmpty()) {
+                return "";
+            }
+            String key = keys.get(random.nextInt(keys.size()));
+            if (key.isEmpty()) {
+                return key;
+            }
+            int start = random.nextInt(key.length());
+            return key.substring(start, start + 1 + random.nextInt(Math.min(6, key.length() - start)));
+        }
+
+        SortedSet<Integer> indexesContaining(String word) {
+            SortedSet<Integer> ret = new TreeSet<Integer>();
+            for (int d = 0; d < keys.size(); d++) {
+                if (keys.get(d).contains(word)) {
+                    ret.add(indexes.get(d));
+                }
+            }
+            return ret;
+        }
+
+        int occurrences(String word) {
+            int ret = 0;
+            for (String key : keys) {
+                for (int p = key.indexOf(word); p >= 0; p = key.indexOf(word, p + 1)) {
+                    ret++;
+                }
+            }
+            return ret;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (int d = 0; d < keys.size(); d++) {
+                sb.append(indexes.get(d)).append('=').append(keys.get(d)).append(' ');
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixarray;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * SA-IS and Kasai against sorting the suffixes and comparing them char by char, and the searches and the longest common
+ * substrings of the array against a scan of the keys
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class GeneralizedSuffixArrayTest {
+
+    @Test
+    public void saisAndKasaiAsTheNaiveOnes() {
+        Random random = new Random(6);
+        for (int round = 0; round < 300; round++) {
+            int n = 1 + random.nextInt(round % 10 == 0 ? 500 : 40);
+            int k = 2 + random.nextInt(round % 3 == 0 ? 2 : 50);
+            // a unique 0 at the end, the other values in [1, k), often runs of the same value for the LMS recursion
+            final int[] s = new int[n];
+            for (int i = 0; i < n - 1; i++) {
+                s[i] = i > 0 && random.nextInt(3) == 0 ? s[i - 1] : 1 + random.nextInt(k - 1);
+            }
+            int[] sa = new int[n];
+            GeneralizedSuffixArray.sais(s, sa, n, k);
+
+            Integer[] expected = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                expected[i] = i;
+            }
+            Arrays.sort(expected, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    for (int i = 0; ; i++) {
+                        // the unique 0 ends the comparison before the end of the array
+                        if (s[a + i] != s[b + i]) {
+                            return s[a + i] - s[b + i];
+                        }
+                    }
+                }
+            });
+            String what = "round " + round + " " + Arrays.toString(s);
+            for (int i = 0; i < n; i++) {
+                assertEquals(what, (int) expected[i], sa[i]);
+            }
+
+            int[] lcp = new int[n];
+            for (int i = 1; i < n; i++) {
+                while (s[sa[i] + lcp[i]] == s[sa[i - 1] + lcp[i]]) {
+                    lcp[i]++;
+                }
+            }
+            assertArrayEquals(what, lcp, GeneralizedSuffixArray.kasai(s, sa, n));
+        }
+    }
+
+    @Test
+    public void searchesAsAScan() {
+        Random random = new Random(7);
+        for (int round = 0; round < 60; round++) {
+            String alphabet = round % 2 == 0 ? "ab" : "aé中";
+            List<String> keys = new ArrayList<String>();
+            List<Integer> indexes = new ArrayList<Integer>();
+            GeneralizedSuffixArray array = new GeneralizedSuffixArray();
+            int index = 0;
+            int puts = random.nextInt(20);
+            for (int i = 0; i < puts; i++) {
+                index += random.nextInt(2);
+                String key = word(random, random.nextInt(15), alphabet);
+                array.put(key, index);
+                keys.add(key);
+                indexes.add(index);
+            }
+            for (int q = 0; q < 30; q++) {
+                String word = word(random, 1 + random.nextInt(3), alphabet);
+                SortedSet<Integer> expected = new TreeSet<Integer>();
+                for (int d = 0; d < keys.size(); d++) {
+                    if (keys.get(d).contains(word)) {
+                        expected.add(indexes.get(d));
+                    }
+                }
+                String what = keys + " " + indexes + " " + word;
+                assertEquals(what, expected, new TreeSet<Integer>(array.search(word)));
+                for (int limit = 0; limit <= 2; limit++) {
+                    assertEquals(what + " limit " + limit, Math.min(limit, expected.size()), array.search(word, limit).size());
+                    assertTrue(what, expected.containsAll(array.search(word, limit)));
+                    assertEquals(what, expected.size(), array.searchWithCount(word, limit).totalResults);
+                    assertEquals(what, Math.min(limit, expected.size()), array.searchWithCount(word, limit).results.size());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void longestCommonSubstringsAsBruteForce() {
+        Random random = new Random(8);
+        for (int round = 0; round < 150; round++) {
+            String alphabet = round % 3 == 0 ? "aé" : "abc";
+            Map<Integer, List<String>> byIndex = new HashMap<Integer, List<String>>();
+            GeneralizedSuffixArray array = new GeneralizedSuffixArray();
+            int index = 0;
+            int puts = 1 + random.nextInt(8);
+            for (int i = 0; i < puts; i++) {
+                // keys sharing an index count once
+                index += random.nextInt(3) == 0 ? 0 : 1;
+                String key = word(random, random.nextInt(12), alphabet);
+                array.put(key, index);
+                if (!byIndex.containsKey(index)) {
+                    byIndex.put(index, new ArrayList<String>());
+                }
+                byIndex.get(index).add(key);
+            }
+            String what = byIndex.toString();
+            for (int k = 0; k <= byIndex.size() + 1; k++) {
+                int expected = k < 1 || k > byIndex.size() ? 0 : longest(byIndex, k);
+                String found = array.longestCommonSubstring(k);
+                assertEquals(what + " k " + k, expected, found.length());
+                if (!found.isEmpty()) {
+                    assertTrue(what + " k " + k + " " + found, indexesContaining(byIndex, found) >= k);
+                }
+            }
+            assertEquals(what, longest(byIndex, byIndex.size()), array.longestCommonSubstring().length());
+        }
+    }
+
+    private static int longest(Map<Integer, List<String>> byIndex, int k) {
+        Set<String> substrings = new HashSet<String>();
+        for (List<String> keys : byIndex.values()) {
+            for (String key : keys) {
+                for (int i = 0; i < key.length(); i++) {
+                    for (int j = i + 1; j <= key.length(); j++) {
+                        substrings.add(key.substring(i, j));
+                    }
+                }
+            }
+        }
+        int ret = 0;
+        for (String substring : substrings) {
+            if (substring.length() > ret && indexesContaining(byIndex, substring) >= k) {
+                ret = substring.length();
+            }
+        }
+        return ret;
+    }
+
+    private static int indexesContaining(Map<Integer, List<String>> byIndex, String word) {
+        int ret = 0;
+        for (List<String> keys : byIndex.values()) {
+            for (String key : keys) {
+                if (key.contains(word)) {
+                    ret++;
+                    break;
+                }
+            }
+        }
+        return ret;
+    }
+
+    private static String word(Random random, int length, String alphabet) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+}
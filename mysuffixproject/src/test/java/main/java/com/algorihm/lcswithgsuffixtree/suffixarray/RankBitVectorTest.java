@@ -0,0 +1,57 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixarray;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * the bits and the ranks of random bit vectors against counting the bits one by one
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class RankBitVectorTest {
+
+    @Test
+    public void ranksAreTheCountedBits() {
+        Random random = new Random(1);
+        for (int round = 0; round < 200; round++) {
+            // around the block of 8 words, empty and full words too
+            int length = round < 20 ? round : random.nextInt(40);
+            long[] words = new long[length];
+            for (int w = 0; w < length; w++) {
+                int kind = random.nextInt(4);
+                words[w] = kind == 0 ? 0 : kind == 1 ? -1L : random.nextLong() & random.nextLong();
+            }
+            RankBitVector vector = new RankBitVector(words.clone());
+            int ones = 0;
+            for (int i = 0; i <= 64 * length; i++) {
+                String what = "round " + round + " bit " + i;
+                assertEquals(what, ones, vector.rank1(i));
+                assertEquals(what, i - ones, vector.rank0(i));
+                if (i < 64 * length) {
+                    boolean bit = (words[i / 64] >>> (i % 64) & 1) != 0;
+                    assertEquals(what, bit, vector.get(i));
+                    if (bit) {
+                        ones++;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixarray;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * the values and the ranks of wavelet matrices over random sequences against the plain array
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class WaveletMatrixTest {
+
+    @Test
+    public void accessAndRankAsInTheArray() {
+        Random random = new Random(2);
+        for (int round = 0; round < 120; round++) {
+            // one value only, powers of two and the sizes just around them, up to more values than a char
+            int sigma = round < 10 ? 1 + round : 1 + random.nextInt(round % 3 == 0 ? 300 : 17);
+            int n = random.nextInt(round % 5 == 0 ? 2000 : 150);
+            int[] values = new int[n];
+            for (int i = 0; i < n; i++) {
+                // a skewed distribution, so some values are missing and others are frequent
+                values[i] = random.nextInt(1 + random.nextInt(sigma));
+            }
+            WaveletMatrix matrix = new WaveletMatrix(values.clone(), sigma);
+            for (int i = 0; i < n; i++) {
+                assertEquals("round " + round + " at " + i, values[i], matrix.access(i));
+            }
+            int[] seen = new int[sigma];
+            for (int i = 0; i <= n; i++) {
+                if (i % 7 == 0 || i == n || sigma < 8) {
+                    for (int c = 0; c < sigma; c++) {
+                        assertEquals("round " + round + " rank of " + c + " at " + i, seen[c], matrix.rank(c, i));
+                    }
+                }
+                if (i < n) {
+                    seen[values[i]]++;
+                }
+            }
+        }
+    }
+}
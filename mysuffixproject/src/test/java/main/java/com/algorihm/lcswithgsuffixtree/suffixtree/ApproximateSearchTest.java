@@ -0,0 +1,143 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * the approximate search against trying every position of every key, with and without a pool
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class ApproximateSearchTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void sameMatchesAsTheNaiveSearch() {
+        Random random = new Random(7);
+        for (int round = 0; round < 60; round++) {
+            int alphabet = 2 + round % 4;
+            RandomKeys keys = new RandomKeys(random, alphabet);
+            int puts = 1 + random.nextInt(30);
+            for (int i = 0; i < puts; i++) {
+                // one key per index, the naive search could not tell apart two keys of one index at the same offset
+                keys.put(RandomKeys.word(random, 1 + random.nextInt(25), alphabet), i);
+            }
+            if (round % 3 == 0) {
+                for (int i = 0; i < puts; i += 4) {
+                    keys.remove(i);
+                }
+            }
+            for (int q = 0; q < 30; q++) {
+                String word = RandomKeys.word(random, 2 + random.nextInt(6), alphabet);
+                int k = random.nextInt(Math.min(4, word.length()));
+                for (ApproximateMatch.Distance distance : ApproximateMatch.Distance.values()) {
+                    List<String> expected = naive(keys, word, k, distance == ApproximateMatch.Distance.EDIT);
+                    String what = keys + word + " k=" + k + " " + distance;
+                    assertEquals(what, expected, sorted(keys.tree.searchApproximate(word, k, distance)));
+                    assertEquals(what, expected, sorted(keys.tree.searchApproximate(word, k, distance, POOL)));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void kMustBeSmallerThanTheWord() {
+        GeneralizedSuffixTreeImp tree = new GeneralizedSuffixTreeImp();
+        tree.put("abc", 0);
+        tree.searchApproximate("ab", 2, ApproximateMatch.Distance.HAMMING);
+    }
+
+    private static List<String> sorted(List<ApproximateMatch> matches) {
+        List<String> ret = new ArrayList<String>();
+        for (ApproximateMatch m : matches) {
+            ret.add(m.toString());
+        }
+        Collections.sort(ret);
+        return ret;
+    }
+
+    /**
+     * the best match that starts at each position of the live keys, the shortest one among the best with edit
+     */
+    private static List<String> naive(RandomKeys keys, String word, int k, boolean edit) {
+        List<String> ret = new ArrayList<String>();
+        int m = word.length();
+        for (int d = 0; d < keys.keys.size(); d++) {
+            if (!keys.isLive(d)) {
+                continue;
+            }
+            String key = keys.keys.get(d);
+            for (int offset = 0; offset < key.length(); offset++) {
+                int best = k + 1;
+                int bestLength = -1;
+                if (!edit) {
+                    if (offset + m <= key.length()) {
+                        best = 0;
+                        for (int i = 0; i < m; i++) {
+                            best += key.charAt(offset + i) == word.charAt(i) ? 0 : 1;
+                        }
+                        bestLength = m;
+                    }
+                } else {
+                    for (int length = Math.max(1, m - k); length <= m + k && offset + length <= key.length(); length++) {
+                        int distance = levenshtein(word, key.substring(offset, offset + length));
+                        if (distance < best) {
+                            best = distance;
+                            bestLength = length;
+                        }
+                    }
+                }
+                if (best <= k) {
+                    ret.add(new ApproximateMatch(keys.indexes.get(d), offset, bestLength, best).toString());
+                }
+            }
+        }
+        Collections.sort(ret);
+        return ret;
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int replace = d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                d[i][j] = Math.min(replace, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
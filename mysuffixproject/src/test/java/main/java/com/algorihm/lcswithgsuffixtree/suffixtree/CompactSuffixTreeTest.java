@@ -0,0 +1,170 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * the compact copy of random trees, on the heap and off it, saved and loaded twice: every column and every answer
+ * must stay the same as in the tree it was copied from, and every child must be found as in the tree
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class CompactSuffixTreeTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void saveAndLoadTwice() throws IOException {
+        Random random = new Random(17);
+        for (int round = 0; round < 40; round++) {
+            int alphabet = 2 + round % 4;
+            RandomKeys keys = new RandomKeys(random, alphabet);
+            int puts = 1 + random.nextInt(40);
+            for (int i = 0; i < puts; i++) {
+                keys.put(30);
+            }
+            if (round % 3 == 0) {
+                keys.remove(keys.liveIndex());
+            }
+            for (boolean offHeap : new boolean[]{false, true}) {
+                CompactSuffixTree copy = CompactSuffixTree.from(keys.tree, offHeap);
+                Path first = folder.newFile().toPath();
+                copy.save(first);
+                CompactSuffixTree loaded = CompactSuffixTree.load(first);
+                Path second = folder.newFile().toPath();
+                loaded.save(second);
+                CompactSuffixTree reloaded = CompactSuffixTree.load(second);
+
+                assertArrayEquals(keys.toString(), Files.readAllBytes(first), Files.readAllBytes(second));
+                checkSame(keys, copy, loaded);
+                checkSame(keys, copy, reloaded);
+            }
+        }
+    }
+
+    @Test
+    public void everyChildAsInTheTree() throws IOException {
+        Random random = new Random(18);
+        for (int round = 0; round < 20; round++) {
+            // up to the whole alphabet below the root and the first nodes
+            RandomKeys keys = new RandomKeys(random, round % 2 == 0 ? 26 : 2 + round % 5);
+            int puts = 1 + random.nextInt(30);
+            for (int i = 0; i < puts; i++) {
+                keys.put(40);
+            }
+            CompactSuffixTree copy = CompactSuffixTree.from(keys.tree, round % 4 == 1);
+            Path file = folder.newFile().toPath();
+            copy.save(file);
+            for (CompactSuffixTree compact : new CompactSuffixTree[]{copy, CompactSuffixTree.load(file)}) {
+                Deque<Node> nodes = new ArrayDeque<Node>();
+                Deque<Integer> ids = new ArrayDeque<Integer>();
+                nodes.push(keys.tree.getRoot());
+                ids.push(compact.getRoot());
+                int visited = 0;
+                while (!nodes.isEmpty()) {
+                    Node node = nodes.pop();
+                    int id = ids.pop();
+                    visited++;
+                    assertEquals(-1, compact.getEdge(id, '\u00e9'));
+                    for (char c = 0; c < 128; c++) {
+                        Edge edge = node.getEdges().get(c);
+                        int child = compact.getEdge(id, c);
+                        if (edge == null) {
+                            assertEquals(keys + " " + id + " " + c, -1, child);
+                        } else {
+                            assertEquals(keys + " " + id + " " + c, edge.getLabel(), compact.getLabel(child));
+                            nodes.push(edge.getDest());
+                            ids.push(child);
+                        }
+                    }
+                }
+                assertEquals(keys.toString(), compact.getNodeCount(), visited);
+            }
+        }
+    }
+
+    @Test
+    public void columnsTooBigAreRejected() {
+        for (long size : new long[]{Integer.MAX_VALUE / 4 + 1L, 1L << 31}) {
+            try {
+                CompactSuffixTree.allocate(size, true);
+                fail(size + " ints off the heap");
+            } catch (IllegalArgumentException expected) {
+                // more than one direct buffer can hold
+            }
+        }
+        try {
+            CompactSuffixTree.allocate(Integer.MAX_VALUE + 1L, false);
+            fail("more ints than an array holds");
+        } catch (IllegalArgumentException expected) {
+            // more than one array can hold
+        }
+        assertEquals(0, CompactSuffixTree.allocate(0, true).capacity());
+    }
+
+    @Test
+    public void olderSnapshotsAreRejected() throws IOException {
+        Path file = folder.newFile().toPath();
+        ByteBuffer header = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0x47535453).putInt(1).putInt(1).putInt(0).putInt(0).putInt(0).putInt(0).putInt(0);
+        Files.write(file, header.array());
+        try {
+            CompactSuffixTree.load(file);
+            fail("a snapshot of version 1 was loaded");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("version 1"));
+        }
+    }
+
+    private static void checkSame(RandomKeys keys, CompactSuffixTree expected, CompactSuffixTree actual) {
+        String what = keys.toString();
+        assertEquals(what, expected.getNodeCount(), actual.getNodeCount());
+        for (int node = 0; node < expected.getNodeCount(); node++) {
+            assertEquals(what, expected.getLabel(node), actual.getLabel(node));
+            assertEquals(what, expected.getSuffix(node), actual.getSuffix(node));
+            assertEquals(what, expected.getResultCount(node), actual.getResultCount(node));
+            assertEquals(what, expected.getData(node, -1), actual.getData(node, -1));
+        }
+        for (int q = 0; q < 30; q++) {
+            String word = keys.query(6);
+            TreeSet<Integer> hits = new TreeSet<Integer>(keys.tree.search(word));
+            assertEquals(what + word, keys.indexesContaining(word), hits);
+            assertEquals(what + word, hits, new TreeSet<Integer>(actual.search(word)));
+            GeneralizedSuffixTreeImp.ResultInfo info = actual.searchWithCount(word, 2);
+            assertEquals(what + word, hits.size(), info.totalResults);
+            assertEquals(what + word, Math.min(2, hits.size()), info.results.size());
+            assertTrue(what + word, hits.containsAll(info.results));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * one thread puts and removes keys while others search, every answer is checked against a tree built by one thread
+ * with the keys and removals of the version that was searched. the readers share that reference tree and start together
+ * on it before it was ever searched, so their first searches also build its document sets at the same time
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class ConcurrentSuffixTreeTest {
+
+    private static final int READERS = 4;
+
+    @Test
+    public void fixedBatches() throws InterruptedException {
+        stress(new ConcurrentSuffixTree(7), new Random(3));
+    }
+
+    @Test
+    public void growingBatches() throws InterruptedException {
+        stress(new ConcurrentSuffixTree(3, 0.25), new Random(5));
+    }
+
+    @Test
+    public void growingBatchesPublishLess() {
+        ConcurrentSuffixTree fixed = new ConcurrentSuffixTree(1);
+        ConcurrentSuffixTree growing = new ConcurrentSuffixTree(1, 1);
+        for (int i = 0; i < 1000; i++) {
+            fixed.put("abcdefgh", i);
+            growing.put("abcdefgh", i);
+        }
+        assertEquals(1000, fixed.getVersion().number);
+        // every version has at least twice the keys of the one before
+        assertTrue(growing.getVersion().number <= 11);
+        growing.publish();
+        assertEquals(1000, growing.getVersion().keys);
+        assertEquals(1000, growing.search("cde").size());
+    }
+
+    private static void stress(final ConcurrentSuffixTree index, Random random) throws InterruptedException {
+        final int alphabet = 3;
+        final List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 400; i++) {
+            keys.add(RandomKeys.word(random, 1 + random.nextInt(30), alphabet));
+        }
+        // the key i is put with the index i, so a version has the indexes below its number of keys
+        final GeneralizedSuffixTreeImp reference = new GeneralizedSuffixTreeImp();
+        for (int i = 0; i < keys.size(); i++) {
+            reference.put(keys.get(i), i);
+        }
+        // the indexes removed before each version, by the number of the first version that does not have them
+        final ConcurrentSkipListMap<Long, Set<Integer>> removals = new ConcurrentSkipListMap<Long, Set<Integer>>();
+        removals.put(0L, Collections.<Integer>emptySet());
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final AtomicLong checks = new AtomicLong();
+        // nothing searches the reference before the readers: their first searches build its document sets together
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> readers = new ArrayList<Thread>();
+        for (int r = 0; r < READERS; r++) {
+            final Random own = new Random(random.nextLong());
+            Thread reader = new Thread(() -> {
+                try {
+                    start.await();
+                    while (!done.get()) {
+                        ConcurrentSuffixTree.Version version = index.getVersion();
+                        Set<Integer> removed = removals.floorEntry(version.number).getValue();
+                        for (int q = 0; q < 20; q++) {
+                            String word = RandomKeys.word(own, 1 + own.nextInt(4), alphabet);
+                            SortedSet<Integer> expected = new TreeSet<Integer>();
+                            for (int i : reference.search(word)) {
+                                if (i < version.keys && !removed.contains(i)) {
+                                    expected.add(i);
+                                }
+                            }
+                            assertEquals("version " + version.number + " " + word, expected,
+                                    new TreeSet<Integer>(version.tree.search(word)));
+                            checks.incrementAndGet();
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        start.countDown();
+        Set<Integer> removed = new HashSet<Integer>();
+        try {
+            for (int i = 0; i < keys.size() && failure.get() == null; i++) {
+                index.put(keys.get(i), i);
+                if (i % 10 == 9) {
+                    int victim = random.nextInt(i + 1);
+                    if (removed.add(victim)) {
+                        // recorded before the version that drops it can be published
+                        removals.put(index.getVersion().number + 1, new HashSet<Integer>(removed));
+                        assertTrue(index.remove(victim));
+                    }
+                }
+                if (i % 50 == 49) {
+                    index.publish();
+                }
+            }
+            index.publish();
+        } finally {
+            done.set(true);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertTrue(checks.get() > 0);
+        ConcurrentSuffixTree.Version last = index.getVersion();
+        assertEquals(keys.size(), last.keys);
+        for (int q = 0; q < 200; q++) {
+            String word = RandomKeys.word(random, 1 + random.nextInt(4), alphabet);
+            Set<Integer> expected = new TreeSet<Integer>(reference.search(word));
+            expected.removeAll(removed);
+            assertEquals(word, expected, new TreeSet<Integer>(index.search(word)));
+        }
+    }
+}
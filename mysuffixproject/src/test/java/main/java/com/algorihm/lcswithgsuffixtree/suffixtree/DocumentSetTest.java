@@ -0,0 +1,83 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * the sets changed one index at a time against a TreeSet, in all three shapes
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class DocumentSetTest {
+
+    @Test
+    public void withAndWithoutKeepTheSameIndexes() {
+        Random random = new Random(10);
+        for (int round = 0; round < 300; round++) {
+            // small gaps make runs and bitmaps, large ones arrays
+            int gap = 1 + random.nextInt(round % 3 == 0 ? 2 : round % 3 == 1 ? 8 : 200);
+            TreeSet<Integer> expected = new TreeSet<Integer>();
+            DocumentSet set = DocumentSet.EMPTY;
+            int next = random.nextInt(100);
+            for (int step = 0; step < 200; step++) {
+                int index;
+                if (random.nextInt(3) > 0) {
+                    // mostly bigger than all the others, as the tree adds them
+                    index = random.nextInt(5) > 0 ? next : random.nextInt(next + 1);
+                    next += 1 + random.nextInt(gap);
+                    set = set.with(index);
+                    expected.add(index);
+                } else {
+                    index = expected.isEmpty() || random.nextInt(5) == 0 ? random.nextInt(next + 1)
+                            : new ArrayList<Integer>(expected).get(random.nextInt(expected.size()));
+                    set = set.without(index);
+                    expected.remove(index);
+                }
+                check(expected, set);
+            }
+        }
+    }
+
+    private static void check(TreeSet<Integer> expected, DocumentSet set) {
+        List<Integer> got = new ArrayList<Integer>();
+        for (PrimitiveIterator.OfInt it = set.iterator(); it.hasNext(); ) {
+            got.add(it.nextInt());
+        }
+        assertEquals(new ArrayList<Integer>(expected), got);
+        assertEquals(expected.size(), set.cardinality());
+        for (int i : expected) {
+            assertEquals(true, set.contains(i));
+            assertEquals(false, set.contains(i + 1) && !expected.contains(i + 1));
+        }
+        // the shape must be the one a set built at once would get, a bitmap may start up to one word earlier
+        int[] sorted = new int[expected.size()];
+        int n = 0;
+        for (int i : expected) {
+            sorted[n++] = i;
+        }
+        long built = DocumentSet.of(sorted, n).estimatedBytes();
+        assertTrue(set.estimatedBytes() + " for " + built, set.estimatedBytes() >= built && set.estimatedBytes() <= built + 8);
+    }
+}
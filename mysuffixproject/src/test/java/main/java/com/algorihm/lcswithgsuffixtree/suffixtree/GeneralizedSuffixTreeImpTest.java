@@ -0,0 +1,353 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * the searches of the tree against a naive scan of the keys, with puts, searches and removals mixed
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class GeneralizedSuffixTreeImpTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void searchFindsTheSameIndexesAsAScan() {
+        Random random = new Random(1);
+        for (int round = 0; round < 150; round++) {
+            RandomKeys keys = new RandomKeys(random, 2 + round % 4);
+            int puts = 1 + random.nextInt(25);
+            for (int i = 0; i < puts; i++) {
+                keys.put(30);
+                if (random.nextInt(4) == 0) {
+                    checkSearch(keys, keys.query(6));
+                }
+                if (random.nextInt(8) == 0 && keys.liveIndex() >= 0) {
+                    keys.remove(keys.liveIndex());
+                }
+            }
+            for (int q = 0; q < 30; q++) {
+                checkSearch(keys, keys.query(8));
+            }
+        }
+    }
+
+    @Test
+    public void searchAllAsOneSearchPerWord() {
+        Random random = new Random(12);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (int round = 0; round < 40; round++) {
+                RandomKeys keys = new RandomKeys(random, 2 + round % 3);
+                int puts = 1 + random.nextInt(30);
+                for (int i = 0; i < puts; i++) {
+                    keys.put(20);
+                    if (random.nextInt(6) == 0 && keys.liveIndex() >= 0) {
+                        keys.remove(keys.liveIndex());
+                    }
+                }
+                // past the batch of one task in some rounds, so the pool gets several runs of the sorted words
+                int count = round % 4 == 0 ? 3000 : 1 + random.nextInt(60);
+                List<String> words = new ArrayList<String>();
+                for (int q = 0; q < count; q++) {
+                    int kind = random.nextInt(6);
+                    if (kind == 0 && !words.isEmpty()) {
+                        // the same word again
+                        words.add(words.get(random.nextInt(words.size())));
+                    } else if (kind == 1) {
+                        // a letter none of the keys has, alone or after a prefix that is there
+                        words.add(keys.query(3) + RandomKeys.word(random, 1 + random.nextInt(2), 26).replaceAll("[a-e]", "z"));
+                    } else if (kind == 2 && !words.isEmpty()) {
+                        // an extension of another word, found or missing
+                        words.add(words.get(random.nextInt(words.size())) + RandomKeys.word(random, 1, 3));
+                    } else {
+                        words.add(keys.query(8));
+                    }
+                }
+                words.add("");
+                Map<String, Collection<Integer>> sequential = keys.tree.searchAll(words);
+                Map<String, Collection<Integer>> parallel = keys.tree.searchAll(words, pool);
+                assertEquals(keys.toString(), new HashSet<String>(words), sequential.keySet());
+                assertEquals(keys.toString(), new HashSet<String>(words), parallel.keySet());
+                for (String word : words) {
+                    String what = keys + " " + word;
+                    SortedSet<Integer> expected = new TreeSet<Integer>(keys.tree.search(word));
+                    assertEquals(what, word.isEmpty() ? new TreeSet<Integer>() : keys.indexesContaining(word), expected);
+                    assertEquals(what, expected, new TreeSet<Integer>(sequential.get(word)));
+                    assertEquals(what, expected, new TreeSet<Integer>(parallel.get(word)));
+                    assertEquals(what, expected.size(), sequential.get(word).size());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        // a char the tree can not take is refused the same way as by search
+        GeneralizedSuffixTreeImp tree = new GeneralizedSuffixTreeImp();
+        tree.put("abc", 0);
+        try {
+            tree.searchAll(Arrays.asList("a", "\u00e9"));
+            fail("searched a wide char");
+        } catch (IllegalArgumentException expected) {
+            // as search("\u00e9")
+        }
+    }
+
+    @Test
+    public void firstSearchFromManyThreads() throws InterruptedException {
+        Random random = new Random(11);
+        for (int round = 0; round < 60; round++) {
+            RandomKeys keys = new RandomKeys(random, 2 + round % 3);
+            if (round % 2 == 1) {
+                // built once, then changed a little: the threads race on the update of the sets, not on the full build
+                for (int i = 0; i < 200; i++) {
+                    keys.put(30);
+                }
+                checkSearch(keys, keys.query(4));
+                keys.remove(keys.liveIndex());
+            }
+            for (int i = 0; i < 1 + random.nextInt(40); i++) {
+                keys.put(30);
+            }
+            final List<String> words = new ArrayList<String>();
+            final List<SortedSet<Integer>> expected = new ArrayList<SortedSet<Integer>>();
+            for (int q = 0; q < 40; q++) {
+                words.add(keys.query(6));
+                expected.add(keys.indexesContaining(words.get(q)));
+            }
+            // no search before the threads start, the first one of each thread may be the one that builds the sets
+            final GeneralizedSuffixTreeImp tree = keys.tree;
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+            List<Thread> threads = new ArrayList<Thread>();
+            for (int t = 0; t < 4; t++) {
+                final int first = t * words.size() / 4;
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < words.size(); i++) {
+                            int q = (first + i) % words.size();
+                            String word = words.get(q);
+                            assertEquals(word, expected.get(q), new TreeSet<Integer>(tree.search(word)));
+                            assertEquals(word, expected.get(q).size(), tree.searchWithCount(word, 1).totalResults);
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            if (failure.get() != null) {
+                throw new AssertionError(keys.toString(), failure.get());
+            }
+        }
+    }
+
+    @Test
+    public void cursorGivesEveryOccurrence() {
+        Random random = new Random(2);
+        for (int round = 0; round < 100; round++) {
+            RandomKeys keys = new RandomKeys(random, 2 + round % 3);
+            int puts = 1 + random.nextInt(15);
+            for (int i = 0; i < puts; i++) {
+                keys.put(25);
+                if (random.nextInt(6) == 0 && keys.liveIndex() >= 0) {
+                    keys.remove(keys.liveIndex());
+                }
+            }
+            for (int q = 0; q < 20; q++) {
+                String word = keys.query(5);
+                SearchCursor cursor = keys.tree.cursor(word);
+                List<String> got = new ArrayList<String>();
+                for (Iterator<SearchCursor.Occurrence> it = cursor.occurrences(); it.hasNext(); ) {
+                    got.add(it.next().toString());
+                }
+                Collections.sort(got);
+                assertEquals(keys + word, keys.occurrences(word), got);
+                assertEquals(keys + word, keys.indexesContaining(word).size(), cursor.count());
+            }
+        }
+    }
+
+    @Test
+    public void manyKeysWithOneIndex() {
+        Random random = new Random(3);
+        RandomKeys keys = new RandomKeys(random, 3);
+        for (int i = 0; i < 200; i++) {
+            keys.put(RandomKeys.word(random, random.nextInt(20), 3), i / 50);
+        }
+        for (int q = 0; q < 200; q++) {
+            checkSearch(keys, keys.query(6));
+        }
+    }
+
+    @Test
+    public void searchesBetweenSmallPutsAndRemovals() {
+        // a large tree first, so the small changes after it update the document sets instead of building them again
+        Random random = new Random(9);
+        RandomKeys keys = new RandomKeys(random, 3);
+        for (int i = 0; i < 400; i++) {
+            keys.put(40);
+        }
+        checkSearch(keys, keys.query(4));
+        for (int step = 0; step < 300; step++) {
+            if (random.nextInt(4) == 0 && keys.liveIndex() >= 0) {
+                keys.remove(keys.liveIndex());
+            } else {
+                keys.put(40);
+            }
+            for (int q = 0; q < 3; q++) {
+                String word = keys.query(6);
+                checkSearch(keys, word);
+                assertEquals(keys.indexesContaining(word).size(), keys.tree.cursor(word).count());
+            }
+        }
+    }
+
+    @Test
+    public void slidingWindowThroughCompactions() {
+        // enough removed chars for a few compactions, with a search after every put
+        Random random = new Random(11);
+        RandomKeys keys = new RandomKeys(random, 3);
+        int oldest = 0;
+        for (int i = 0; i < 2500; i++) {
+            keys.put(RandomKeys.word(random, 100, 3), i);
+            if (i >= 500) {
+                keys.remove(oldest++);
+            }
+            String word = keys.query(5);
+            assertEquals(keys.indexesContaining(word).size(), keys.tree.cursor(word).count());
+            if (i % 50 == 0) {
+                checkSearch(keys, word);
+            }
+        }
+    }
+
+    @Test
+    public void keyWithAWideCharLeavesTheTreeAsItWas() throws IOException {
+        Path file = folder.newFile("cafe.txt").toPath();
+        Files.write(file, "café".getBytes(StandardCharsets.UTF_8));
+        GeneralizedSuffixTreeImp tree = new GeneralizedSuffixTreeImp();
+        tree.put("abc", 0);
+        for (int way = 0; way < 4; way++) {
+            try {
+                if (way == 0) {
+                    tree.put(file, StandardCharsets.UTF_8, 1);
+                } else if (way == 1) {
+                    try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+                        tree.put(channel, StandardCharsets.UTF_8, 1);
+                    }
+                } else if (way == 2) {
+                    tree.put(new StringReader("café"), 1);
+                } else {
+                    tree.put("café", 1);
+                }
+                fail("the key was put");
+            } catch (IllegalArgumentException expected) {
+                // nothing of the key is left
+            }
+            assertTrue(tree.search("caf").isEmpty());
+            assertEquals(1, tree.getDocumentCount());
+            assertEquals(3, tree.getText().length());
+        }
+        // the index can still be used
+        tree.put("cafe", 1);
+        assertEquals(Collections.singletonList(1), new ArrayList<Integer>(tree.search("caf")));
+        assertEquals(Collections.singletonList(0), new ArrayList<Integer>(tree.search("bc")));
+    }
+
+    @Test
+    public void textLargerThanAnArrayIsRefused() {
+        GeneralizedSuffixTreeImp tree = new GeneralizedSuffixTreeImp();
+        tree.put("abc", 0);
+        CharSequence huge = new CharSequence() {
+            @Override
+            public int length() {
+                return Integer.MAX_VALUE;
+            }
+
+            @Override
+            public char charAt(int index) {
+                return 'a';
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        try {
+            tree.put(huge, 1);
+            fail("the key was put");
+        } catch (IllegalStateException expected) {
+            // the text was not touched
+        }
+        assertEquals(1, tree.getDocumentCount());
+        assertEquals(1, tree.getText().documentCount());
+        assertEquals(Collections.singletonList(0), new ArrayList<Integer>(tree.search("ab")));
+    }
+
+    private static void checkSearch(RandomKeys keys, String word) {
+        SortedSet<Integer> expected = keys.indexesContaining(word);
+        assertEquals(keys + word, expected, new TreeSet<Integer>(keys.tree.search(word)));
+        assertEquals(keys + word, expected.size(), keys.tree.search(word).size());
+
+        GeneralizedSuffixTreeImp.ResultInfo info = keys.tree.searchWithCount(word, 2);
+        assertEquals(keys + word, expected.size(), info.totalResults);
+        assertEquals(keys + word, Math.min(2, expected.size()), info.results.size());
+        assertTrue(keys + word, expected.containsAll(info.results));
+
+        List<Integer> ordered = new ArrayList<Integer>();
+        for (PrimitiveIterator.OfInt it = keys.tree.searchIndexes(word); it.hasNext(); ) {
+            ordered.add(it.nextInt());
+        }
+        assertEquals(keys + word, new ArrayList<Integer>(expected), ordered);
+    }
+}
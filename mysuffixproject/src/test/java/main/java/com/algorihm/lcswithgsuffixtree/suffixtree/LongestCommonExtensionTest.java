@@ -0,0 +1,72 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * the longest common extension of two suffixes against comparing them char by char
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class LongestCommonExtensionTest {
+
+    @Test
+    public void sameAsComparingTheChars() {
+        Random random = new Random(6);
+        for (int round = 0; round < 150; round++) {
+            RandomKeys keys = new RandomKeys(random, 2 + round % 3);
+            int puts = 1 + random.nextInt(8);
+            for (int i = 0; i < puts; i++) {
+                keys.put(30);
+                if (random.nextInt(6) == 0 && keys.liveIndex() >= 0) {
+                    keys.remove(keys.liveIndex());
+                }
+            }
+            LongestCommonExtension lce = keys.tree.lce();
+            for (int q = 0; q < 100; q++) {
+                int doc1 = random.nextInt(keys.keys.size());
+                int doc2 = random.nextInt(keys.keys.size());
+                if (!keys.isLive(doc1) || !keys.isLive(doc2)) {
+                    continue;
+                }
+                String key1 = keys.keys.get(doc1);
+                String key2 = keys.keys.get(doc2);
+                int offset1 = random.nextInt(key1.length() + 1);
+                int offset2 = random.nextInt(key2.length() + 1);
+                int expected = 0;
+                while (offset1 + expected < key1.length() && offset2 + expected < key2.length()
+                        && key1.charAt(offset1 + expected) == key2.charAt(offset2 + expected)) {
+                    expected++;
+                }
+                assertEquals(keys + " " + doc1 + ":" + offset1 + " " + doc2 + ":" + offset2,
+                        expected, lce.lce(doc1, offset1, doc2, offset2));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void removedKeyIsRejected() {
+        GeneralizedSuffixTreeImp tree = new GeneralizedSuffixTreeImp();
+        tree.put("abab", 0);
+        tree.put("baba", 1);
+        tree.remove(0);
+        tree.lce().lce(0, 0, 1, 0);
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * the matching statistics against the longest match found by hand at every position of the query
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class MatchingStatisticsTest {
+
+    @Test
+    public void sameAsTheNaiveLongestMatch() throws IOException {
+        Random random = new Random(4);
+        for (int round = 0; round < 200; round++) {
+            int alphabet = 2 + random.nextInt(3);
+            RandomKeys keys = new RandomKeys(random, alphabet);
+            int puts = 1 + random.nextInt(6);
+            for (int i = 0; i < puts; i++) {
+                keys.put(30);
+            }
+            check(keys, query(random, round % 50 == 0 ? 5000 : 60, alphabet), round % 2 == 0);
+        }
+    }
+
+    @Test
+    public void removedKeysAreNotMatched() throws IOException {
+        Random random = new Random(12);
+        for (int round = 0; round < 200; round++) {
+            int alphabet = 2 + random.nextInt(3);
+            RandomKeys keys = new RandomKeys(random, alphabet);
+            int puts = 2 + random.nextInt(6);
+            for (int i = 0; i < puts; i++) {
+                keys.put(30);
+                if (random.nextInt(3) == 0 && keys.liveIndex() >= 0) {
+                    keys.remove(keys.liveIndex());
+                }
+            }
+            check(keys, query(random, 60, alphabet), round % 2 == 0);
+        }
+    }
+
+    @Test
+    public void backsOffToTheLiveAncestor() {
+        GeneralizedSuffixTreeImp tree = new GeneralizedSuffixTreeImp();
+        tree.put("bbaaaabb", 0);
+        tree.put("abbbbccab", 1);
+        tree.remove(1);
+        final int[] first = new int[1];
+        tree.matchingStatistics("abbbbccab", new MatchListener() {
+            @Override
+            public void match(long position, int length, DocumentSet documents) {
+                if (position == 0) {
+                    first[0] = length;
+                    assertEquals("[0]", documents.toString());
+                }
+            }
+        });
+        // "abb" is in the key of 0, "abbbbc" only was in the removed one
+        assertEquals(3, first[0]);
+    }
+
+    static String query(Random random, int length, int alphabet) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            // a char that is never in the tree now and then, and one that is not a single byte
+            sb.append(random.nextInt(30) == 0 ? 'é' : (char) ('a' + random.nextInt(alphabet + 1)));
+        }
+        return sb.toString();
+    }
+
+    static void check(RandomKeys keys, String query, boolean reader) throws IOException {
+        final List<Integer> lengths = new ArrayList<Integer>();
+        final List<SortedSet<Integer>> documents = new ArrayList<SortedSet<Integer>>();
+        MatchListener listener = new MatchListener() {
+            @Override
+            public void match(long position, int length, DocumentSet set) {
+                assertEquals(lengths.size(), position);
+                lengths.add(length);
+                SortedSet<Integer> docs = new TreeSet<Integer>();
+                for (PrimitiveIterator.OfInt it = set.iterator(); it.hasNext(); ) {
+                    docs.add(it.nextInt());
+                }
+                documents.add(docs);
+            }
+        };
+        if (reader) {
+            keys.tree.matchingStatistics(new StringReader(query), listener);
+        } else {
+            keys.tree.matchingStatistics(query, listener);
+        }
+        assertEquals(query.length(), lengths.size());
+        for (int i = 0; i < query.length(); i++) {
+            int expected = keys.longestMatch(query, i);
+            assertEquals(keys + query + " at " + i, expected, (int) lengths.get(i));
+            SortedSet<Integer> docs = expected == 0 ? new TreeSet<Integer>() : keys.indexesContaining(query.substring(i, i + expected));
+            assertEquals(keys + query + " at " + i, docs, documents.get(i));
+        }
+    }
+}
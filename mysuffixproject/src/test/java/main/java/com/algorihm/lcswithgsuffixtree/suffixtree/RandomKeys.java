@@ -0,0 +1,173 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * random keys put in a tree, together with the naive answers the tests check the tree against.
+ * the indexes only grow, but some keys share the index of the key before them, and indexes can be removed
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class RandomKeys {
+
+    public final GeneralizedSuffixTreeImp tree;
+    /**
+     * every key in the order of the puts (so the position in this list is the document number), removed ones too
+     */
+    public final List<String> keys = new ArrayList<String>();
+    public final List<Integer> indexes = new ArrayList<Integer>();
+    private final Set<Integer> removed = new HashSet<Integer>();
+    private final Random random;
+    private final int alphabet;
+    private int current = -1;
+
+    public RandomKeys(GeneralizedSuffixTreeImp tree, Random random, int alphabet) {
+        this.tree = tree;
+        this.random = random;
+        this.alphabet = alphabet;
+    }
+
+    public RandomKeys(Random random, int alphabet) {
+        this(new GeneralizedSuffixTreeImp(), random, alphabet);
+    }
+
+    /**
+     * a random word of the given length over the first <tt>alphabet</tt> letters
+     */
+    public static String word(Random random, int length, int alphabet) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(alphabet)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * puts a random key of at most <tt>maxLength</tt> chars, with the index of the last key about once in three times
+     */
+    public void put(int maxLength) {
+        if (current < 0 || removed.contains(current) || random.nextInt(3) > 0) {
+            current++;
+        }
+        put(word(random, random.nextInt(maxLength + 1), alphabet), current);
+    }
+
+    public void put(String key, int index) {
+        tree.put(key, index);
+        keys.add(key);
+        indexes.add(index);
+        current = index;
+    }
+
+    public void remove(int index) {
+        tree.remove(index);
+        removed.add(index);
+        current = Math.max(current, index);
+    }
+
+    /**
+     * @return the index of a random live key, -1 when there is none
+     */
+    public int liveIndex() {
+        List<Integer> live = new ArrayList<Integer>();
+        for (int d = 0; d < keys.size(); d++) {
+            if (isLive(d)) {
+                live.add(indexes.get(d));
+            }
+        }
+        return live.isEmpty() ? -1 : live.get(random.nextInt(live.size()));
+    }
+
+    public boolean isLive(int doc) {
+        return !removed.contains(indexes.get(doc));
+    }
+
+    /**
+     * @return a word that is often, but not always, in one of the keys
+     */
+    public String query(int maxLength) {
+        int doc = random.nextInt(keys.size() + 1);
+        if (doc < keys.size() && !keys.get(doc).isEmpty()) {
+            String key = keys.get(doc);
+            int start = random.nextInt(key.length());
+            return key.substring(start, start + 1 + random.nextInt(Math.min(maxLength, key.length() - start)));
+        }
+        return word(random, 1 + random.nextInt(maxLength), alphabet);
+    }
+
+    /**
+     * @return the live indexes whose key contains the word
+     */
+    public SortedSet<Integer> indexesContaining(String word) {
+        SortedSet<Integer> ret = new TreeSet<Integer>();
+        for (int d = 0; d < keys.size(); d++) {
+            if (isLive(d) && keys.get(d).contains(word)) {
+                ret.add(indexes.get(d));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return every place of the word in the live keys as "index:offset", sorted
+     */
+    public List<String> occurrences(String word) {
+        List<String> ret = new ArrayList<String>();
+        for (int d = 0; d < keys.size(); d++) {
+            if (!isLive(d)) {
+                continue;
+            }
+            for (int p = keys.get(d).indexOf(word); p >= 0; p = keys.get(d).indexOf(word, p + 1)) {
+                ret.add(indexes.get(d) + ":" + p);
+            }
+        }
+        Collections.sort(ret);
+        return ret;
+    }
+
+    /**
+     * @return the length of the longest string that starts at <tt>from</tt> in the query and is in one of the live keys
+     */
+    public int longestMatch(String query, int from) {
+        int best = 0;
+        for (int d = 0; d < keys.size(); d++) {
+            if (!isLive(d)) {
+                continue;
+            }
+            while (from + best < query.length() && keys.get(d).contains(query.substring(from, from + best + 1))) {
+                best++;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int d = 0; d < keys.size(); d++) {
+            sb.append(indexes.get(d)).append(isLive(d) ? "=" : "x").append(keys.get(d)).append(' ');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * the maximal and supermaximal repeats against every substring of the keys checked by hand
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class RepeatFinderTest {
+
+    @Test
+    public void sameRepeatsAsTheNaiveOnes() {
+        Random random = new Random(5);
+        for (int round = 0; round < 300; round++) {
+            RandomKeys keys = new RandomKeys(random, 2 + round % 3);
+            int puts = 1 + random.nextInt(5);
+            for (int i = 0; i < puts; i++) {
+                keys.put(25);
+            }
+            if (round % 4 == 3) {
+                // the keys of a removed index stay in the text until a compaction, they must not be counted
+                keys.remove(keys.liveIndex());
+            }
+            Map<String, String> maximal = naiveMaximal(keys);
+            Set<String> supermaximal = new HashSet<String>();
+            for (String s : maximal.keySet()) {
+                boolean inside = false;
+                for (String other : maximal.keySet()) {
+                    inside |= !other.equals(s) && other.contains(s);
+                }
+                if (!inside) {
+                    supermaximal.add(s);
+                }
+            }
+            for (int mode = 0; mode < 2; mode++) {
+                int minLength = random.nextInt(3);
+                int minOccurrences = random.nextInt(4);
+                int minDocuments = random.nextInt(3);
+                boolean sorted = round % 2 == 0;
+                Map<String, String> expected = new HashMap<String, String>();
+                for (Map.Entry<String, String> e : maximal.entrySet()) {
+                    String[] counts = e.getValue().split("/");
+                    if (e.getKey().length() >= minLength && Integer.parseInt(counts[0]) >= minOccurrences
+                            && Integer.parseInt(counts[1]) >= minDocuments && (mode == 0 || supermaximal.contains(e.getKey()))) {
+                        expected.put(e.getKey(), e.getValue());
+                    }
+                }
+                Map<String, String> got = new HashMap<String, String>();
+                int previous = Integer.MAX_VALUE;
+                Iterator<Repeat> it = keys.tree.maximalRepeats(minLength, minOccurrences, minDocuments, mode == 1, sorted);
+                while (it.hasNext()) {
+                    Repeat repeat = it.next();
+                    got.put(repeat.getSubstring(), repeat.occurrences + "/" + repeat.documents);
+                    if (sorted) {
+                        assertTrue(keys.toString(), repeat.length <= previous);
+                        previous = repeat.length;
+                    }
+                    List<String> positions = new ArrayList<String>();
+                    for (Iterator<SearchCursor.Occurrence> p = repeat.positions(); p.hasNext(); ) {
+                        positions.add(p.next().toString());
+                    }
+                    Collections.sort(positions);
+                    assertEquals(keys + repeat.getSubstring(), keys.occurrences(repeat.getSubstring()), positions);
+                }
+                assertEquals(keys.toString(), expected, got);
+            }
+        }
+    }
+
+    /**
+     * @return every maximal repeat with "occurrences/indexes". the start and the end of a key count as a context
+     * that is different from all the others, the removed keys are skipped
+     */
+    private static Map<String, String> naiveMaximal(RandomKeys keys) {
+        Set<String> substrings = new HashSet<String>();
+        for (int d = 0; d < keys.keys.size(); d++) {
+            String key = keys.isLive(d) ? keys.keys.get(d) : "";
+            for (int i = 0; i < key.length(); i++) {
+                for (int j = i + 1; j <= key.length(); j++) {
+                    substrings.add(key.substring(i, j));
+                }
+            }
+        }
+        Map<String, String> ret = new HashMap<String, String>();
+        for (String s : substrings) {
+            int occurrences = 0;
+            Set<String> left = new HashSet<String>();
+            Set<String> right = new HashSet<String>();
+            Set<Integer> indexes = new HashSet<Integer>();
+            for (int d = 0; d < keys.keys.size(); d++) {
+                if (!keys.isLive(d)) {
+                    continue;
+                }
+                String key = keys.keys.get(d);
+                for (int p = key.indexOf(s); p >= 0; p = key.indexOf(s, p + 1)) {
+                    occurrences++;
+                    indexes.add(keys.indexes.get(d));
+                    left.add(p == 0 ? "^" + occurrences : String.valueOf(key.charAt(p - 1)));
+                    right.add(p + s.length() == key.length() ? "$" + occurrences : String.valueOf(key.charAt(p + s.length())));
+                }
+            }
+            if (occurrences >= 2 && left.size() >= 2 && right.size() >= 2) {
+                ret.put(s, occurrences + "/" + indexes.size());
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * the cache in front of the searches of a tree: what changes the tree drops the answers, and the least recently used
+ * answers are the ones evicted
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class ResultCacheTest {
+
+    @Test
+    public void everyChangeDropsTheAnswers() {
+        GeneralizedSuffixTreeImp tree = new GeneralizedSuffixTreeImp();
+        tree.setResultCache(1 << 20);
+        tree.put("abc", 0);
+        tree.put("bcd", 1);
+        assertEquals(set(0, 1), new TreeSet<Integer>(tree.search("bc")));
+        assertEquals(set(0, 1), new TreeSet<Integer>(tree.search("bc")));
+        assertEquals(1, tree.getCacheStatistics().hits);
+        long invalidations = tree.getCacheStatistics().invalidations;
+
+        tree.put("xbc", 2);
+        assertEquals(set(0, 1, 2), new TreeSet<Integer>(tree.search("bc")));
+        assertEquals(3, tree.searchWithCount("bc", 1).totalResults);
+        assertEquals(++invalidations, tree.getCacheStatistics().invalidations);
+
+        assertTrue(tree.remove(1));
+        assertEquals(set(0, 2), new TreeSet<Integer>(tree.search("bc")));
+        assertEquals(2, tree.searchWithCount("bc", 1).totalResults);
+        assertEquals(++invalidations, tree.getCacheStatistics().invalidations);
+
+        // the window removes the oldest indexes at once
+        tree.setWindow(1);
+        assertEquals(set(2), new TreeSet<Integer>(tree.search("bc")));
+        assertEquals(1, tree.searchWithCount("bc", 5).totalResults);
+        assertEquals(++invalidations, tree.getCacheStatistics().invalidations);
+        tree.setWindow(0);
+
+        // enough chars removed for the compaction, which rebuilds the document sets and moves the labels
+        Random random = new Random(11);
+        tree.put(RandomKeys.word(random, 1 << 17, 2) + "bc", 3);
+        assertEquals(set(2, 3), new TreeSet<Integer>(tree.search("bc")));
+        assertEquals(++invalidations, tree.getCacheStatistics().invalidations);
+        tree.put("zz", 4);
+        assertTrue(tree.remove(3));
+        assertEquals(set(2), new TreeSet<Integer>(tree.search("bc")));
+        assertEquals(Collections.<Integer>emptySet(), new TreeSet<Integer>(tree.search("ab")));
+        assertEquals(set(4), new TreeSet<Integer>(tree.search("zz")));
+        assertEquals(++invalidations, tree.getCacheStatistics().invalidations);
+    }
+
+    @Test
+    public void sameAnswersWithAndWithoutTheCache() {
+        Random random = new Random(12);
+        for (int round = 0; round < 30; round++) {
+            RandomKeys plain = new RandomKeys(random, 3);
+            GeneralizedSuffixTreeImp cached = new GeneralizedSuffixTreeImp();
+            // small enough to evict all the time
+            cached.setResultCache(1 + random.nextInt(2000));
+            for (int step = 0; step < 60; step++) {
+                int action = random.nextInt(10);
+                if (action < 3) {
+                    plain.put(10);
+                    cached.put(plain.keys.get(plain.keys.size() - 1), plain.indexes.get(plain.indexes.size() - 1));
+                } else if (action == 3 && plain.liveIndex() >= 0) {
+                    int victim = plain.liveIndex();
+                    plain.remove(victim);
+                    assertTrue(cached.remove(victim));
+                } else if (!plain.keys.isEmpty()) {
+                    String word = plain.query(3);
+                    int limit = random.nextInt(3) - 1;
+                    assertEquals(plain + word, new TreeSet<Integer>(plain.tree.search(word, limit)).size(),
+                            cached.search(word, limit).size());
+                    assertEquals(plain + word, plain.indexesContaining(word), new TreeSet<Integer>(cached.search(word)));
+                    assertEquals(plain + word, plain.tree.searchWithCount(word, limit).totalResults,
+                            cached.searchWithCount(word, limit).totalResults);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        // every entry here is 160 + 2 * 1 + 48 * 1 bytes, two of them fit
+        ResultCache cache = new ResultCache(2 * 210);
+        cache.put("a", -1, Arrays.asList(0), 1);
+        cache.put("b", -1, Arrays.asList(1), 1);
+        assertNotNull(cache.get("a", -1));
+        cache.put("c", -1, Arrays.asList(2), 1);
+        assertNull(cache.get("b", -1));
+        assertNotNull(cache.get("a", -1));
+        assertNotNull(cache.get("c", -1));
+        // the limit is part of the key
+        assertNull(cache.get("a", 1));
+        GeneralizedSuffixTreeImp.CacheStatistics statistics = cache.getStatistics();
+        assertEquals(1, statistics.evictions);
+        assertEquals(2, statistics.entries);
+        assertEquals(2 * 210, statistics.bytes);
+        assertEquals(3, statistics.hits);
+        assertEquals(2, statistics.misses);
+
+        // an answer bigger than the whole cache is returned but not kept, and evicts nothing
+        GeneralizedSuffixTreeImp.ResultInfo big = cache.put("d", -1, Arrays.asList(0, 1, 2, 3, 4, 5), 6);
+        assertEquals(6, big.results.size());
+        assertNull(cache.get("d", -1));
+        assertEquals(2, cache.getStatistics().entries);
+        try {
+            big.results.clear();
+            fail("the cached results can be changed");
+        } catch (UnsupportedOperationException expected) {
+            // every caller shares them
+        }
+
+        cache.invalidate();
+        assertNull(cache.get("a", -1));
+        assertEquals(0, cache.getStatistics().entries);
+        assertEquals(0, cache.getStatistics().bytes);
+        assertEquals(1, cache.getStatistics().invalidations);
+    }
+
+    private static TreeSet<Integer> set(Integer... indexes) {
+        return new TreeSet<Integer>(Arrays.asList(indexes));
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import main.java.com.algorihm.lcswithgsuffixtree.toolsAndLCS.CommonSubstring;
+import main.java.com.algorihm.lcswithgsuffixtree.toolsAndLCS.tools;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * the sharded index against one tree with the same keys: the searches, the totals and the longest substrings common to
+ * k indexes, which are often split over the shards
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class ShardedSuffixTreeTest {
+
+    @Test
+    public void sameAnswersAsOneTree() {
+        Random random = new Random(10);
+        tools tools = new tools();
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (int round = 0; round < 80; round++) {
+                // more shards than indexes too, some shards stay empty
+                ShardedSuffixTree index = new ShardedSuffixTree(1 + random.nextInt(5), pool);
+                RandomKeys keys = new RandomKeys(random, 2 + random.nextInt(2));
+                int batches = 1 + random.nextInt(3);
+                for (int batch = 0; batch < batches; batch++) {
+                    // the keys of one index are often several, and must all go to the shard of its first key
+                    int puts = random.nextInt(12);
+                    for (int i = 0; i < puts; i++) {
+                        keys.put(12);
+                        index.put(keys.keys.get(keys.keys.size() - 1), keys.indexes.get(keys.indexes.size() - 1));
+                    }
+                    // searched between the batches, so the next puts go to shards that were already built
+                    check(index, keys, tools, random);
+                }
+                assertEquals(new HashSet<Integer>(keys.indexes).size(), index.getDocumentCount());
+                Set<Integer> inShards = new HashSet<Integer>();
+                int documents = 0;
+                for (TreeAnalysis analysis : index.analyze()) {
+                    for (int c = 0; c < analysis.getTotalDocuments(); c++) {
+                        documents++;
+                        inShards.add(analysis.getIndexOfColor(c));
+                    }
+                }
+                // every index lives in exactly one shard
+                assertEquals(keys.toString(), inShards.size(), documents);
+                assertEquals(keys.toString(), new HashSet<Integer>(keys.indexes), inShards);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void anIndexStaysInItsShard() {
+        ShardedSuffixTree index = new ShardedSuffixTree(2, ForkJoinPool.commonPool());
+        // index 0 gets the load of three keys, index 1 the next shard, and the last key of 1 must not move to shard 0
+        index.put("abc", 0);
+        index.put("abd", 0);
+        index.put("abe", 0);
+        index.put("xyz", 1);
+        index.put("xyzxyzxyzxyz", 1);
+        index.put("abz", 2);
+        assertEquals(3, index.getDocumentCount());
+        assertEquals(new TreeSet<Integer>(Arrays.asList(0, 2)), new TreeSet<Integer>(index.getShard(0).search("ab")));
+        assertEquals(0, index.getShard(0).search("xyz").size());
+        assertEquals(Arrays.asList(1), new ArrayList<Integer>(index.getShard(1).search("xyzxyz")));
+        assertEquals(2, index.count("ab"));
+        assertEquals(1, index.count("xyzxyz"));
+        assertEquals(new TreeSet<Integer>(Arrays.asList(0, 2)), new TreeSet<Integer>(index.search("ab")));
+        assertEquals(1, index.search("ab", 1).size());
+        assertEquals(0, index.search("ab", 0).size());
+        assertEquals(2, index.searchWithCount("ab", 0).totalResults);
+    }
+
+    @Test
+    public void shutDownPool() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        ShardedSuffixTree index = new ShardedSuffixTree(2, pool);
+        index.put("abc", 0);
+        index.put("bcd", 1);
+        assertEquals(2, index.count("bc"));
+        pool.shutdown();
+        try {
+            index.search("bc");
+            fail("searched on a pool that was shut down");
+        } catch (IllegalStateException expected) {
+            // the pool refuses the tasks of the shards
+        }
+    }
+
+    private static void check(ShardedSuffixTree index, RandomKeys keys, tools tools, Random random) {
+        GeneralizedSuffixTreeImp single = keys.tree;
+        for (int q = 0; q < 30; q++) {
+            String word = keys.keys.isEmpty() ? RandomKeys.word(random, 1 + random.nextInt(3), 2) : keys.query(4);
+            String what = keys + " " + word;
+            Set<Integer> expected = new TreeSet<Integer>(single.search(word));
+            assertEquals(what, keys.indexesContaining(word), expected);
+            assertEquals(what, expected, new TreeSet<Integer>(index.search(word)));
+            assertEquals(what, expected.size(), index.count(word));
+            int limit = random.nextInt(4);
+            GeneralizedSuffixTreeImp.ResultInfo sharded = index.searchWithCount(word, limit);
+            assertEquals(what, single.searchWithCount(word, limit).totalResults, sharded.totalResults);
+            assertEquals(what, Math.min(limit, expected.size()), sharded.results.size());
+            assertTrue(what, expected.containsAll(sharded.results));
+            assertEquals(what, Math.min(limit, expected.size()), index.search(word, limit).size());
+        }
+        int indexes = new HashSet<Integer>(keys.indexes).size();
+        for (int k = 1; k <= indexes; k++) {
+            CommonSubstring expected = tools.longestCommonSubstring(single, k);
+            CommonSubstring found = tools.longestCommonSubstring(index, k);
+            String what = keys + " k=" + k;
+            assertEquals(what, expected.substring.length(), found.substring.length());
+            if (!found.substring.isEmpty()) {
+                assertEquals(what, keys.indexesContaining(found.substring), new TreeSet<Integer>(found.documents));
+                assertTrue(what, found.documents.size() >= k);
+            }
+        }
+    }
+}
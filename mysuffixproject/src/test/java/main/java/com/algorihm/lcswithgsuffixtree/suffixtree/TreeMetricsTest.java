@@ -0,0 +1,107 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.suffixtree;
+
+import main.java.com.algorihm.lcswithgsuffixtree.toolsAndLCS.tools;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * the counters and the phases recorded while a tree is filled and searched
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class TreeMetricsTest {
+
+    @Test
+    public void phasesOfPutsAndSearches() {
+        Random random = new Random(15);
+        GeneralizedSuffixTreeImp tree = new GeneralizedSuffixTreeImp();
+        TreeMetrics metrics = new TreeMetrics();
+        tree.setMetrics(metrics);
+        for (int i = 0; i < 50; i++) {
+            tree.put(RandomKeys.word(random, 1 + random.nextInt(30), 2), i);
+        }
+        for (int q = 0; q < 20; q++) {
+            tree.search(RandomKeys.word(random, 1 + random.nextInt(4), 2));
+        }
+        TreeMetrics.Snapshot snapshot = tree.getMetrics();
+        assertEquals(50, snapshot.phases.get(TreeMetrics.PHASE_PUT).count);
+        // the document sets are built by the first search only
+        assertEquals(1, snapshot.phases.get(TreeMetrics.PHASE_DOCUMENT_SETS).count);
+        assertEquals(20, snapshot.searchDepth.count);
+        assertEquals(20, snapshot.searchLatency.count);
+        assertFalse(snapshot.phases.containsKey(TreeMetrics.PHASE_COMPACTION));
+        assertFalse(snapshot.phases.containsKey(TreeMetrics.PHASE_LCS));
+        assertTrue(snapshot.splits > 0);
+        assertTrue(snapshot.suffixLinkWalks > 0);
+        assertEquals(snapshot.nodes - 1, snapshot.edges);
+        assertTrue(snapshot.leaves > 0 && snapshot.leaves < snapshot.nodes);
+        assertTrue(snapshot.estimatedBytes > 0);
+        assertEquals(50L, snapshot.toMap().get("phase.put.nanos.count"));
+
+        // one more put: the next search builds the sets again, the ones after it do not
+        tree.put("abab", 50);
+        tree.searchWithCount("ab", 1);
+        tree.search("ba");
+        snapshot = tree.getMetrics();
+        assertEquals(51, snapshot.phases.get(TreeMetrics.PHASE_PUT).count);
+        assertEquals(2, snapshot.phases.get(TreeMetrics.PHASE_DOCUMENT_SETS).count);
+        assertEquals(22, snapshot.searchDepth.count);
+
+        // the lcs of tools goes to the same recorder
+        tools tools = new tools();
+        tools.setMetrics(metrics);
+        tools.longestCommonSubstring(tree, 2);
+        assertEquals(1, tree.getMetrics().phases.get(TreeMetrics.PHASE_LCS).count);
+
+        // enough removed chars for a compaction
+        tree.put(RandomKeys.word(random, 1 << 17, 2), 51);
+        tree.remove(51);
+        snapshot = tree.getMetrics();
+        assertEquals(1, snapshot.phases.get(TreeMetrics.PHASE_COMPACTION).count);
+        assertEquals(52, snapshot.phases.get(TreeMetrics.PHASE_PUT).count);
+    }
+
+    @Test
+    public void offUntilSet() {
+        GeneralizedSuffixTreeImp tree = new GeneralizedSuffixTreeImp();
+        tree.put("abc", 0);
+        tree.search("b");
+        try {
+            tree.getMetrics();
+            fail("metrics without a recorder");
+        } catch (IllegalStateException expected) {
+            // setMetrics was not called
+        }
+        TreeMetrics metrics = new TreeMetrics();
+        tree.setMetrics(metrics);
+        tree.search("b");
+        // only what happened after the recorder was set
+        TreeMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.searchDepth.count);
+        assertFalse(snapshot.phases.containsKey(TreeMetrics.PHASE_PUT));
+        assertEquals(-1, snapshot.nodes);
+        tree.setMetrics(null);
+        tree.search("b");
+        assertEquals(1, metrics.snapshot().searchDepth.count);
+    }
+}
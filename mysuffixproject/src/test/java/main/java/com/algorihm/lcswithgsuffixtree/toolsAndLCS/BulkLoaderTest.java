@@ -0,0 +1,183 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.toolsAndLCS;
+
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.GeneralizedSuffixTreeImp;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * the files put by the loader against the files read at once, the bound on the files decoded ahead of the tree,
+ * and the filters against what they replace
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class BulkLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void neverMoreThanMaxInFlightAhead() throws IOException {
+        final int files = 40;
+        List<Path> paths = new ArrayList<Path>();
+        for (int i = 0; i < files; i++) {
+            // every file starts with a '#', which the filter counts when a task starts decoding it and then drops
+            Path file = folder.newFile().toPath();
+            Files.write(file, ("#file" + i + "x").getBytes(StandardCharsets.US_ASCII));
+            paths.add(file);
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (final int maxInFlight : new int[]{1, 3, 8}) {
+                final AtomicInteger started = new AtomicInteger();
+                BulkLoader loader = new BulkLoader(StandardCharsets.US_ASCII, c -> {
+                    if (c == '#') {
+                        started.incrementAndGet();
+                        return -1;
+                    }
+                    return c;
+                }, maxInFlight);
+                final List<String> put = new ArrayList<String>();
+                final int[] ahead = new int[1];
+                GeneralizedSuffixTreeImp tree = new GeneralizedSuffixTreeImp() {
+                    @Override
+                    public void put(CharSequence key, int index) {
+                        // the construction is the slow side, so the pool would run ahead without the bound
+                        ahead[0] = Math.max(ahead[0], started.get() - put.size());
+                        try {
+                            Thread.sleep(1);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        put.add(key.toString());
+                        super.put(key, index);
+                    }
+                };
+                BulkLoader.Report report = loader.load(tree, paths, 5, pool);
+                assertTrue("max in flight " + maxInFlight + ", ahead " + ahead[0], ahead[0] <= maxInFlight);
+                assertEquals(files, report.documents);
+                assertEquals(files, put.size());
+                for (int i = 0; i < files; i++) {
+                    assertEquals("file" + i + "x", put.get(i));
+                    assertEquals(Collections.singletonList(5 + i), new ArrayList<Integer>(tree.search("file" + i + "x")));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void asciiFilterKeepsOnlyAscii() throws IOException {
+        Random random = new Random(13);
+        String[] pieces = {"abc", "Z9 ", "é", "中", "😀", "\t\n", "~"};
+        for (int round = 0; round < 30; round++) {
+            StringBuilder text = new StringBuilder();
+            // past a window of the decoder in some rounds
+            int count = random.nextInt(round % 5 == 0 ? 5000 : 50);
+            for (int i = 0; i < count; i++) {
+                text.append(pieces[random.nextInt(pieces.length)]);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            bytes.write(text.toString().getBytes(StandardCharsets.UTF_8));
+            // bytes that are not utf-8 become the replacement char, which is dropped too
+            bytes.write(new byte[]{(byte) 0xff, 'q', (byte) 0xc3});
+            Path file = folder.newFile().toPath();
+            Files.write(file, bytes.toByteArray());
+
+            StringBuilder expected = new StringBuilder();
+            for (char c : (text + "q").toCharArray()) {
+                if (c < 128) {
+                    expected.append(c);
+                }
+            }
+            BulkLoader loader = new BulkLoader(StandardCharsets.UTF_8, BulkLoader.ASCII, 2);
+            assertEquals(expected.toString(), loader.decode(file).toString());
+        }
+    }
+
+    @Test
+    public void lettersAndDigitsAsTheOldNormalize() {
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            String one = String.valueOf((char) c);
+            assertEquals("char " + c, oldNormalize(one), tools.normalize(one));
+        }
+        Random random = new Random(14);
+        for (int round = 0; round < 2000; round++) {
+            char[] chars = new char[random.nextInt(20)];
+            for (int i = 0; i < chars.length; i++) {
+                // mostly ascii, with the whole char range now and then (surrogates alone included)
+                chars[i] = (char) (random.nextInt(4) == 0 ? random.nextInt(Character.MAX_VALUE + 1) : random.nextInt(128));
+            }
+            String in = new String(chars);
+            assertEquals(in, oldNormalize(in), tools.normalize(in));
+        }
+    }
+
+    @Test
+    public void missingFileIsReported() throws IOException {
+        Path missing = folder.getRoot().toPath().resolve("missing");
+        GeneralizedSuffixTreeImp tree = new GeneralizedSuffixTreeImp();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Path present = folder.newFile().toPath();
+            Files.write(present, "abc".getBytes(StandardCharsets.US_ASCII));
+            new BulkLoader(StandardCharsets.US_ASCII, BulkLoader.ASCII, 2).load(tree, Arrays.asList(present, missing), 0, pool);
+            fail("loaded a file that does not exist");
+        } catch (IOException expected) {
+            // the error of the task that read it
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(new TreeSet<Integer>(Collections.singleton(0)), new TreeSet<Integer>(tree.search("b")));
+    }
+
+    /**
+     * tools.normalize before it used the filter: the whole string in lower case, then the letters and the digits.
+     * the root locale, the filter does not depend on the default one
+     */
+    private static String oldNormalize(String in) {
+        StringBuilder out = new StringBuilder();
+        String l = in.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < l.length(); ++i) {
+            char c = l.charAt(i);
+            if (c >= 'a' && c <= 'z' || c >= '0' && c <= '9') {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,307 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package main.java.com.algorihm.lcswithgsuffixtree.toolsAndLCS;
+
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.GeneralizedSuffixTreeImp;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.RandomKeys;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.SearchCursor;
+import main.java.com.algorihm.lcswithgsuffixtree.suffixtree.TreeAnalysis;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * the longest substring common to k indexes against trying every substring of the keys, and the matrix of the pairs
+ * against the dynamic programming of every pair of keys
+ *  @author : amirali khaneh angha & mahdieh naeemy
+ */
+public class ToolsTest {
+
+    @Test
+    public void longestCommonSubstringForEveryK() {
+        Random random = new Random(8);
+        tools tools = new tools();
+        for (int round = 0; round < 200; round++) {
+            RandomKeys keys = new RandomKeys(random, 2 + random.nextInt(3));
+            int puts = 1 + random.nextInt(8);
+            for (int i = 0; i < puts; i++) {
+                keys.put(20);
+            }
+            int indexes = new HashSet<Integer>(keys.indexes).size();
+            TreeAnalysis analysis = keys.tree.analyze();
+            CommonSubstring[] all = tools.longestCommonSubstrings(analysis);
+            for (int k = 2; k <= indexes; k++) {
+                int expected = naiveLength(keys, k);
+                CommonSubstring one = tools.longestCommonSubstring(keys.tree, k);
+                assertEquals(keys + " k=" + k, expected, one.substring.length());
+                assertEquals(keys + " k=" + k, expected, all[k].substring.length());
+                if (expected > 0) {
+                    assertEquals(keys.indexesContaining(one.substring), new HashSet<Integer>(one.documents));
+                    assertTrue(keys + " k=" + k, one.documents.size() >= k);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void myLCSRightAfterThePuts() {
+        Random random = new Random(10);
+        tools tools = new tools();
+        assertEquals("Angel", tools.myLCS(fresh("MichellAngello", "AngelinHeaven")));
+        // several longest ones, the greatest is given
+        assertEquals("cd", tools.myLCS(fresh("abzcd", "cdyab")));
+        assertEquals("x", tools.myLCS(fresh("xa", "ax")));
+        for (int round = 0; round < 300; round++) {
+            RandomKeys keys = new RandomKeys(random, 2 + random.nextInt(3));
+            keys.put(RandomKeys.word(random, random.nextInt(20), 3), 0);
+            if (round % 3 == 1) {
+                // the counts of an older tree are in the nodes, they must not be read
+                keys.tree.computeCount();
+            }
+            int second = 1;
+            if (round % 3 == 2) {
+                // a removed key in between
+                keys.put(RandomKeys.word(random, random.nextInt(20), 3), 1);
+                keys.remove(1);
+                second = 2;
+            }
+            keys.put(RandomKeys.word(random, random.nextInt(20), 3), second);
+            String found = tools.myLCS(keys.tree);
+            assertEquals(keys.toString(), naiveLength(keys, 0, second), found.length());
+            assertEquals(keys.toString(), 2, keys.indexesContaining(found).size());
+            String greatest = "";
+            for (String substring : substrings(keys)) {
+                if (keys.indexesContaining(substring).size() == 2 && (substring.length() > greatest.length()
+                        || substring.length() == greatest.length() && substring.compareTo(greatest) > 0)) {
+                    greatest = substring;
+                }
+            }
+            assertEquals(keys.toString(), greatest, found);
+        }
+    }
+
+    @Test
+    public void topCommonSubstringsAsBruteForce() {
+        Random random = new Random(11);
+        tools tools = new tools();
+        for (int round = 0; round < 150; round++) {
+            RandomKeys keys = new RandomKeys(random, 2 + random.nextInt(2));
+            int puts = 1 + random.nextInt(8);
+            for (int i = 0; i < puts; i++) {
+                keys.put(10);
+            }
+            if (round % 3 == 0 && keys.liveIndex() >= 0) {
+                keys.remove(keys.liveIndex());
+            }
+            Set<String> substrings = substrings(keys);
+            for (int k = 1; k <= 3; k++) {
+                // the maximal ones: one more char on either side and they are in less than k indexes
+                List<String> maximal = new ArrayList<String>();
+                for (String substring : substrings) {
+                    if (keys.indexesContaining(substring).size() < k) {
+                        continue;
+                    }
+                    boolean extendable = false;
+                    for (char c = 'a'; c <= 'z' && !extendable; c++) {
+                        extendable = keys.indexesContaining(c + substring).size() >= k
+                                || keys.indexesContaining(substring + c).size() >= k;
+                    }
+                    if (!extendable) {
+                        maximal.add(substring);
+                    }
+                }
+                TreeSet<Integer> lengths = new TreeSet<Integer>();
+                for (String substring : maximal) {
+                    lengths.add(substring.length());
+                }
+                for (int top = 1; top <= 3; top++) {
+                    String what = keys + " k=" + k + " lengths=" + top;
+                    Set<String> expected = new HashSet<String>();
+                    for (String substring : maximal) {
+                        if (lengths.tailSet(substring.length(), false).size() < top) {
+                            expected.add(substring);
+                        }
+                    }
+                    Set<String> found = new HashSet<String>();
+                    int previous = Integer.MAX_VALUE;
+                    Iterator<CommonSubstring> it = tools.topCommonSubstrings(keys.tree, k, top);
+                    while (it.hasNext()) {
+                        CommonSubstring common = it.next();
+                        assertTrue(what + " " + common, common.substring.length() <= previous);
+                        previous = common.substring.length();
+                        assertTrue(what + " twice " + common, found.add(common.substring));
+                        assertEquals(what, keys.indexesContaining(common.substring), new TreeSet<Integer>(common.documents));
+                        List<String> positions = new ArrayList<String>();
+                        for (SearchCursor.Occurrence occurrence : common.positions) {
+                            positions.add(occurrence.index + ":" + occurrence.offset);
+                        }
+                        List<String> sorted = new ArrayList<String>(positions);
+                        Collections.sort(sorted);
+                        assertEquals(what, keys.occurrences(common.substring), sorted);
+                    }
+                    assertEquals(what, expected, found);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return every non empty substring of the live keys
+     */
+    private static Set<String> substrings(RandomKeys keys) {
+        Set<String> ret = new HashSet<String>();
+        for (int d = 0; d < keys.keys.size(); d++) {
+            String key = keys.keys.get(d);
+            if (keys.isLive(d)) {
+                for (int i = 0; i < key.length(); i++) {
+                    for (int j = i + 1; j <= key.length(); j++) {
+                        ret.add(key.substring(i, j));
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    private static GeneralizedSuffixTreeImp fresh(String first, String second) {
+        GeneralizedSuffixTreeImp ret = new GeneralizedSuffixTreeImp();
+        ret.put(first, 0);
+        ret.put(second, 1);
+        return ret;
+    }
+
+    @Test
+    public void lcsMatrixAsTheDynamicProgramming() {
+        Random random = new Random(9);
+        tools tools = new tools();
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (int round = 0; round < 120; round++) {
+                RandomKeys keys = new RandomKeys(random, 2 + random.nextInt(3));
+                int puts = 1 + random.nextInt(round % 10 == 0 ? 40 : 10);
+                for (int i = 0; i < puts; i++) {
+                    keys.put(15);
+                    if (random.nextInt(5) == 0) {
+                        int victim = keys.liveIndex();
+                        if (victim >= 0) {
+                            keys.remove(victim);
+                        }
+                    }
+                }
+                List<Integer> live = new ArrayList<Integer>(new TreeSet<Integer>(liveIndexes(keys)));
+                TreeAnalysis analysis = keys.tree.analyze();
+                for (int minLength : new int[]{0, 1, 3}) {
+                    for (boolean dense : new boolean[]{true, false}) {
+                        LcsMatrix matrix = tools.lcsMatrix(analysis, minLength, dense, pool);
+                        String what = keys + " minLength=" + minLength + " dense=" + dense;
+                        assertEquals(what, live.size(), matrix.size());
+                        for (int row = 0; row < live.size(); row++) {
+                            assertEquals(what, (int) live.get(row), matrix.getIndex(row));
+                        }
+                        final int[][] listed = new int[live.size()][live.size()];
+                        matrix.forEachPair((index1, index2, length) -> {
+                            assertTrue(index1 < index2);
+                            listed[live.indexOf(index1)][live.indexOf(index2)] = length;
+                        });
+                        int[][] array = matrix.toArray();
+                        for (int row1 = 0; row1 < live.size(); row1++) {
+                            for (int row2 = row1 + 1; row2 < live.size(); row2++) {
+                                int length = naiveLength(keys, live.get(row1), live.get(row2));
+                                int expected = length >= minLength ? length : 0;
+                                String pair = what + " " + live.get(row1) + "," + live.get(row2);
+                                assertEquals(pair, expected, matrix.length(live.get(row1), live.get(row2)));
+                                assertEquals(pair, expected, matrix.length(live.get(row2), live.get(row1)));
+                                assertEquals(pair, expected, listed[row1][row2]);
+                                assertEquals(pair, expected, array[row1][row2]);
+                                assertEquals(pair, expected, array[row2][row1]);
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Set<Integer> liveIndexes(RandomKeys keys) {
+        Set<Integer> ret = new HashSet<Integer>();
+        for (int d = 0; d < keys.keys.size(); d++) {
+            if (keys.isLive(d)) {
+                ret.add(keys.indexes.get(d));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return the longest common substring of the keys of two indexes, with the dynamic programming of every pair of keys
+     */
+    private static int naiveLength(RandomKeys keys, int index1, int index2) {
+        int best = 0;
+        for (int d1 = 0; d1 < keys.keys.size(); d1++) {
+            for (int d2 = 0; d2 < keys.keys.size(); d2++) {
+                if (keys.indexes.get(d1) != index1 || keys.indexes.get(d2) != index2) {
+                    continue;
+                }
+                String a = keys.keys.get(d1);
+                String b = keys.keys.get(d2);
+                int[][] suffix = new int[a.length() + 1][b.length() + 1];
+                for (int i = 1; i <= a.length(); i++) {
+                    for (int j = 1; j <= b.length(); j++) {
+                        if (a.charAt(i - 1) == b.charAt(j - 1)) {
+                            suffix[i][j] = suffix[i - 1][j - 1] + 1;
+                            best = Math.max(best, suffix[i][j]);
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the length of the longest substring that is in the keys of at least k indexes
+     */
+    private static int naiveLength(RandomKeys keys, int k) {
+        Set<String> substrings = new HashSet<String>();
+        for (String key : keys.keys) {
+            for (int i = 0; i < key.length(); i++) {
+                for (int j = i + 1; j <= key.length(); j++) {
+                    substrings.add(key.substring(i, j));
+                }
+            }
+        }
+        int best = 0;
+        for (String s : substrings) {
+            if (s.length() > best && keys.indexesContaining(s).size() >= k) {
+                best = s.length();
+            }
+        }
+        return best;
+    }
+}